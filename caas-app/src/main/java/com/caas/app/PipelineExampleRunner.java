@@ -3,13 +3,19 @@ package com.caas.app;
 import com.caas.domain.content.ArticleDraft;
 import com.caas.domain.content.HotTopic;
 import com.caas.domain.content.VideoScript;
+import com.caas.integration.dedup.NearDuplicateFilterSource;
+import com.caas.integration.dedup.NearDuplicateIndex;
+import com.caas.integration.dedup.SeenTopicCache;
 import com.caas.integration.weibo.WeiboHotSource;
 import com.caas.llm.LlmClient;
 import com.caas.llm.LlmRequest;
 import com.caas.llm.LlmResponse;
 import com.caas.llm.processor.ArticleToVideoScriptProcessor;
 import com.caas.llm.processor.TopicExplainProcessor;
+import com.caas.llm.simulate.SimulatedLlmClient;
+import com.caas.llm.simulate.SimulationOptions;
 import com.caas.pipeline.Pipeline;
+import com.caas.pipeline.source.PrefetchingSource;
 import com.caas.pipeline.spi.Processor;
 import com.caas.storage.output.FileSystemOutput;
 
@@ -22,8 +28,8 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
 
 /**
  * 最小可运行示例：拉取热点 -> 生成文章 -> 生成视频脚本 -> 写入本地文件。
@@ -35,9 +41,19 @@ public class PipelineExampleRunner {
         URI endpoint = URI.create("http://localhost:" + server.getAddress().getPort() + "/weibo/hot");
 
         HttpClient httpClient = HttpClient.newHttpClient();
-        WeiboHotSource source = new WeiboHotSource(httpClient, endpoint, "mock-token");
-
-        LlmClient llmClient = new MockLlmClient();
+        // 去重后第二次拉取不再有新热点，Source 随之结束；同一事件的不同说法在调用模型前即被丢弃。
+        // 预取在后台读完整页，模型调用期间不占着热榜接口的连接。
+        WeiboHotSource weibo = new WeiboHotSource(httpClient, endpoint, "mock-token",
+                new SeenTopicCache(10_000, Duration.ofHours(6)));
+        PrefetchingSource<HotTopic> prefetched = new PrefetchingSource<>(weibo, 64, 4);
+        NearDuplicateFilterSource source = new NearDuplicateFilterSource(prefetched,
+                new NearDuplicateIndex(0.6, 10_000, Duration.ofHours(6)));
+
+        // 以模拟服务包装伪客户端，示例运行时带有接近真实服务的首字延迟与输出速率。
+        SimulationOptions simulation = new SimulationOptions();
+        simulation.setTokensPerSecond(200);
+        MockLlmClient mock = new MockLlmClient();
+        LlmClient llmClient = new SimulatedLlmClient(simulation, request -> mock.generate(request).getContent());
         TopicExplainProcessor explainProcessor = new TopicExplainProcessor(llmClient, 0.7, 1200);
         ArticleToVideoScriptProcessor videoProcessor = new ArticleToVideoScriptProcessor(llmClient, 0.7, 1000);
 
@@ -48,11 +64,14 @@ public class PipelineExampleRunner {
 
         FileSystemOutput output = new FileSystemOutput(Path.of("output"));
 
-        List<Processor<?, ?>> processors = List.of(explainProcessor, packProcessor);
-        Pipeline<HotTopic, FileSystemOutput.ContentItem> pipeline = new Pipeline<>(source, output, processors);
+        Pipeline<HotTopic, FileSystemOutput.ContentItem> pipeline = Pipeline.from(source)
+                .then(explainProcessor)
+                .then(packProcessor)
+                .to(output);
 
         pipeline.run();
 
+        prefetched.close();
         server.stop(0);
     }
 
@@ -97,7 +116,7 @@ public class PipelineExampleRunner {
     }
 
     /**
-     * MVP 阶段的本地伪 LLM 客户端，用于保证示例可运行。
+     * MVP 阶段的本地伪 LLM 客户端，用于保证示例可运行；作为 {@link SimulatedLlmClient} 的输出内容来源。
      */
     private static final class MockLlmClient implements LlmClient {
 
@@ -0,0 +1,184 @@
+package com.caas.bench;
+
+import com.caas.domain.content.HotTopic;
+import com.caas.pipeline.Pipeline;
+import com.caas.pipeline.PipelineBuilder;
+import com.caas.pipeline.spi.Processor;
+import com.caas.pipeline.spi.Source;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同步引擎的基线基准：分别测量 {@link Pipeline#fetchBatch}、{@link Pipeline#processBatch} 与经
+ * {@code Pipeline.from(...).then(...).to(...)} 构建后完整的 {@link Pipeline#run()}，后者走默认的融合链路。
+ * 流水线在 {@link #setUp()} 中构建一次，融合时定义隐藏类的开销不计入测量。
+ * <p>
+ * 参数覆盖批大小、处理链长度与数据类型；处理链中的 Processor 保持类型不变，仅做轻量 CPU 转换，
+ * 用于衡量引擎本身的调度与分配开销。建议通过 {@link BenchmarkRunner} 运行以附带 GC 分析。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PipelineBenchmark {
+
+    private static final int RUN_BATCHES = 10;
+
+    @Param({"10", "100", "1000"})
+    private int batchSize;
+
+    @Param({"1", "4", "8"})
+    private int chainLength;
+
+    @Param({"INTEGER", "STRING", "HOT_TOPIC"})
+    private ItemType itemType;
+
+    private List<Object> items;
+    private List<Processor<?, ?>> processors;
+    private ReplaySource source;
+    private Blackhole blackhole;
+    private Pipeline<Object, Object> pipeline;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        items = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            items.add(itemType.create(i));
+        }
+        processors = new ArrayList<>(chainLength);
+        for (int i = 0; i < chainLength; i++) {
+            processors.add(itemType.processor());
+        }
+        source = new ReplaySource(items);
+        this.blackhole = blackhole;
+        PipelineBuilder<Object, Object> builder = Pipeline.from(source);
+        for (Processor<?, ?> processor : processors) {
+            @SuppressWarnings("unchecked")
+            Processor<Object, Object> typed = (Processor<Object, Object>) processor;
+            builder = builder.then(typed);
+        }
+        pipeline = builder.batchSize(batchSize).to(this::consume);
+    }
+
+    @Benchmark
+    public List<Object> fetchBatch() throws Exception {
+        source.reset(batchSize);
+        return Pipeline.fetchBatch(source, batchSize);
+    }
+
+    @Benchmark
+    public List<Object> processBatch() throws Exception {
+        return Pipeline.processBatch(items, processors);
+    }
+
+    @Benchmark
+    public void run() throws Exception {
+        source.reset(batchSize * RUN_BATCHES);
+        pipeline.run();
+    }
+
+    private void consume(Object item) {
+        blackhole.consume(item);
+    }
+
+    /**
+     * 基准数据类型及其对应的保型 Processor。
+     */
+    public enum ItemType {
+        INTEGER {
+            @Override
+            Object create(int index) {
+                return index;
+            }
+
+            @Override
+            Processor<?, ?> processor() {
+                return (Processor<Integer, Integer>) value -> value + 1;
+            }
+        },
+        STRING {
+            @Override
+            Object create(int index) {
+                return "热点话题-" + index;
+            }
+
+            @Override
+            Processor<?, ?> processor() {
+                return (Processor<String, String>) String::strip;
+            }
+        },
+        HOT_TOPIC {
+            @Override
+            Object create(int index) {
+                HotTopic topic = new HotTopic();
+                topic.setId("t-" + index);
+                topic.setTitle("热点话题-" + index);
+                topic.setDescription("基准测试用的热点描述");
+                topic.setSourcePlatform("weibo");
+                topic.setPopularityScore(BigDecimal.valueOf(index));
+                topic.setKeywords(List.of("AI", "办公"));
+                return topic;
+            }
+
+            @Override
+            Processor<?, ?> processor() {
+                return (Processor<HotTopic, HotTopic>) topic -> {
+                    topic.setMentionCount(topic.getTitle().length());
+                    return topic;
+                };
+            }
+        };
+
+        abstract Object create(int index);
+
+        abstract Processor<?, ?> processor();
+    }
+
+    /**
+     * 循环回放预生成数据的 Source，每轮基准前通过 {@link #reset(int)} 设定本轮总条数。
+     */
+    private static final class ReplaySource implements Source<Object> {
+
+        private final List<Object> items;
+        private int remaining;
+        private int index;
+
+        private ReplaySource(List<Object> items) {
+            this.items = items;
+        }
+
+        private void reset(int total) {
+            remaining = total;
+            index = 0;
+        }
+
+        @Override
+        public Object next() {
+            if (remaining == 0) {
+                return null;
+            }
+            remaining--;
+            Object item = items.get(index);
+            index = index + 1 == items.size() ? 0 : index + 1;
+            return item;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.caas.bench;
+
+import com.caas.pipeline.Pipeline;
+import com.caas.pipeline.PipelineBuilder;
+import com.caas.pipeline.spi.Processor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 Processor 链的两种执行方式：逐跳强转的列表循环与 {@link PipelineBuilder} 融合后的单个 Processor。
+ * <p>
+ * 链路由多种短小的 CPU 型 Processor 组成，使列表循环中的调用点呈现多态。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ProcessorChainBenchmark {
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private List<Integer> items;
+    private List<Processor<?, ?>> loopChain;
+    private List<Processor<?, ?>> fusedChain;
+
+    @Setup
+    public void setUp() {
+        items = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            items.add(i);
+        }
+
+        Processor<Integer, Integer> increment = value -> value + 1;
+        Processor<Integer, Long> widen = Integer::longValue;
+        Processor<Long, Long> square = value -> value * value;
+        Processor<Long, String> format = String::valueOf;
+        Processor<String, Integer> length = String::length;
+
+        loopChain = List.of(increment, widen, square, format, length);
+
+        Processor<Integer, Integer> fused = Pipeline.from(() -> (Integer) null)
+                .then(increment)
+                .then(widen)
+                .then(square)
+                .then(format)
+                .then(length)
+                .toProcessor();
+        fusedChain = List.of(fused);
+    }
+
+    @Benchmark
+    public List<Integer> listLoop() throws Exception {
+        return Pipeline.processBatch(items, loopChain);
+    }
+
+    @Benchmark
+    public List<Integer> fusedChain() throws Exception {
+        return Pipeline.processBatch(items, fusedChain);
+    }
+}
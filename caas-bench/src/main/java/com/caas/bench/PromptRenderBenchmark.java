@@ -0,0 +1,85 @@
+package com.caas.bench;
+
+import com.caas.llm.prompt.PromptTemplate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 Prompt 的两种拼装方式：每次调用 {@code String.formatted}（原实现）与预编译的 {@link PromptTemplate}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PromptRenderBenchmark {
+
+    private static final String FORMAT = """
+            请基于以下热点信息撰写解读文章，输出 Markdown：
+            - 热点标题：%s
+            - 热点描述：%s
+            - 分类：%s
+            - 热度分数：%s
+            - 关键词：%s
+
+            写作要求：
+            1) 标题使用一级标题（#）。
+            2) 正文分段清晰，包含背景、核心信息、影响分析、观点小结。
+            3) 适当使用项目符号或小标题，但不要过度营销。
+            4) 如信息不足，允许合理补充常识性背景，但需保持谨慎措辞。
+            """;
+
+    private static final PromptTemplate TEMPLATE = PromptTemplate.compile("""
+            请基于文末的热点信息撰写解读文章，输出 Markdown。
+
+            写作要求：
+            1) 标题使用一级标题（#）。
+            2) 正文分段清晰，包含背景、核心信息、影响分析、观点小结。
+            3) 适当使用项目符号或小标题，但不要过度营销。
+            4) 如信息不足，允许合理补充常识性背景，但需保持谨慎措辞。
+
+            热点信息：
+            - 热点标题：{{title}}
+            - 热点描述：{{description}}
+            - 分类：{{category}}
+            - 热度分数：{{popularityScore}}
+            - 关键词：{{keywords}}
+            """);
+
+    private String title;
+    private String description;
+    private String category;
+    private Double popularityScore;
+    private String keywords;
+
+    @Setup
+    public void setUp() {
+        title = "某地发布新政支持新能源汽车消费";
+        description = "政策涵盖购置补贴、充电设施建设与以旧换新等多项措施，引发广泛讨论。";
+        category = "财经";
+        popularityScore = 98.6;
+        keywords = "新能源, 补贴, 以旧换新";
+    }
+
+    @Benchmark
+    public String formatted() {
+        return FORMAT.formatted(title, description, category, popularityScore, keywords);
+    }
+
+    @Benchmark
+    public String template() {
+        return TEMPLATE.render(title, description, category, popularityScore, keywords);
+    }
+}
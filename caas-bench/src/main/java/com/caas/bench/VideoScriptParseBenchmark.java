@@ -0,0 +1,112 @@
+package com.caas.bench;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.caas.domain.content.VideoScript;
+import com.caas.llm.processor.VideoScriptJsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比视频脚本响应的两种解析方式：fastjson 先建 JSONObject 树再拷贝到实体（原实现），
+ * 与 {@link VideoScriptJsonParser} 直接写入实体。配合 {@code BenchmarkRunner} 的 GC 分析器查看每次解析的分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class VideoScriptParseBenchmark {
+
+    private static final int CHUNK_SIZE = 16;
+
+    @Param({"6", "40"})
+    private int segmentCount;
+
+    private String content;
+    private List<String> chunks;
+
+    @Setup
+    public void setUp() {
+        StringBuilder json = new StringBuilder("好的，以下是脚本：\n```json\n{");
+        json.append("\"title\": \"热点事件视频解读\", \"style\": \"新闻解读\", \"target_duration_seconds\": 120, ");
+        json.append("\"language\": \"zh-CN\", \"narration\": \"").append("全片旁白文本，".repeat(20)).append("\", ");
+        json.append("\"segments\": [");
+        for (int i = 0; i < segmentCount; i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append("{\"order_index\": ").append(i + 1)
+                    .append(", \"type\": \"main\", \"text\": \"").append("本段口播文本，".repeat(6))
+                    .append("\", \"visual_notes\": \"镜头缓慢推进，字幕同步\", \"duration_seconds\": 8")
+                    .append(", \"asset_urls\": [\"https://cdn.example.com/a/").append(i)
+                    .append(".png\"], \"start_offset_seconds\": ").append(i * 8).append('}');
+        }
+        json.append("]}\n```");
+        content = json.toString();
+
+        chunks = new ArrayList<>();
+        for (int i = 0; i < content.length(); i += CHUNK_SIZE) {
+            chunks.add(content.substring(i, Math.min(content.length(), i + CHUNK_SIZE)));
+        }
+    }
+
+    @Benchmark
+    public VideoScript fastjsonTree() {
+        int start = content.indexOf('{');
+        int end = content.lastIndexOf('}');
+        JSONObject root = JSON.parseObject(content.substring(start, end + 1));
+        VideoScript script = new VideoScript();
+        script.setTitle(root.getString("title"));
+        script.setStyle(root.getString("style"));
+        script.setTargetDurationSeconds(root.getInteger("target_duration_seconds"));
+        script.setLanguage(root.getString("language"));
+        script.setNarration(root.getString("narration"));
+        JSONArray segments = root.getJSONArray("segments");
+        List<VideoScript.Segment> results = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            JSONObject item = segments.getJSONObject(i);
+            VideoScript.Segment segment = new VideoScript.Segment();
+            segment.setOrderIndex(item.getInteger("order_index"));
+            segment.setType(item.getString("type"));
+            segment.setText(item.getString("text"));
+            segment.setVisualNotes(item.getString("visual_notes"));
+            segment.setDurationSeconds(item.getInteger("duration_seconds"));
+            segment.setAssetUrls(item.getJSONArray("asset_urls").toJavaList(String.class));
+            segment.setStartOffsetSeconds(item.getInteger("start_offset_seconds"));
+            results.add(segment);
+        }
+        script.setSegments(results);
+        return script;
+    }
+
+    @Benchmark
+    public VideoScript incremental() {
+        return VideoScriptJsonParser.parse(content);
+    }
+
+    @Benchmark
+    public VideoScript incrementalChunks() {
+        VideoScriptJsonParser parser = new VideoScriptJsonParser();
+        for (String chunk : chunks) {
+            parser.feed(chunk);
+        }
+        return parser.finish();
+    }
+}
@@ -0,0 +1,69 @@
+package com.caas.integration.dedup;
+
+import com.caas.domain.content.HotTopic;
+import com.caas.pipeline.spi.Source;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * 近似重复过滤 Source：在热点进入流水线之前丢弃与已处理热点近似重复的说法，重复的热点不会触发任何模型调用。
+ * <p>
+ * 可包装单个平台的 Source，也可包装 {@link com.caas.integration.source.FanInHotTopicSource} 做跨平台去重。
+ * 每丢弃一个热点回调一次 {@code onDuplicate(重复热点, 已保留的热点)}，可用于记录或统计。
+ * 已保留的热点此前已交给流水线，可能正被其他线程处理，回调中只能读取，不应修改。
+ * 被装饰的 Source 报告一轮结束时原样转发。
+ * <p>
+ * 丢弃重复热点后会继续向被装饰的 Source 取下一项，无法在一轮的边界停下。常驻轮询时应把本 Source 放在
+ * {@link com.caas.pipeline.source.PollingSource} 内层，即 {@code PollingSource(NearDuplicateFilterSource(...))}：
+ * 一轮末尾的重复热点被丢弃后本 Source 随被装饰的 Source 返回 {@code null}，由轮询据此结束这一轮。
+ * 放在外层时，一轮最后一项若是重复热点，取下一项会阻塞一个轮询间隔，已取到的热点要等到下一轮才能处理。
+ */
+public class NearDuplicateFilterSource implements Source<HotTopic> {
+
+    private final Source<HotTopic> delegate;
+    private final NearDuplicateIndex index;
+    private final BiConsumer<? super HotTopic, ? super HotTopic> onDuplicate;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public NearDuplicateFilterSource(Source<HotTopic> delegate, NearDuplicateIndex index) {
+        this(delegate, index, (duplicate, kept) -> {
+        });
+    }
+
+    public NearDuplicateFilterSource(Source<HotTopic> delegate, NearDuplicateIndex index,
+                                     BiConsumer<? super HotTopic, ? super HotTopic> onDuplicate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.index = Objects.requireNonNull(index, "index");
+        this.onDuplicate = Objects.requireNonNull(onDuplicate, "onDuplicate");
+    }
+
+    @Override
+    public HotTopic next() throws Exception {
+        while (true) {
+            HotTopic topic = delegate.next();
+            if (topic == null) {
+                return null;
+            }
+            HotTopic kept = index.addIfDistinct(topic);
+            if (kept == null) {
+                return topic;
+            }
+            dropped.incrementAndGet();
+            onDuplicate.accept(topic, kept);
+        }
+    }
+
+    @Override
+    public boolean isRoundComplete() {
+        return delegate.isRoundComplete();
+    }
+
+    /**
+     * 累计丢弃的近似重复热点数量。
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,301 @@
+package com.caas.integration.dedup;
+
+import com.caas.domain.content.HotTopic;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 近似重复热点索引：同一事件在热榜上的不同说法只保留最先出现的一条，避免为每种说法各调用一次模型。
+ * <p>
+ * 对 title、description 与 keywords 取特征：中日韩文字按相邻两字切分，字母数字按整词切分，三者分别切分互不跨越。
+ * 每个热点计算 64 维 MinHash 签名，按 32 段、每段 2 维建立 LSH 分桶，只与同桶的候选比较，
+ * 估计的 Jaccard 相似度不低于 {@code threshold} 即视为重复。单次查询只涉及少量候选，耗时在微秒级。
+ * <p>
+ * 与 {@link SeenTopicCache} 互补：后者按 topic_id 识别同一热点的重复出现，本索引识别不同 topic_id 的相似热点；
+ * 同一 topic_id 再次出现时不视为重复，而是更新其签名。条目在最后一次加入后经过 TTL 过期，
+ * 超过上限时淘汰最早加入的条目。线程安全。
+ */
+public class NearDuplicateIndex {
+
+    private static final int SIGNATURE_SIZE = 64;
+    private static final int ROWS_PER_BAND = 2;
+    private static final int BANDS = SIGNATURE_SIZE / ROWS_PER_BAND;
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            SEEDS[i] = mix((i + 1) * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    private final double threshold;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final Map<Long, List<Entry>> buckets = new HashMap<>();
+
+    /**
+     * @param threshold 视为重复的最低相似度，取值 (0, 1]，越大越严格
+     */
+    public NearDuplicateIndex(double threshold, int maxEntries, Duration ttl) {
+        Objects.requireNonNull(ttl, "ttl");
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("threshold must be in (0, 1]");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.threshold = threshold;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    /**
+     * 查找与该热点近似重复的已有热点：找到时返回已有热点且不记录本热点；否则记录本热点并返回 {@code null}。
+     * <p>
+     * 没有可用文本（标题、描述、关键词均为空）的热点无法比较，直接返回 {@code null} 且不记录。
+     */
+    public HotTopic addIfDistinct(HotTopic topic) {
+        Objects.requireNonNull(topic, "topic");
+        Objects.requireNonNull(topic.getId(), "topic.id");
+        Set<String> shingles = shingles(topic);
+        if (shingles.isEmpty()) {
+            return null;
+        }
+        long[] signature = signature(shingles);
+        long[] bandKeys = bandKeys(signature);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            purgeExpired(now);
+            Entry match = findMatch(topic.getId(), signature, bandKeys);
+            if (match != null) {
+                return match.topic;
+            }
+            remove(entries.remove(topic.getId()));
+            Entry entry = new Entry(topic, signature, bandKeys, now + ttlMillis);
+            entries.put(topic.getId(), entry);
+            for (long key : bandKeys) {
+                buckets.computeIfAbsent(key, ignored -> new ArrayList<>(2)).add(entry);
+            }
+            if (entries.size() > maxEntries) {
+                Iterator<Entry> eldest = entries.values().iterator();
+                remove(eldest.next());
+                eldest.remove();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 估计两个热点的相似度（特征集合的 Jaccard 系数），取值 [0, 1]；任一方没有可用文本时返回 0。
+     */
+    public static double similarity(HotTopic a, HotTopic b) {
+        Set<String> left = shingles(Objects.requireNonNull(a, "a"));
+        Set<String> right = shingles(Objects.requireNonNull(b, "b"));
+        if (left.isEmpty() || right.isEmpty()) {
+            return 0;
+        }
+        return similarity(signature(left), signature(right));
+    }
+
+    /**
+     * 当前记录的热点数量。
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Entry findMatch(String id, long[] signature, long[] bandKeys) {
+        Set<Entry> checked = new HashSet<>();
+        for (long key : bandKeys) {
+            List<Entry> bucket = buckets.get(key);
+            if (bucket == null) {
+                continue;
+            }
+            for (Entry candidate : bucket) {
+                if (checked.add(candidate) && !candidate.topic.getId().equals(id)
+                        && similarity(signature, candidate.signature) >= threshold) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 条目按加入顺序排列，过期时间也随之递增，只需从最早的一端清理。
+     */
+    private void purgeExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.expiresAt > now) {
+                return;
+            }
+            remove(entry);
+            it.remove();
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        for (long key : entry.bandKeys) {
+            List<Entry> bucket = buckets.get(key);
+            if (bucket != null && bucket.remove(entry) && bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> shingles(HotTopic topic) {
+        Set<String> shingles = new HashSet<>();
+        addShingles(topic.getTitle(), shingles);
+        addShingles(topic.getDescription(), shingles);
+        if (topic.getKeywords() != null) {
+            for (String keyword : topic.getKeywords()) {
+                addShingles(keyword, shingles);
+            }
+        }
+        return shingles;
+    }
+
+    /**
+     * 全角半角、大小写先归一；连续的中日韩文字取相邻两字（只有一个字时取单字），连续的字母数字取整词。
+     */
+    private static void addShingles(String text, Set<String> shingles) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        int runStart = -1;
+        boolean cjkRun = false;
+        int i = 0;
+        while (i <= normalized.length()) {
+            int codePoint = i < normalized.length() ? normalized.codePointAt(i) : ' ';
+            boolean cjk = isCjk(codePoint);
+            boolean word = !cjk && Character.isLetterOrDigit(codePoint);
+            if (runStart >= 0 && (cjkRun ? !cjk : !word)) {
+                addRun(normalized.substring(runStart, i), cjkRun, shingles);
+                runStart = -1;
+            }
+            if (runStart < 0 && (cjk || word)) {
+                runStart = i;
+                cjkRun = cjk;
+            }
+            i += Character.charCount(codePoint);
+        }
+    }
+
+    private static void addRun(String run, boolean cjk, Set<String> shingles) {
+        if (!cjk || run.codePointCount(0, run.length()) == 1) {
+            shingles.add(run);
+            return;
+        }
+        int first = 0;
+        int second = run.offsetByCodePoints(0, 1);
+        while (second < run.length()) {
+            int end = run.offsetByCodePoints(second, 1);
+            shingles.add(run.substring(first, end));
+            first = second;
+            second = end;
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static long[] signature(Set<String> shingles) {
+        long[] signature = new long[SIGNATURE_SIZE];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String shingle : shingles) {
+            long base = hash(shingle);
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                long value = mix(base ^ SEEDS[i]);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long[] bandKeys(long[] signature) {
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                key = mix(key * 31 + signature[band * ROWS_PER_BAND + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    private static double similarity(long[] a, long[] b) {
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    /**
+     * 64 位 FNV-1a。
+     */
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * SplitMix64 的混合函数，用于从同一个基础哈希派生彼此独立的哈希值。
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static final class Entry {
+
+        private final HotTopic topic;
+        private final long[] signature;
+        private final long[] bandKeys;
+        private final long expiresAt;
+
+        private Entry(HotTopic topic, long[] signature, long[] bandKeys, long expiresAt) {
+            this.topic = topic;
+            this.signature = signature;
+            this.bandKeys = bandKeys;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
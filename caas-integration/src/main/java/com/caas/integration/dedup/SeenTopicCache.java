@@ -0,0 +1,77 @@
+package com.caas.integration.dedup;
+
+import com.caas.domain.content.HotTopic;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 跨轮询的热点去重集合：按 topic_id 记住最近见过的 updated_at，只放行新出现或有实质更新的热点。
+ * <p>
+ * 同一 topic_id 的 updated_at 变化即视为有更新。每次见到热点都会刷新其过期时间，因此持续在榜的热点不会因 TTL
+ * 到期而被重复放行；下榜超过 TTL 后再次上榜则重新放行。条目数超过上限时淘汰最久未见的热点。线程安全。
+ */
+public class SeenTopicCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries;
+
+    public SeenTopicCache(int maxEntries, Duration ttl) {
+        Objects.requireNonNull(ttl, "ttl");
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SeenTopicCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 记录一次见到该热点，返回它是否需要处理：未见过、已过期或 updated_at 与上次不同时返回 true。
+     */
+    public boolean markSeen(HotTopic topic) {
+        Objects.requireNonNull(topic, "topic");
+        Objects.requireNonNull(topic.getId(), "topic.id");
+        LocalDateTime updatedAt = topic.getLastUpdatedAt();
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry previous = entries.get(topic.getId());
+            boolean fresh = previous == null || previous.expiresAt <= now
+                    || !Objects.equals(previous.updatedAt, updatedAt);
+            entries.put(topic.getId(), new Entry(updatedAt, now + ttlMillis));
+            return fresh;
+        }
+    }
+
+    /**
+     * 当前记录的热点数量，包括已过期但尚未被覆盖或淘汰的条目。
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry {
+
+        private final LocalDateTime updatedAt;
+        private final long expiresAt;
+
+        private Entry(LocalDateTime updatedAt, long expiresAt) {
+            this.updatedAt = updatedAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.caas.integration.source;
+
+import com.caas.domain.content.HotTopic;
+import com.caas.pipeline.spi.Source;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多平台热榜合并 Source：每一轮同时向所有平台发起拉取，按到达顺序交错输出热点，
+ * 一轮的耗时取决于最慢的平台而不是各平台之和。
+ * <p>
+ * 每个热点的 sourcePlatform 写为对应 {@link HotTopicFetcher#getPlatform()}。解码在虚拟线程上进行，
+ * 热点经有界队列交给 {@link #next()}，下游处理慢时拉取随之放缓。一轮全部完成后才开始下一轮；
+ * 某一轮没有任何热点时返回 null。部分平台失败只计入 {@link #getFailures()}，所有平台都失败且没有热点时抛出首个异常。
+ * <p>
+ * 各平台应共用一个 {@link #newHttpClient()} 创建的客户端，同一主机的请求复用 HTTP/2 连接。
+ * {@link #next()} 只应由单个线程调用；不再使用时调用 {@link #close()} 停止未完成的拉取。
+ */
+public class FanInHotTopicSource implements Source<HotTopic>, AutoCloseable {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private final List<HotTopicFetcher> fetchers;
+    private final BlockingQueue<Object> queue;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong failures = new AtomicLong();
+
+    private boolean roundStarted;
+    private int pending;
+    private int roundTopics;
+    private int roundFailures;
+    private Throwable roundError;
+    private volatile boolean closed;
+
+    public FanInHotTopicSource(List<? extends HotTopicFetcher> fetchers) {
+        this(fetchers, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param queueCapacity 已解码但尚未被 {@link #next()} 取走的热点上限
+     */
+    public FanInHotTopicSource(List<? extends HotTopicFetcher> fetchers, int queueCapacity) {
+        Objects.requireNonNull(fetchers, "fetchers");
+        if (fetchers.isEmpty()) {
+            throw new IllegalArgumentException("fetchers must not be empty");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.fetchers = new ArrayList<>(fetchers.size());
+        for (HotTopicFetcher fetcher : fetchers) {
+            this.fetchers.add(Objects.requireNonNull(fetcher, "fetcher"));
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * 供各平台共用的 HTTP 客户端：优先 HTTP/2，服务端不支持时自动回退到 HTTP/1.1。
+     */
+    public static HttpClient newHttpClient() {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(10))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public HotTopic next() throws Exception {
+        if (closed) {
+            throw new IllegalStateException("FanInHotTopicSource is closed");
+        }
+        while (true) {
+            if (pending == 0) {
+                if (roundStarted) {
+                    roundStarted = false;
+                    if (roundTopics == 0) {
+                        if (roundFailures == fetchers.size()) {
+                            throw asException(roundError);
+                        }
+                        return null;
+                    }
+                }
+                startRound();
+            }
+            Object item = queue.take();
+            if (item instanceof HotTopic) {
+                roundTopics++;
+                return (HotTopic) item;
+            }
+            pending--;
+            Throwable error = ((Completion) item).error;
+            if (error != null) {
+                failures.incrementAndGet();
+                roundFailures++;
+                if (roundError == null) {
+                    roundError = error;
+                } else {
+                    roundError.addSuppressed(error);
+                }
+            }
+        }
+    }
+
+    /**
+     * 累计失败的平台拉取次数。
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        queue.clear();
+    }
+
+    private void startRound() {
+        roundStarted = true;
+        pending = fetchers.size();
+        roundTopics = 0;
+        roundFailures = 0;
+        roundError = null;
+        for (HotTopicFetcher fetcher : fetchers) {
+            String platform = fetcher.getPlatform();
+            CompletionStage<Void> fetch;
+            try {
+                fetch = fetcher.fetchAsync(topic -> {
+                    topic.setSourcePlatform(platform);
+                    put(topic);
+                }, executor);
+            } catch (RuntimeException ex) {
+                fetch = CompletableFuture.failedFuture(ex);
+            }
+            // 完成标记同样可能因队列已满而等待，放到虚拟线程上，避免阻塞 HTTP 客户端的回调线程。
+            fetch.whenCompleteAsync((ignored, error) -> put(new Completion(unwrap(error))), executor);
+        }
+    }
+
+    private void put(Object item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("FanInHotTopicSource is closed");
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static Exception asException(Throwable error) {
+        if (error instanceof Exception) {
+            return (Exception) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        return new IOException(error);
+    }
+
+    /**
+     * 一个平台本轮拉取结束的标记。
+     */
+    private static final class Completion {
+
+        private final Throwable error;
+
+        private Completion(Throwable error) {
+            this.error = error;
+        }
+    }
+}
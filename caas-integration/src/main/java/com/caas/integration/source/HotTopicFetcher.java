@@ -0,0 +1,28 @@
+package com.caas.integration.source;
+
+import com.caas.domain.content.HotTopic;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * 单个平台的异步热榜拉取，供 {@link FanInHotTopicSource} 并发调用。
+ */
+public interface HotTopicFetcher {
+
+    /**
+     * 平台标识，写入 {@link HotTopic#getSourcePlatform()}，如 weibo、zhihu。
+     */
+    String getPlatform();
+
+    /**
+     * 异步拉取一页热点，每得到一个热点回调一次 consumer。
+     * <p>
+     * 请求应以非阻塞方式发出；解码与回调在 executor 上执行，consumer 可能因下游背压而阻塞。
+     * 同一实例上一次拉取完成之前不会再次调用。
+     *
+     * @return 整页处理完后完成的阶段；拉取或解码失败时以异常完成
+     */
+    CompletionStage<Void> fetchAsync(Consumer<? super HotTopic> consumer, Executor executor);
+}
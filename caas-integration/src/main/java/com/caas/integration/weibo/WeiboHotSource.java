@@ -1,139 +1,206 @@
 package com.caas.integration.weibo;
 
 import com.caas.domain.content.HotTopic;
+import com.caas.integration.dedup.SeenTopicCache;
+import com.caas.integration.source.FanInHotTopicSource;
+import com.caas.integration.source.HotTopicFetcher;
 import com.caas.pipeline.spi.Source;
 
-import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONReader;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * 微博热榜 Source 示例实现，通过 HTTP API 拉取热点并转为 HotTopic。
+ * <p>
+ * 拉取时带上次响应的 ETag / Last-Modified 发起条件请求，热榜未变化时服务端返回 304，视为没有新热点。
+ * 配置了 {@link SeenTopicCache} 时只输出新出现或 updated_at 有变化的热点，避免同一热点在多次轮询中被重复生成。
+ * <p>
+ * 响应体以流的方式解码：每次 {@link #next()} 只从连接中读取并解析 data 数组的下一个元素，
+ * 不保留整页文本或 JSON 树，内存占用与页大小无关，第一个热点在响应体读完之前即可交给下游。
+ * 代价是一页读完之前连接始终打开：直接交给同步或分阶段流水线时，两次 {@link #next()} 之间隔着下游的模型调用，
+ * 服务端可能因读取超时断开，该页其余热点随之丢失。因此作为 Source 使用时应及时读完整页，例如用
+ * {@link com.caas.pipeline.source.PrefetchingSource} 包装（缓冲容量 {@code batchSize * prefetchBatches}
+ * 不小于一页热点数），或交给 {@link FanInHotTopicSource}，由后台线程读取并缓冲已解码的热点。
+ * 常驻轮询时预取放在最外层：{@code PrefetchingSource(PollingSource(WeiboHotSource))}。
+ * <p>
+ * 同时实现 {@link HotTopicFetcher}，可交给 {@link FanInHotTopicSource} 与其他平台并发拉取；
+ * 同一实例只应以其中一种方式使用。
  */
-public class WeiboHotSource implements Source<HotTopic> {
+public class WeiboHotSource implements Source<HotTopic>, HotTopicFetcher {
+
+    public static final String PLATFORM = "weibo";
+
 
     private final HttpClient httpClient;
     private final URI apiEndpoint;
     private final String apiToken;
-    private final Deque<HotTopic> buffer = new ArrayDeque<>();
+    private final SeenTopicCache seenTopics;
+    private HotTopicPage page;
+    private volatile String entityTag;
+    private volatile String lastModified;
+    private final AtomicLong notModified = new AtomicLong();
 
     public WeiboHotSource(HttpClient httpClient, URI apiEndpoint, String apiToken) {
+        this(httpClient, apiEndpoint, apiToken, null);
+    }
+
+    /**
+     * @param seenTopics 跨轮询去重集合，为 null 时不去重；多个 Source 共享同一实例时在它们之间去重
+     */
+    public WeiboHotSource(HttpClient httpClient, URI apiEndpoint, String apiToken, SeenTopicCache seenTopics) {
         this.httpClient = httpClient;
         this.apiEndpoint = apiEndpoint;
         this.apiToken = apiToken;
+        this.seenTopics = seenTopics;
     }
 
+    /**
+     * 依次返回当前页的热点；当前页读完后重新拉取，新一页没有可输出的热点时返回 null。
+     */
     @Override
     public HotTopic next() throws Exception {
-        if (buffer.isEmpty()) {
-            List<HotTopic> fetched = fetchHotTopics();
-            if (fetched.isEmpty()) {
-                return null;
+        if (page != null) {
+            HotTopic topic = nextInPage();
+            if (topic != null) {
+                return topic;
             }
-            buffer.addAll(fetched);
         }
-        return buffer.pollFirst();
+        page = openPage(httpClient.send(buildRequest(), HttpResponse.BodyHandlers.ofInputStream()));
+        return page == null ? null : nextInPage();
     }
 
-    private List<HotTopic> fetchHotTopics() throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(apiEndpoint)
-                .header("Authorization", "Bearer " + apiToken)
-                .header("Accept", "application/json")
-                .GET()
-                .build();
+    @Override
+    public String getPlatform() {
+        return PLATFORM;
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() < 200 || response.statusCode() >= 300) {
-            throw new IOException("微博热榜接口调用失败，状态码=" + response.statusCode());
-        }
+    /**
+     * 用 {@link HttpClient#sendAsync} 拉取一页，收到响应头后在 executor 上逐个解码并回调 consumer。
+     */
+    @Override
+    public CompletionStage<Void> fetchAsync(Consumer<? super HotTopic> consumer, Executor executor) {
+        Objects.requireNonNull(consumer, "consumer");
+        Objects.requireNonNull(executor, "executor");
+        return httpClient.sendAsync(buildRequest(), HttpResponse.BodyHandlers.ofInputStream())
+                .thenAcceptAsync(response -> {
+                    try {
+                        HotTopicPage fetched = openPage(response);
+                        if (fetched == null) {
+                            return;
+                        }
+                        try (fetched) {
+                            HotTopic topic;
+                            while ((topic = fetched.next()) != null) {
+                                consumer.accept(topic);
+                            }
+                        }
+                        entityTag = fetched.entityTag;
+                        lastModified = fetched.lastModified;
+                    } catch (IOException ex) {
+                        throw new CompletionException(ex);
+                    }
+                }, executor);
+    }
 
-        return parseHotTopics(response.body());
-    }
-
-    private List<HotTopic> parseHotTopics(String jsonBody) throws IOException {
-        // 伪代码示意：假设接口返回 JSON 结构如下：
-        // {
-        //   "data": [
-        //     {
-        //       "topic_id": "123",
-        //       "title": "热搜标题",
-        //       "desc": "简要描述",
-        //       "category": "社会",
-        //       "source_url": "https://weibo.com/...",
-        //       "hot_score": 98765.4,
-        //       "mention_count": 12000,
-        //       "sentiment": "positive",
-        //       "tags": ["tag1", "tag2"],
-        //       "first_seen_at": "2024-10-01T08:00:00",
-        //       "updated_at": "2024-10-01T09:00:00"
-        //     }
-        //   ]
-        // }
-
-        // 这里不引入具体 JSON 解析库，仅展示字段映射关系。
-        // 实际工程中可使用 Jackson/Gson/JSON-B 等完成反序列化。
-
-        JSONArray items = decodeJsonArray(jsonBody, "data");
-        if (items.isEmpty()) {
-            return List.of();
-        }
-        List<HotTopic> topics = new ArrayList<>(items.size());
-        for (int i = 0; i < items.size(); i++) {
-            JSONObject item = items.getJSONObject(i);
-            if (item == null) {
-                continue;
-            }
-            HotTopic topic = new HotTopic();
-            topic.setId(item.getString("topic_id"));
-            topic.setTitle(item.getString("title"));
-            topic.setDescription(item.getString("desc"));
-            topic.setCategory(item.getString("category"));
-            topic.setSourcePlatform("weibo");
-            topic.setSourceUrl(item.getString("source_url"));
-            topic.setPopularityScore(decimalValue(item.get("hot_score")));
-            topic.setMentionCount(intValue(item.get("mention_count")));
-            topic.setSentiment(item.getString("sentiment"));
-            topic.setKeywords(stringListValue(item.get("tags")));
-            topic.setFirstSeenAt(dateTimeValue(item.getString("first_seen_at")));
-            topic.setLastUpdatedAt(dateTimeValue(item.getString("updated_at")));
-            topic.setStatus(defaultIfBlank(item.getString("status"), "active"));
-            topic.setLanguage(defaultIfBlank(item.getString("language"), "zh-CN"));
-            topic.setRegion(item.getString("region"));
-            topic.setCreatedAt(LocalDateTime.now());
-            topic.setUpdatedAt(LocalDateTime.now());
-            if (isInvalid(topic)) {
-                continue;
+    /**
+     * 服务端返回 304（热榜未变化）的次数。
+     */
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    private HotTopic nextInPage() throws IOException {
+        try {
+            HotTopic topic = page.next();
+            if (topic == null) {
+                // 整页解析成功后才记录校验值，避免解析失败的内容在下次请求时被 304 跳过。
+                entityTag = page.entityTag;
+                lastModified = page.lastModified;
+                page.close();
+                page = null;
             }
-            topics.add(topic);
+            return topic;
+        } catch (IOException | RuntimeException ex) {
+            page.close();
+            page = null;
+            throw ex;
         }
-        return topics;
     }
 
-    private JSONArray decodeJsonArray(String jsonBody, String field) throws IOException {
-        if (jsonBody == null || jsonBody.isEmpty()) {
-            return new JSONArray();
+    private HttpRequest buildRequest() {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(apiEndpoint)
+                .header("Authorization", "Bearer " + apiToken)
+                .header("Accept", "application/json");
+        if (entityTag != null) {
+            builder.header("If-None-Match", entityTag);
         }
-        try {
-            JSONObject root = JSON.parseObject(jsonBody);
-            JSONArray data = root.getJSONArray(field);
-            return data == null ? new JSONArray() : data;
-        } catch (Exception ex) {
-            throw new IOException("解析微博热榜 JSON 失败", ex);
+        if (lastModified != null) {
+            builder.header("If-Modified-Since", lastModified);
         }
+        return builder.GET().build();
+    }
+
+    /**
+     * 检查状态码并准备流式读取；304 时返回 null。
+     */
+    private HotTopicPage openPage(HttpResponse<InputStream> response) throws IOException {
+        if (response.statusCode() == 304) {
+            response.body().close();
+            notModified.incrementAndGet();
+            return null;
+        }
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            response.body().close();
+            throw new IOException("微博热榜接口调用失败，状态码=" + response.statusCode());
+        }
+        return new HotTopicPage(response.body(),
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null));
+    }
+
+    private HotTopic toHotTopic(JSONObject item) {
+        HotTopic topic = new HotTopic();
+        topic.setId(item.getString("topic_id"));
+        topic.setTitle(item.getString("title"));
+        topic.setDescription(item.getString("desc"));
+        topic.setCategory(item.getString("category"));
+        topic.setSourcePlatform(PLATFORM);
+        topic.setSourceUrl(item.getString("source_url"));
+        topic.setPopularityScore(decimalValue(item.get("hot_score")));
+        topic.setMentionCount(intValue(item.get("mention_count")));
+        topic.setSentiment(item.getString("sentiment"));
+        topic.setKeywords(stringListValue(item.get("tags")));
+        topic.setFirstSeenAt(dateTimeValue(item.getString("first_seen_at")));
+        topic.setLastUpdatedAt(dateTimeValue(item.getString("updated_at")));
+        topic.setStatus(defaultIfBlank(item.getString("status"), "active"));
+        topic.setLanguage(defaultIfBlank(item.getString("language"), "zh-CN"));
+        topic.setRegion(item.getString("region"));
+        topic.setCreatedAt(LocalDateTime.now());
+        topic.setUpdatedAt(LocalDateTime.now());
+        return topic;
     }
 
     private BigDecimal decimalValue(Object value) {
@@ -200,4 +267,98 @@ public class WeiboHotSource implements Source<HotTopic> {
     private boolean isBlank(String value) {
         return value == null || value.trim().isEmpty();
     }
+
+    /**
+     * 一次响应的流式读取状态。接口返回的 JSON 结构如下，只解码 data 数组，其他字段跳过：
+     * <pre>
+     * {
+     *   "data": [
+     *     {
+     *       "topic_id": "123",
+     *       "title": "热搜标题",
+     *       "desc": "简要描述",
+     *       "category": "社会",
+     *       "source_url": "https://weibo.com/...",
+     *       "hot_score": 98765.4,
+     *       "mention_count": 12000,
+     *       "sentiment": "positive",
+     *       "tags": ["tag1", "tag2"],
+     *       "first_seen_at": "2024-10-01T08:00:00",
+     *       "updated_at": "2024-10-01T09:00:00"
+     *     }
+     *   ]
+     * }
+     * </pre>
+     */
+    private final class HotTopicPage implements Closeable {
+
+        private final BufferedReader body;
+        private final String entityTag;
+        private final String lastModified;
+        private JSONReader reader;
+        private boolean finished;
+
+        private HotTopicPage(InputStream body, String entityTag, String lastModified) {
+            this.body = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * 读取下一个有效且未见过的热点，data 数组读完时返回 null。
+         */
+        HotTopic next() throws IOException {
+            try {
+                if (reader == null && !openDataArray()) {
+                    finished = true;
+                }
+                while (!finished) {
+                    if (!reader.hasNext()) {
+                        reader.endArray();
+                        finished = true;
+                        break;
+                    }
+                    JSONObject item = reader.readObject(JSONObject.class);
+                    if (item == null) {
+                        continue;
+                    }
+                    HotTopic topic = toHotTopic(item);
+                    if (!isInvalid(topic) && (seenTopics == null || seenTopics.markSeen(topic))) {
+                        return topic;
+                    }
+                }
+                return null;
+            } catch (RuntimeException ex) {
+                throw new IOException("解析微博热榜 JSON 失败", ex);
+            }
+        }
+
+        /**
+         * 定位到 data 数组的开头；响应体为空或没有 data 数组时返回 false。
+         */
+        private boolean openDataArray() throws IOException {
+            body.mark(1);
+            if (body.read() < 0) {
+                return false;
+            }
+            body.reset();
+            reader = new JSONReader(body);
+            reader.startObject();
+            while (reader.hasNext()) {
+                String key = reader.readString();
+                if ("data".equals(key)) {
+                    reader.startArray();
+                    return true;
+                }
+                reader.readObject();
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // 提前结束时直接关闭连接，未读部分不再下载。
+            body.close();
+        }
+    }
 }
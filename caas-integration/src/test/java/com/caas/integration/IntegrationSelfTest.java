@@ -0,0 +1,418 @@
+package com.caas.integration;
+
+import com.caas.domain.content.HotTopic;
+import com.caas.integration.dedup.NearDuplicateFilterSource;
+import com.caas.integration.dedup.NearDuplicateIndex;
+import com.caas.integration.dedup.SeenTopicCache;
+import com.caas.integration.source.FanInHotTopicSource;
+import com.caas.integration.source.HotTopicFetcher;
+import com.caas.integration.weibo.WeiboHotSource;
+import com.caas.pipeline.Pipeline;
+import com.caas.pipeline.source.PollingSource;
+import com.caas.pipeline.source.PrefetchingSource;
+import com.caas.pipeline.spi.Source;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * caas-integration 模块的自检入口，外部接口均由本地 HttpServer 模拟。
+ */
+public final class IntegrationSelfTest {
+
+    public static void main(String[] args) throws Exception {
+        checkSeenTopicCache();
+        checkConditionalFetch();
+        checkStreamingDecode();
+        checkPrefetchedPage();
+        checkFanIn();
+        checkNearDuplicate();
+    }
+
+    private static void checkSeenTopicCache() throws Exception {
+        SeenTopicCache cache = new SeenTopicCache(2, Duration.ofMillis(100));
+        if (!cache.markSeen(topic("a", "09:00")) || cache.markSeen(topic("a", "09:00"))
+                || !cache.markSeen(topic("a", "09:30"))) {
+            throw new IllegalStateException("updated_at changes must be treated as new");
+        }
+        // 容量为 2：写入 c 时淘汰最久未见的 a。
+        cache.markSeen(topic("b", "09:00"));
+        cache.markSeen(topic("c", "09:00"));
+        if (cache.size() != 2 || !cache.markSeen(topic("a", "09:30"))) {
+            throw new IllegalStateException("Least recently seen topic was not evicted");
+        }
+        Thread.sleep(150);
+        if (!cache.markSeen(topic("a", "09:30"))) {
+            throw new IllegalStateException("Expired topic was not released again");
+        }
+    }
+
+    private static void checkConditionalFetch() throws Exception {
+        AtomicReference<String> version = new AtomicReference<>("v1");
+        AtomicReference<String> body = new AtomicReference<>(hotList(
+                item("t-1", "热点一", "2024-10-01T09:00:00"),
+                item("t-2", "热点二", "2024-10-01T09:00:00")));
+        AtomicInteger fullResponses = new AtomicInteger();
+        AtomicInteger notModified = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/weibo/hot", exchange -> {
+            String etag = "\"" + version.get() + "\"";
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            fullResponses.incrementAndGet();
+            byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        try {
+            WeiboHotSource source = new WeiboHotSource(HttpClient.newHttpClient(), endpoint(server), "token",
+                    new SeenTopicCache(100, Duration.ofHours(1)));
+
+            // 第一轮输出全部热点；Source 紧接着再次拉取，内容未变返回 304，本轮结束。
+            if (!List.of("t-1", "t-2").equals(drain(source)) || notModified.get() != 1) {
+                throw new IllegalStateException("Unexpected first poll, 304 count: " + notModified.get());
+            }
+            if (!drain(source).isEmpty() || notModified.get() != 2 || source.getNotModifiedCount() != 2) {
+                throw new IllegalStateException("Unchanged hot list was not served by 304");
+            }
+
+            // 热榜更新：t-1 有变化、t-2 未变、t-3 新上榜，只输出 t-1 与 t-3。
+            version.set("v2");
+            body.set(hotList(
+                    item("t-1", "热点一", "2024-10-01T09:30:00"),
+                    item("t-2", "热点二", "2024-10-01T09:00:00"),
+                    item("t-3", "热点三", "2024-10-01T09:30:00")));
+            if (!List.of("t-1", "t-3").equals(drain(source)) || fullResponses.get() != 2) {
+                throw new IllegalStateException("Unexpected delta poll, full responses: " + fullResponses.get());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void checkStreamingDecode() throws Exception {
+        // 服务端发出第一个元素与第二个元素的前半段后暂停，直到 Source 已经交出第一个热点才发送其余部分。
+        CountDownLatch firstDelivered = new CountDownLatch(1);
+        int total = 2000;
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/weibo/hot", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                StringBuilder rest = new StringBuilder();
+                for (int i = 1; i < total; i++) {
+                    rest.append(item("s-" + i, "热点" + i, "2024-10-01T09:00:00")).append(i == total - 1 ? "" : ",");
+                }
+                int split = rest.indexOf(",");
+                out.write(("{\"meta\": {\"page\": 1}, \"data\": [" + item("s-0", "流式热点", "2024-10-01T09:00:00")
+                        + "," + rest.substring(0, split)).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                if (!firstDelivered.await(5, TimeUnit.SECONDS)) {
+                    throw new IOException("first topic was not delivered before the body completed");
+                }
+                out.write(rest.substring(split).getBytes(StandardCharsets.UTF_8));
+                out.write("], \"total\": 2000}".getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        try {
+            WeiboHotSource source = new WeiboHotSource(HttpClient.newHttpClient(), endpoint(server), "token",
+                    new SeenTopicCache(10_000, Duration.ofHours(1)));
+            HotTopic first = source.next();
+            if (first == null || !"s-0".equals(first.getId()) || !"weibo".equals(first.getSourcePlatform())) {
+                throw new IllegalStateException("Unexpected first streamed topic");
+            }
+            firstDelivered.countDown();
+            int count = 1;
+            while (source.next() != null) {
+                count++;
+            }
+            if (count != total) {
+                throw new IllegalStateException("Unexpected streamed topic count: " + count);
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void checkPrefetchedPage() throws Exception {
+        // 下游取走第一个热点后停住（模拟模型调用），预取线程仍应读完整页并释放连接。
+        int total = 500;
+        String[] items = new String[total];
+        for (int i = 0; i < total; i++) {
+            items[i] = item("p-" + i, "热点" + i, "2024-10-01T09:00:00");
+        }
+        HttpServer server = startFixedServer(0, hotList(items));
+        CountDownLatch pageRead = new CountDownLatch(1);
+        WeiboHotSource weibo = new WeiboHotSource(HttpClient.newHttpClient(), endpoint(server), "token");
+        Source<HotTopic> observed = () -> {
+            HotTopic topic = weibo.next();
+            if (topic == null) {
+                pageRead.countDown();
+            }
+            return topic;
+        };
+        try (PrefetchingSource<HotTopic> source = new PrefetchingSource<>(observed, 64, 8)) {
+            if (source.next() == null) {
+                throw new IllegalStateException("Prefetched page is empty");
+            }
+            if (!pageRead.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Page was not drained while the consumer was busy");
+            }
+            if (drain(source).size() != total - 1) {
+                throw new IllegalStateException("Prefetched page lost topics");
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void checkFanIn() throws Exception {
+        HttpServer fast = startFixedServer(0, hotList(item("a-1", "快", "2024-10-01T09:00:00"),
+                item("a-2", "快二", "2024-10-01T09:00:00")));
+        HttpServer slow = startFixedServer(300, hotList(item("b-1", "慢", "2024-10-01T09:00:00")));
+        HttpClient http = FanInHotTopicSource.newHttpClient();
+        AtomicInteger zhihuCalls = new AtomicInteger();
+        HotTopicFetcher zhihu = new HotTopicFetcher() {
+            @Override
+            public String getPlatform() {
+                return "zhihu";
+            }
+
+            @Override
+            public CompletionStage<Void> fetchAsync(Consumer<? super HotTopic> consumer, Executor executor) {
+                return CompletableFuture.runAsync(() -> {
+                    sleep(300);
+                    if (zhihuCalls.incrementAndGet() == 1) {
+                        consumer.accept(topic("z-1", "09:00"));
+                    }
+                }, executor);
+            }
+        };
+        try (FanInHotTopicSource source = new FanInHotTopicSource(List.of(
+                new WeiboHotSource(http, endpoint(fast), "token"),
+                new WeiboHotSource(http, endpoint(slow), "token"),
+                zhihu))) {
+            // 三个平台并发拉取：快的平台先输出，整轮耗时接近最慢的一个而不是三者之和。
+            long started = System.nanoTime();
+            List<HotTopic> topics = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                topics.add(source.next());
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            List<String> ids = new ArrayList<>();
+            for (HotTopic topic : topics) {
+                ids.add(topic.getId() + "@" + topic.getSourcePlatform());
+            }
+            if (!ids.get(0).startsWith("a-") || !ids.containsAll(List.of("a-1@weibo", "a-2@weibo", "b-1@weibo",
+                    "z-1@zhihu")) || elapsedMillis >= 550) {
+                throw new IllegalStateException("Unexpected fan-in round: " + ids + " in " + elapsedMillis + "ms");
+            }
+            // 第二轮：两个微博接口返回 304，知乎没有新热点，本轮为空即结束。
+            if (source.next() != null || source.getFailures() != 0) {
+                throw new IllegalStateException("Second fan-in round should be empty");
+            }
+        } finally {
+            fast.stop(0);
+            slow.stop(0);
+        }
+
+        // 部分平台失败不影响其他平台；全部失败时抛出异常。
+        HotTopicFetcher broken = new HotTopicFetcher() {
+            @Override
+            public String getPlatform() {
+                return "broken";
+            }
+
+            @Override
+            public CompletionStage<Void> fetchAsync(Consumer<? super HotTopic> consumer, Executor executor) {
+                return CompletableFuture.failedFuture(new IOException("unavailable"));
+            }
+        };
+        zhihuCalls.set(0);
+        try (FanInHotTopicSource partial = new FanInHotTopicSource(List.of(broken, zhihu))) {
+            HotTopic topic = partial.next();
+            if (topic == null || !"zhihu".equals(topic.getSourcePlatform()) || partial.next() != null
+                    || partial.getFailures() != 2) {
+                throw new IllegalStateException("Partial failure was not isolated: " + partial.getFailures());
+            }
+        }
+        try (FanInHotTopicSource failing = new FanInHotTopicSource(List.of(broken))) {
+            failing.next();
+            throw new IllegalStateException("All-failed round should throw");
+        } catch (IOException expected) {
+            // 预期
+        }
+    }
+
+    private static HttpServer startFixedServer(long delayMillis, String body) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/weibo/hot", exchange -> {
+            if ("\"fixed\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            sleep(delayMillis);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", "\"fixed\"");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static URI endpoint(HttpServer server) {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + "/weibo/hot");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> drain(Source<HotTopic> source) throws Exception {
+        List<String> ids = new ArrayList<>();
+        HotTopic topic;
+        while ((topic = source.next()) != null) {
+            ids.add(topic.getId());
+        }
+        return ids;
+    }
+
+    private static void checkNearDuplicate() throws Exception {
+        HotTopic original = topic("n-1", "苹果秋季发布会：iPhone 17 正式亮相", "苹果在秋季发布会上推出 iPhone 17 系列新机。",
+                "苹果", "iPhone");
+        HotTopic rephrased = topic("n-2", "iPhone17 正式亮相，苹果秋季发布会", "苹果秋季发布会上推出ＩＰＨＯＮＥ 17系列新机",
+                "iPhone", "苹果");
+        HotTopic unrelated = topic("n-3", "台风登陆广东沿海", "多地发布暴雨预警，部分航班取消。", "台风", "天气");
+        if (NearDuplicateIndex.similarity(original, rephrased) < 0.6
+                || NearDuplicateIndex.similarity(original, unrelated) > 0.2) {
+            throw new IllegalStateException("Unexpected similarity: "
+                    + NearDuplicateIndex.similarity(original, rephrased) + ", "
+                    + NearDuplicateIndex.similarity(original, unrelated));
+        }
+
+        NearDuplicateIndex index = new NearDuplicateIndex(0.6, 100, Duration.ofMillis(100));
+        Iterator<HotTopic> input = List.of(original, rephrased, unrelated, original).iterator();
+        List<HotTopic[]> duplicates = new ArrayList<>();
+        NearDuplicateFilterSource source = new NearDuplicateFilterSource(() -> input.hasNext() ? input.next() : null,
+                index, (duplicate, kept) -> duplicates.add(new HotTopic[] {duplicate, kept}));
+        List<HotTopic> kept = new ArrayList<>();
+        for (HotTopic topic = source.next(); topic != null; topic = source.next()) {
+            kept.add(topic);
+        }
+        // 同一 topic_id 再次出现不算近似重复，是否重复处理交给 SeenTopicCache。
+        if (!List.of(original, unrelated, original).equals(kept) || source.getDropped() != 1
+                || duplicates.get(0)[0] != rephrased || duplicates.get(0)[1] != original) {
+            throw new IllegalStateException("Unexpected near-duplicate filtering: " + kept.size());
+        }
+        Thread.sleep(150);
+        if (index.addIfDistinct(rephrased) != null) {
+            throw new IllegalStateException("Expired topic still suppressed its near-duplicate");
+        }
+
+        // 放在轮询内层：一轮最后一项是重复热点时，本轮已取到的热点立即处理，不等下一个轮询间隔。
+        Iterator<HotTopic> round = List.of(original, rephrased).iterator();
+        NearDuplicateFilterSource filtered = new NearDuplicateFilterSource(
+                () -> round.hasNext() ? round.next() : null, new NearDuplicateIndex(0.6, 100, Duration.ofHours(1)));
+        List<Long> emittedAfter = new ArrayList<>();
+        try (PollingSource<HotTopic> polling = new PollingSource<>(filtered, Duration.ofSeconds(2),
+                Duration.ofSeconds(2))) {
+            long pollStarted = System.nanoTime();
+            new Pipeline<HotTopic, HotTopic>(polling, topic -> {
+                emittedAfter.add(System.nanoTime() - pollStarted);
+                polling.close();
+            }, List.of(), 100).run();
+        }
+        if (emittedAfter.size() != 1 || emittedAfter.get(0) > TimeUnit.SECONDS.toNanos(1)) {
+            throw new IllegalStateException("Round ending in a duplicate waited for the next poll: " + emittedAfter);
+        }
+
+        // 大量互不相似的热点：不应误判，单次查询远低于 1ms。
+        NearDuplicateIndex large = new NearDuplicateIndex(0.6, 20_000, Duration.ofHours(1));
+        Random random = new Random(7);
+        List<HotTopic> topics = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int j = 0; j < 16; j++) {
+                title.append((char) (0x4E00 + random.nextInt(0x5000)));
+            }
+            topics.add(topic("r-" + i, title.toString(), null));
+        }
+        long started = System.nanoTime();
+        for (HotTopic topic : topics) {
+            if (large.addIfDistinct(topic) != null) {
+                throw new IllegalStateException("Distinct topic flagged as duplicate: " + topic.getTitle());
+            }
+        }
+        long averageNanos = (System.nanoTime() - started) / topics.size();
+        if (large.size() != topics.size() || averageNanos > TimeUnit.MILLISECONDS.toNanos(1)) {
+            throw new IllegalStateException("Near-duplicate lookup too slow: " + averageNanos + "ns");
+        }
+    }
+
+    private static HotTopic topic(String id, String title, String description, String... keywords) {
+        HotTopic topic = new HotTopic();
+        topic.setId(id);
+        topic.setTitle(title);
+        topic.setDescription(description);
+        topic.setKeywords(List.of(keywords));
+        return topic;
+    }
+
+    private static HotTopic topic(String id, String updatedAt) {
+        HotTopic topic = new HotTopic();
+        topic.setId(id);
+        topic.setLastUpdatedAt(LocalDateTime.parse("2024-10-01T" + updatedAt + ":00"));
+        return topic;
+    }
+
+    private static String hotList(String... items) {
+        return "{\"data\": [" + String.join(",", items) + "]}";
+    }
+
+    private static String item(String id, String title, String updatedAt) {
+        return "{\"topic_id\": \"" + id + "\", \"title\": \"" + title + "\", \"hot_score\": 100.5,"
+                + " \"mention_count\": 10, \"tags\": [\"a\", \"b\"], \"updated_at\": \"" + updatedAt + "\"}";
+    }
+}
@@ -0,0 +1,91 @@
+package com.caas.llm;
+
+import java.time.LocalDateTime;
+
+/**
+ * 批量调用任务的状态快照，由 {@link LlmClient#submitBatch(java.util.List)} 与 {@link LlmClient#pollBatch(String)} 返回。
+ */
+public class LlmBatchJob {
+
+    private String jobId;
+    private Status status;
+    private Integer requestCount;
+    private Integer completedCount;
+    private Integer failedCount;
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+
+    /**
+     * 任务是否已经结束（成功、失败或过期），结束后状态不再变化。
+     */
+    public boolean isTerminal() {
+        return status == Status.COMPLETED || status == Status.FAILED || status == Status.EXPIRED;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getRequestCount() {
+        return requestCount;
+    }
+
+    public void setRequestCount(Integer requestCount) {
+        this.requestCount = requestCount;
+    }
+
+    public Integer getCompletedCount() {
+        return completedCount;
+    }
+
+    public void setCompletedCount(Integer completedCount) {
+        this.completedCount = completedCount;
+    }
+
+    public Integer getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(Integer failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(LocalDateTime submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    /**
+     * 任务状态。
+     */
+    public enum Status {
+        SUBMITTED,
+        IN_PROGRESS,
+        COMPLETED,
+        FAILED,
+        EXPIRED
+    }
+}
@@ -0,0 +1,63 @@
+package com.caas.llm;
+
+/**
+ * 批量调用中单个请求的结果：成功时携带响应，失败时携带状态码与错误信息。
+ */
+public class LlmBatchResult {
+
+    private String requestId;
+    private LlmResponse response;
+    private Integer statusCode;
+    private String errorMessage;
+
+    public static LlmBatchResult success(String requestId, LlmResponse response) {
+        LlmBatchResult result = new LlmBatchResult();
+        result.setRequestId(requestId);
+        result.setResponse(response);
+        return result;
+    }
+
+    public static LlmBatchResult failure(String requestId, int statusCode, String errorMessage) {
+        LlmBatchResult result = new LlmBatchResult();
+        result.setRequestId(requestId);
+        result.setStatusCode(statusCode);
+        result.setErrorMessage(errorMessage);
+        return result;
+    }
+
+    public boolean isSuccess() {
+        return response != null && errorMessage == null;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public LlmResponse getResponse() {
+        return response;
+    }
+
+    public void setResponse(LlmResponse response) {
+        this.response = response;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(Integer statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,77 @@
+package com.caas.llm;
+
+/**
+ * 流式调用中的一个增量片段。
+ * <p>
+ * 每个片段携带一段新生成的文本；最后一个片段的 {@link #isLast()} 为 true，并附带结束原因与用量统计。
+ */
+public class LlmChunk {
+
+    private String requestId;
+    private int index;
+    private String delta;
+    private boolean last;
+    private String finishReason;
+    private LlmResponse.Usage usage;
+
+    /**
+     * 以完整响应构造单个结束片段，供不支持流式输出的实现或缓存命中时使用。
+     */
+    public static LlmChunk fromResponse(LlmResponse response) {
+        LlmChunk chunk = new LlmChunk();
+        chunk.setRequestId(response.getRequestId());
+        chunk.setDelta(response.getContent());
+        chunk.setLast(true);
+        chunk.setFinishReason(response.getFinishReason());
+        chunk.setUsage(response.getUsage());
+        return chunk;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getDelta() {
+        return delta;
+    }
+
+    public void setDelta(String delta) {
+        this.delta = delta;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+
+    public void setLast(boolean last) {
+        this.last = last;
+    }
+
+    public String getFinishReason() {
+        return finishReason;
+    }
+
+    public void setFinishReason(String finishReason) {
+        this.finishReason = finishReason;
+    }
+
+    public LlmResponse.Usage getUsage() {
+        return usage;
+    }
+
+    public void setUsage(LlmResponse.Usage usage) {
+        this.usage = usage;
+    }
+}
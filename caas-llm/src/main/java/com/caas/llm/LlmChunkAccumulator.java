@@ -0,0 +1,60 @@
+package com.caas.llm;
+
+import java.util.function.Consumer;
+
+/**
+ * 将流式片段拼接为完整响应，供 {@link LlmClient#stream(LlmRequest, Consumer)} 的实现复用。
+ * <p>
+ * 每个片段先交给下游消费者，再追加到内部缓冲区；非线程安全，片段需按顺序依次传入。
+ */
+public class LlmChunkAccumulator implements Consumer<LlmChunk> {
+
+    private final Consumer<? super LlmChunk> downstream;
+    private final StringBuilder content = new StringBuilder();
+    private String requestId;
+    private String finishReason;
+    private LlmResponse.Usage usage;
+    private int chunks;
+
+    public LlmChunkAccumulator(Consumer<? super LlmChunk> downstream) {
+        this.downstream = downstream == null ? chunk -> {
+        } : downstream;
+    }
+
+    @Override
+    public void accept(LlmChunk chunk) {
+        downstream.accept(chunk);
+        chunks++;
+        if (chunk.getRequestId() != null) {
+            requestId = chunk.getRequestId();
+        }
+        if (chunk.getDelta() != null) {
+            content.append(chunk.getDelta());
+        }
+        if (chunk.getFinishReason() != null) {
+            finishReason = chunk.getFinishReason();
+        }
+        if (chunk.getUsage() != null) {
+            usage = chunk.getUsage();
+        }
+    }
+
+    /**
+     * 已接收的片段数量。
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * 以目前接收到的片段构建响应。
+     */
+    public LlmResponse toResponse() {
+        LlmResponse response = new LlmResponse();
+        response.setRequestId(requestId);
+        response.setContent(content.toString());
+        response.setFinishReason(finishReason);
+        response.setUsage(usage);
+        return response;
+    }
+}
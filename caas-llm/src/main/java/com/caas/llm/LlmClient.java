@@ -1,5 +1,14 @@
 package com.caas.llm;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
 /**
  * 大模型客户端抽象，负责将请求转换为模型调用并返回结果。
  */
@@ -13,4 +22,165 @@ public interface LlmClient {
      * @throws Exception 调用失败时抛出
      */
     LlmResponse generate(LlmRequest request) throws Exception;
+
+    /**
+     * 异步执行一次模型调用。
+     * <p>
+     * 默认在新的虚拟线程上执行 {@link #generate(LlmRequest)}，取消返回的阶段会中断该线程；
+     * 支持非阻塞 I/O 的实现应重写本方法。
+     *
+     * @param request 请求对象
+     * @return 完成时携带响应对象的阶段；调用失败时以异常完成
+     */
+    default CompletionStage<LlmResponse> generateAsync(LlmRequest request) {
+        CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        Thread thread = Thread.ofVirtual().name("caas-llm-call").start(() -> {
+            try {
+                result.complete(generate(request));
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                thread.interrupt();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 以流式方式执行一次模型调用，生成的文本按片段依次交给 consumer。
+     * <p>
+     * 片段在调用线程上按顺序回调，最后一个片段携带结束原因与用量统计；返回值为拼接后的完整响应。
+     * 默认调用 {@link #generate(LlmRequest)}，并把完整响应作为单个结束片段回调；支持流式输出的实现应重写本方法，
+     * 可借助 {@link LlmChunkAccumulator} 拼接返回值。
+     *
+     * @param request  请求对象
+     * @param consumer 片段消费者
+     * @return 完整响应对象
+     * @throws Exception 调用失败或 consumer 抛出异常时抛出
+     */
+    default LlmResponse stream(LlmRequest request, Consumer<? super LlmChunk> consumer) throws Exception {
+        LlmResponse response = generate(request);
+        consumer.accept(LlmChunk.fromResponse(response));
+        return response;
+    }
+
+    /**
+     * 异步执行一次流式调用。
+     * <p>
+     * 默认在新的虚拟线程上执行 {@link #stream(LlmRequest, Consumer)}，片段在该线程上回调；取消返回的阶段会中断该线程。
+     *
+     * @param request  请求对象
+     * @param consumer 片段消费者
+     * @return 完成时携带完整响应的阶段；调用失败时以异常完成
+     */
+    default CompletionStage<LlmResponse> streamAsync(LlmRequest request, Consumer<? super LlmChunk> consumer) {
+        CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        Thread thread = Thread.ofVirtual().name("caas-llm-stream").start(() -> {
+            try {
+                result.complete(stream(request, consumer));
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                thread.interrupt();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 是否支持提交/轮询式的批量接口。
+     */
+    default boolean supportsBatch() {
+        return false;
+    }
+
+    /**
+     * 提交一批请求，立即返回任务快照。请求的 requestId 必须非空且在批内唯一，用于回填结果。
+     *
+     * @throws UnsupportedOperationException 不支持批量接口时抛出
+     */
+    default LlmBatchJob submitBatch(List<LlmRequest> requests) throws Exception {
+        throw new UnsupportedOperationException("批量接口不可用：" + getClass().getName());
+    }
+
+    /**
+     * 查询批量任务的最新状态。
+     *
+     * @throws UnsupportedOperationException 不支持批量接口时抛出
+     */
+    default LlmBatchJob pollBatch(String jobId) throws Exception {
+        throw new UnsupportedOperationException("批量接口不可用：" + getClass().getName());
+    }
+
+    /**
+     * 读取已完成批量任务的逐条结果，顺序不保证与提交顺序一致。
+     *
+     * @throws UnsupportedOperationException 不支持批量接口时抛出
+     */
+    default List<LlmBatchResult> getBatchResults(String jobId) throws Exception {
+        throw new UnsupportedOperationException("批量接口不可用：" + getClass().getName());
+    }
+
+    /**
+     * 批量执行一组请求并阻塞等待全部结果，返回值与 requests 一一对应、顺序一致。
+     * <p>
+     * 支持批量接口时提交任务并按 pollInterval 轮询直到结束；否则逐条调用 {@link #generate(LlmRequest)}。
+     * 单个请求失败体现在对应的 {@link LlmBatchResult} 中，不会中断其余请求。
+     *
+     * @param requests     请求列表，requestId 必须非空且唯一
+     * @param pollInterval 轮询间隔
+     * @return 与请求顺序一致的结果列表
+     * @throws Exception 提交或轮询失败、任务整体失败或过期时抛出
+     */
+    default List<LlmBatchResult> generateBatch(List<LlmRequest> requests, Duration pollInterval) throws Exception {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String requestId = requests.get(i).getRequestId();
+            if (requestId == null || positions.put(requestId, i) != null) {
+                throw new IllegalArgumentException("批量请求的 requestId 必须非空且唯一：" + requestId);
+            }
+        }
+        List<LlmBatchResult> ordered = new ArrayList<>(requests.size());
+        if (!supportsBatch()) {
+            for (LlmRequest request : requests) {
+                try {
+                    ordered.add(LlmBatchResult.success(request.getRequestId(), generate(request)));
+                } catch (LlmException ex) {
+                    ordered.add(LlmBatchResult.failure(request.getRequestId(), ex.getStatusCode(), ex.getMessage()));
+                } catch (InterruptedException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    ordered.add(LlmBatchResult.failure(request.getRequestId(), 500, String.valueOf(ex)));
+                }
+            }
+            return ordered;
+        }
+
+        LlmBatchJob job = submitBatch(requests);
+        while (!job.isTerminal()) {
+            Thread.sleep(pollInterval.toMillis());
+            job = pollBatch(job.getJobId());
+        }
+        if (job.getStatus() != LlmBatchJob.Status.COMPLETED) {
+            throw new LlmException("批量任务 " + job.getJobId() + " 未完成，状态为 " + job.getStatus(), 500);
+        }
+        LlmBatchResult[] slots = new LlmBatchResult[requests.size()];
+        for (LlmBatchResult result : getBatchResults(job.getJobId())) {
+            Integer position = positions.get(result.getRequestId());
+            if (position != null) {
+                slots[position] = result;
+            }
+        }
+        for (int i = 0; i < slots.length; i++) {
+            String requestId = requests.get(i).getRequestId();
+            ordered.add(slots[i] != null ? slots[i] : LlmBatchResult.failure(requestId, 500, "批量任务缺少该请求的结果"));
+        }
+        return ordered;
+    }
 }
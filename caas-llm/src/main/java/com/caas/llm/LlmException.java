@@ -0,0 +1,56 @@
+package com.caas.llm;
+
+import com.caas.pipeline.failure.HasStatusCode;
+
+import java.time.Duration;
+
+/**
+ * 模型服务返回的调用失败，携带 HTTP 风格的状态码与服务端建议的重试等待时间。
+ * <p>
+ * {@link LlmClient} 实现应把限流（429）与服务端错误包装为本异常，便于上层装饰器区分处理。
+ */
+public class LlmException extends Exception implements HasStatusCode {
+
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final Duration retryAfter;
+
+    public LlmException(String message, int statusCode) {
+        this(message, statusCode, null, null);
+    }
+
+    /**
+     * @param retryAfter 服务端建议的重试等待时间，可为 null
+     */
+    public LlmException(String message, int statusCode, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * 是否为限流错误（429）。
+     */
+    public boolean isRateLimited() {
+        return statusCode == TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * 是否值得重试：限流与 5xx 服务端错误。
+     */
+    public boolean isRetryable() {
+        return isRateLimited() || statusCode >= 500;
+    }
+}
@@ -1,26 +1,55 @@
 package com.caas.llm;
 
-import com.caas.pipeline.spi.Processor;
+import com.caas.llm.token.HeuristicTokenCounter;
+import com.caas.llm.token.TokenCounter;
+import com.caas.pipeline.spi.AsyncProcessor;
+import com.caas.pipeline.spi.BatchProcessor;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
 
 /**
  * 基于模板方法模式的大模型处理器抽象类。
  * 子类只需负责构建 Prompt 与解析返回内容。
+ * <p>
+ * 同时支持阻塞调用与异步调用，异步调用通过 {@link LlmClient#generateAsync(LlmRequest)} 完成。
+ * 开启流式模式后改用 {@link LlmClient#stream} / {@link LlmClient#streamAsync}，生成过程中的每个片段都会回调
+ * {@link #onChunk(Object, PromptVariant, LlmChunk)}，完整响应仍交给 {@link #parseResponse} 解析。
+ * <p>
+ * 设置了上下文窗口（{@link #setContextWindow}）或输入上限（{@link #setMaxInputTokens}）时，子类可通过
+ * {@link #userPromptBudget(String)} 取得 userPrompt 的 Token 预算并据此截短低优先级字段；
+ * 构建出的请求仍超出限制时，不调用模型，直接抛出状态码 400 的 {@link LlmException}。
  */
-public abstract class LlmProcessor<I, O> implements Processor<I, O> {
+public abstract class LlmProcessor<I, O> implements AsyncProcessor<I, O> {
 
     private final LlmClient llmClient;
     private final Double temperature;
     private final Integer maxTokens;
+    private final boolean streaming;
+    private TokenCounter tokenCounter = HeuristicTokenCounter.INSTANCE;
+    private Integer contextWindow;
+    private Integer maxInputTokens;
 
-    protected LlmProcessor(LlmClient llmClient, Double temperature, Integer maxTokens) {
+    protected LlmProcessor(LlmClient llmClient, Double temperature, Integer maxTokens, boolean streaming) {
         this.llmClient = Objects.requireNonNull(llmClient, "llmClient");
         this.temperature = temperature;
         this.maxTokens = maxTokens;
+        this.streaming = streaming;
+    }
+
+    protected LlmProcessor(LlmClient llmClient, Double temperature, Integer maxTokens) {
+        this(llmClient, temperature, maxTokens, false);
     }
 
     protected LlmProcessor(LlmClient llmClient) {
@@ -35,10 +64,168 @@ public abstract class LlmProcessor<I, O> implements Processor<I, O> {
 
         // 2) 基于选中的 Prompt 构建请求并调用 LLM。
         LlmRequest request = buildRequest(input, selected);
-        LlmResponse response = llmClient.generate(request);
+        checkBudget(request);
+        if (!streaming) {
+            LlmResponse response = llmClient.generate(request);
+
+            // 3) 解析响应，返回业务结果。
+            return parseResponse(response, input, selected);
+        }
+        IncrementalParser<O> parser = newIncrementalParser(input, selected);
+        LlmResponse response = llmClient.stream(request, chunk -> dispatch(input, selected, parser, chunk));
+        return parser == null ? parseResponse(response, input, selected) : parser.finish(response);
+    }
+
+    @Override
+    public final CompletionStage<O> processAsync(I input) {
+        PromptVariant selected;
+        LlmRequest request;
+        try {
+            selected = selectPromptVariant(buildPromptVariants(input), input);
+            request = buildRequest(input, selected);
+            checkBudget(request);
+        } catch (RuntimeException | LlmException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        IncrementalParser<O> parser;
+        try {
+            parser = streaming ? newIncrementalParser(input, selected) : null;
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        CompletionStage<LlmResponse> call = streaming
+                ? llmClient.streamAsync(request, chunk -> dispatch(input, selected, parser, chunk))
+                : llmClient.generateAsync(request);
+        return call.thenApply(response -> {
+            try {
+                return parser == null ? parseResponse(response, input, selected) : parser.finish(response);
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        });
+    }
+
+    /**
+     * 批量模式视图：把流水线的一批输入一次性交给 {@link LlmClient#generateBatch}，再按 requestId 把结果对应回输入。
+     * <p>
+     * 适合对延迟不敏感的离线任务（如每日内容包），可使用服务商带折扣的批量接口；客户端不支持批量接口时逐条调用。
+     * 任一条失败（含超出 Token 预算）时整批抛出该异常，其余已成功的结果暂存在视图中：流水线按重试策略重试整批、
+     * 或配置了死信时逐条隔离，只有失败项会重新提交，已成功的项直接取回暂存结果，不会再次计费。
+     * 暂存结果在交出后即移除；流水线因失败中止时，随视图一起丢弃。
+     *
+     * @param pollInterval 轮询批量任务状态的间隔
+     */
+    public BatchProcessor<I, O> asBatch(Duration pollInterval) {
+        return new BatchMode(Objects.requireNonNull(pollInterval, "pollInterval"));
+    }
+
+    /**
+     * 是否以流式方式调用模型。
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * 模型的上下文窗口（输入与输出合计的 Token 数），null 表示不限制。需在处理开始前设置。
+     */
+    public void setContextWindow(Integer contextWindow) {
+        if (contextWindow != null && contextWindow <= 0) {
+            throw new IllegalArgumentException("contextWindow must be positive");
+        }
+        this.contextWindow = contextWindow;
+    }
+
+    public Integer getContextWindow() {
+        return contextWindow;
+    }
+
+    /**
+     * 单次调用 Prompt（systemPrompt 与 userPrompt 合计）的 Token 上限，用于控制成本与延迟，null 表示不限制。
+     * 需在处理开始前设置。
+     */
+    public void setMaxInputTokens(Integer maxInputTokens) {
+        if (maxInputTokens != null && maxInputTokens <= 0) {
+            throw new IllegalArgumentException("maxInputTokens must be positive");
+        }
+        this.maxInputTokens = maxInputTokens;
+    }
 
-        // 3) 解析响应，返回业务结果。
-        return parseResponse(response, input, selected);
+    public Integer getMaxInputTokens() {
+        return maxInputTokens;
+    }
+
+    /**
+     * Token 计数器，默认为 {@link HeuristicTokenCounter}；接入模型分词器后可替换为精确计数。需在处理开始前设置。
+     */
+    public void setTokenCounter(TokenCounter tokenCounter) {
+        this.tokenCounter = Objects.requireNonNull(tokenCounter, "tokenCounter");
+    }
+
+    public TokenCounter getTokenCounter() {
+        return tokenCounter;
+    }
+
+    /**
+     * userPrompt 可用的 Token 数：输入上限与（上下文窗口 - 输出预留）中较小者，再减去 systemPrompt。
+     * 输出预留取 maxTokens，未设置时取 {@link TokenCounter#DEFAULT_COMPLETION_TOKENS}。
+     * 两项限制都未设置时返回 {@link Integer#MAX_VALUE}。
+     */
+    protected int userPromptBudget(String systemPrompt) {
+        long budget = Integer.MAX_VALUE;
+        if (maxInputTokens != null) {
+            budget = maxInputTokens;
+        }
+        if (contextWindow != null) {
+            int completion = maxTokens == null ? TokenCounter.DEFAULT_COMPLETION_TOKENS : maxTokens;
+            budget = Math.min(budget, (long) contextWindow - completion);
+        }
+        if (budget == Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.max(0, budget - tokenCounter.count(systemPrompt));
+    }
+
+    private void checkBudget(LlmRequest request) throws LlmException {
+        if (contextWindow == null && maxInputTokens == null) {
+            return;
+        }
+        int promptTokens = tokenCounter.countPrompt(request);
+        if (maxInputTokens != null && promptTokens > maxInputTokens) {
+            throw new LlmException("Prompt 约 " + promptTokens + " 个 Token，超出输入上限 " + maxInputTokens, 400);
+        }
+        int requestTokens = tokenCounter.countRequest(request);
+        if (contextWindow != null && requestTokens > contextWindow) {
+            throw new LlmException("Prompt 与输出预留约 " + requestTokens + " 个 Token，超出上下文窗口 "
+                    + contextWindow, 400);
+        }
+    }
+
+    /**
+     * 流式模式下每收到一个片段回调一次，默认不做处理。
+     * <p>
+     * 片段按生成顺序在调用线程上回调，子类可借此增量解析或提前向下游推送部分结果；抛出异常会中止本次调用。
+     */
+    protected void onChunk(I input, PromptVariant variant, LlmChunk chunk) {
+    }
+
+    /**
+     * 流式模式下为一次调用创建增量解析器，默认返回 null，即在调用结束后用 {@link #parseResponse} 解析完整响应。
+     * <p>
+     * 返回解析器时，每个片段在 {@link #onChunk} 之后交给解析器，调用结束后由 {@link IncrementalParser#finish}
+     * 直接产出结果，省去对完整响应的再次解析。
+     */
+    protected IncrementalParser<O> newIncrementalParser(I input, PromptVariant variant) {
+        return null;
+    }
+
+    private void dispatch(I input, PromptVariant variant, IncrementalParser<O> parser, LlmChunk chunk) {
+        onChunk(input, variant, chunk);
+        if (parser != null) {
+            parser.accept(chunk);
+        }
     }
 
     /**
@@ -73,6 +260,7 @@ public abstract class LlmProcessor<I, O> implements Processor<I, O> {
         request.setUserPrompt(variant.getUserPrompt());
         request.setTemperature(temperature);
         request.setMaxTokens(maxTokens);
+        request.setCacheablePrefixLength(variant.getCacheablePrefixLength());
         request.setAttributes(buildAttributes(input, variant));
         return request;
     }
@@ -95,18 +283,130 @@ public abstract class LlmProcessor<I, O> implements Processor<I, O> {
     protected abstract O parseResponse(LlmResponse response, I input, PromptVariant variant) throws Exception;
 
     /**
-     * Prompt 方案，支持 systemPrompt 与 userPrompt。
+     * 批量模式，见 {@link #asBatch(Duration)}。
+     */
+    private final class BatchMode implements BatchProcessor<I, O> {
+
+        private final Duration pollInterval;
+        /**
+         * 批内部分失败时已成功、尚未交出的结果，按输入对象的同一性对应。
+         */
+        private final Map<I, O> completed = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        private BatchMode(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        @Override
+        public List<O> processBatch(List<I> inputs) throws Exception {
+            int size = inputs.size();
+            List<O> outputs = new ArrayList<>(Collections.nCopies(size, null));
+            boolean[] succeeded = new boolean[size];
+            List<Integer> pending = new ArrayList<>(size);
+            List<PromptVariant> variants = new ArrayList<>(size);
+            List<LlmRequest> requests = new ArrayList<>(size);
+            Exception failure = null;
+            for (int i = 0; i < size; i++) {
+                I input = inputs.get(i);
+                if (completed.containsKey(input)) {
+                    outputs.set(i, completed.remove(input));
+                    succeeded[i] = true;
+                    continue;
+                }
+                try {
+                    PromptVariant selected = selectPromptVariant(buildPromptVariants(input), input);
+                    LlmRequest request = buildRequest(input, selected);
+                    checkBudget(request);
+                    if (request.getRequestId() == null) {
+                        request.setRequestId(UUID.randomUUID().toString());
+                    }
+                    pending.add(i);
+                    variants.add(selected);
+                    requests.add(request);
+                } catch (Exception ex) {
+                    failure = addFailure(failure, ex);
+                }
+            }
+
+            if (!requests.isEmpty()) {
+                Map<String, LlmBatchResult> results = new HashMap<>();
+                for (LlmBatchResult result : llmClient.generateBatch(requests, pollInterval)) {
+                    results.put(result.getRequestId(), result);
+                }
+                for (int j = 0; j < requests.size(); j++) {
+                    int index = pending.get(j);
+                    String requestId = requests.get(j).getRequestId();
+                    LlmBatchResult result = results.get(requestId);
+                    try {
+                        if (result == null || !result.isSuccess()) {
+                            int statusCode = result == null || result.getStatusCode() == null
+                                    ? 500 : result.getStatusCode();
+                            String message = result == null ? "缺少结果" : result.getErrorMessage();
+                            throw new LlmException("批量请求 " + requestId + " 失败：" + message, statusCode);
+                        }
+                        outputs.set(index, parseResponse(result.getResponse(), inputs.get(index), variants.get(j)));
+                        succeeded[index] = true;
+                    } catch (Exception ex) {
+                        failure = addFailure(failure, ex);
+                    }
+                }
+            }
+
+            if (failure != null) {
+                for (int i = 0; i < size; i++) {
+                    if (succeeded[i]) {
+                        completed.put(inputs.get(i), outputs.get(i));
+                    }
+                }
+                throw failure;
+            }
+            return outputs;
+        }
+
+        private Exception addFailure(Exception first, Exception next) {
+            if (first == null) {
+                return next;
+            }
+            first.addSuppressed(next);
+            return first;
+        }
+    }
+
+    /**
+     * 增量解析器，一个实例只服务一次调用。
+     */
+    protected interface IncrementalParser<O> extends Consumer<LlmChunk> {
+
+        /**
+         * 所有片段接收完毕后产出业务结果。
+         *
+         * @param response 拼接后的完整响应，可用于读取结束原因与用量
+         */
+        O finish(LlmResponse response) throws Exception;
+    }
+
+    /**
+     * Prompt 方案，支持 systemPrompt 与 userPrompt，可标注 userPrompt 的静态前缀长度。
      */
     protected static class PromptVariant {
 
         private final String id;
         private final String systemPrompt;
         private final String userPrompt;
+        private final Integer cacheablePrefixLength;
 
         public PromptVariant(String id, String systemPrompt, String userPrompt) {
+            this(id, systemPrompt, userPrompt, null);
+        }
+
+        /**
+         * @param cacheablePrefixLength userPrompt 开头在各次调用间不变的字符数，见 {@link LlmRequest#getCacheablePrefixLength()}
+         */
+        public PromptVariant(String id, String systemPrompt, String userPrompt, Integer cacheablePrefixLength) {
             this.id = id;
             this.systemPrompt = systemPrompt;
             this.userPrompt = userPrompt;
+            this.cacheablePrefixLength = cacheablePrefixLength;
         }
 
         public String getId() {
@@ -120,5 +420,9 @@ public abstract class LlmProcessor<I, O> implements Processor<I, O> {
         public String getUserPrompt() {
             return userPrompt;
         }
+
+        public Integer getCacheablePrefixLength() {
+            return cacheablePrefixLength;
+        }
     }
 }
@@ -15,6 +15,7 @@ public class LlmRequest {
     private Integer maxTokens;
     private Double topP;
     private List<String> stopSequences;
+    private Integer cacheablePrefixLength;
     private Map<String, Object> attributes;
 
     public String getRequestId() {
@@ -73,6 +74,17 @@ public class LlmRequest {
         this.stopSequences = stopSequences;
     }
 
+    /**
+     * userPrompt 开头在不同调用之间保持不变的字符数，连同 systemPrompt 可由服务商做 Prompt 缓存；null 表示未标注。
+     */
+    public Integer getCacheablePrefixLength() {
+        return cacheablePrefixLength;
+    }
+
+    public void setCacheablePrefixLength(Integer cacheablePrefixLength) {
+        this.cacheablePrefixLength = cacheablePrefixLength;
+    }
+
     public Map<String, Object> getAttributes() {
         return attributes;
     }
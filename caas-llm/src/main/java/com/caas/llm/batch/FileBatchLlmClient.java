@@ -0,0 +1,166 @@
+package com.caas.llm.batch;
+
+import com.alibaba.fastjson.JSON;
+import com.caas.llm.LlmBatchJob;
+import com.caas.llm.LlmBatchResult;
+import com.caas.llm.LlmClient;
+import com.caas.llm.LlmException;
+import com.caas.llm.LlmRequest;
+import com.caas.llm.LlmResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * 基于本地目录的批量接口替身，模拟服务商"提交—轮询—取结果"的批量端点，用于测试与离线演练。
+ * <p>
+ * 每个任务对应 {@code <目录>/<jobId>/} 下的三个文件：{@code requests.jsonl}（提交的请求）、{@code job.json}（任务状态）
+ * 与 {@code results.jsonl}（逐条结果）。提交后经过 completionDelay，下一次轮询时用 worker 逐条执行并写出结果，
+ * 状态全部落盘，进程重启后仍可继续轮询。单条请求失败记录在结果中，不影响其余请求。
+ */
+public class FileBatchLlmClient implements LlmClient {
+
+    private static final String REQUESTS_FILE = "requests.jsonl";
+    private static final String JOB_FILE = "job.json";
+    private static final String RESULTS_FILE = "results.jsonl";
+
+    private final Path directory;
+    private final LlmClient worker;
+    private final Duration completionDelay;
+
+    /**
+     * @param worker          实际生成结果的客户端，单条调用也直接交给它
+     * @param completionDelay 提交后至少经过多久任务才会完成
+     */
+    public FileBatchLlmClient(Path directory, LlmClient worker, Duration completionDelay) throws IOException {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        this.worker = Objects.requireNonNull(worker, "worker");
+        this.completionDelay = Objects.requireNonNull(completionDelay, "completionDelay");
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public LlmResponse generate(LlmRequest request) throws Exception {
+        return worker.generate(request);
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return true;
+    }
+
+    @Override
+    public LlmBatchJob submitBatch(List<LlmRequest> requests) throws IOException {
+        String jobId = "batch-" + UUID.randomUUID();
+        Path jobDirectory = directory.resolve(jobId);
+        Files.createDirectories(jobDirectory);
+
+        StringBuilder lines = new StringBuilder();
+        for (LlmRequest request : requests) {
+            lines.append(JSON.toJSONString(request)).append('\n');
+        }
+        write(jobDirectory.resolve(REQUESTS_FILE), lines.toString());
+
+        LlmBatchJob job = new LlmBatchJob();
+        job.setJobId(jobId);
+        job.setStatus(LlmBatchJob.Status.SUBMITTED);
+        job.setRequestCount(requests.size());
+        job.setCompletedCount(0);
+        job.setFailedCount(0);
+        job.setSubmittedAt(LocalDateTime.now());
+        write(jobDirectory.resolve(JOB_FILE), JSON.toJSONString(job));
+        return job;
+    }
+
+    @Override
+    public synchronized LlmBatchJob pollBatch(String jobId) throws Exception {
+        Path jobDirectory = jobDirectory(jobId);
+        LlmBatchJob job = JSON.parseObject(read(jobDirectory.resolve(JOB_FILE)), LlmBatchJob.class);
+        if (job.isTerminal() || LocalDateTime.now().isBefore(job.getSubmittedAt().plus(completionDelay))) {
+            return job;
+        }
+
+        List<LlmBatchResult> results = new ArrayList<>(job.getRequestCount());
+        int failed = 0;
+        StringBuilder lines = new StringBuilder();
+        for (String line : read(jobDirectory.resolve(REQUESTS_FILE)).split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            LlmRequest request = JSON.parseObject(line, LlmRequest.class);
+            LlmBatchResult result;
+            try {
+                LlmResponse response = worker.generate(request);
+                response.setRequestId(request.getRequestId());
+                result = LlmBatchResult.success(request.getRequestId(), response);
+            } catch (LlmException ex) {
+                result = LlmBatchResult.failure(request.getRequestId(), ex.getStatusCode(), ex.getMessage());
+            } catch (InterruptedException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                result = LlmBatchResult.failure(request.getRequestId(), 500, String.valueOf(ex));
+            }
+            if (!result.isSuccess()) {
+                failed++;
+            }
+            results.add(result);
+            lines.append(JSON.toJSONString(result)).append('\n');
+        }
+        write(jobDirectory.resolve(RESULTS_FILE), lines.toString());
+
+        job.setStatus(LlmBatchJob.Status.COMPLETED);
+        job.setCompletedCount(results.size() - failed);
+        job.setFailedCount(failed);
+        job.setCompletedAt(LocalDateTime.now());
+        write(jobDirectory.resolve(JOB_FILE), JSON.toJSONString(job));
+        return job;
+    }
+
+    @Override
+    public List<LlmBatchResult> getBatchResults(String jobId) throws IOException {
+        Path jobDirectory = jobDirectory(jobId);
+        List<LlmBatchResult> results = new ArrayList<>();
+        for (String line : read(jobDirectory.resolve(RESULTS_FILE)).split("\n")) {
+            if (!line.isEmpty()) {
+                results.add(JSON.parseObject(line, LlmBatchResult.class));
+            }
+        }
+        return results;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private Path jobDirectory(String jobId) throws NoSuchFileException {
+        Path jobDirectory = directory.resolve(jobId).normalize();
+        if (!jobDirectory.startsWith(directory.normalize()) || !Files.isDirectory(jobDirectory)) {
+            throw new NoSuchFileException("批量任务不存在：" + jobId);
+        }
+        return jobDirectory;
+    }
+
+    private static String read(Path file) throws IOException {
+        return Files.readString(file, StandardCharsets.UTF_8);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.caas.llm.cache;
+
+import com.caas.llm.LlmBatchJob;
+import com.caas.llm.LlmBatchResult;
+import com.caas.llm.LlmChunk;
+import com.caas.llm.LlmClient;
+import com.caas.llm.LlmRequest;
+import com.caas.llm.LlmResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 带响应缓存的 {@link LlmClient} 装饰器：内存 LRU 在前，可选的磁盘层在后。
+ * <p>
+ * 缓存键见 {@link LlmRequestKey}。命中内存直接返回；命中磁盘时回填内存；都未命中才调用被装饰的客户端，
+ * 成功后写入两层。两层共用同一个 TTL。返回的响应均为副本，requestId 改写为本次请求的值，调用方修改响应不会污染缓存。
+ * 磁盘读写失败只计入 {@link #getDiskErrors()}，不影响本次调用。
+ */
+public class CachingLlmClient implements LlmClient {
+
+    private final LlmClient delegate;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final DiskResponseStore diskStore;
+    private final LinkedHashMap<LlmRequestKey, Entry> memory;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder diskErrors = new LongAdder();
+
+    public CachingLlmClient(LlmClient delegate, int maxEntries, Duration ttl) {
+        this(delegate, maxEntries, ttl, null);
+    }
+
+    /**
+     * @param diskStore 磁盘缓存层，为 null 时只使用内存缓存
+     */
+    public CachingLlmClient(LlmClient delegate, int maxEntries, Duration ttl, DiskResponseStore diskStore) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        Objects.requireNonNull(ttl, "ttl");
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.diskStore = diskStore;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LlmRequestKey, Entry> eldest) {
+                return size() > CachingLlmClient.this.maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public LlmResponse generate(LlmRequest request) throws Exception {
+        LlmRequestKey key = LlmRequestKey.of(request);
+        LlmResponse cached = lookup(key);
+        if (cached != null) {
+            return LlmResponses.copyFor(cached, request);
+        }
+        LlmResponse response = delegate.generate(request);
+        store(key, response);
+        return response;
+    }
+
+    @Override
+    public CompletionStage<LlmResponse> generateAsync(LlmRequest request) {
+        LlmRequestKey key = LlmRequestKey.of(request);
+        LlmResponse cached = lookup(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(LlmResponses.copyFor(cached, request));
+        }
+        return delegate.generateAsync(request).thenApply(response -> {
+            store(key, response);
+            return response;
+        });
+    }
+
+    /**
+     * 命中缓存时把完整响应作为单个结束片段回调；未命中时透传被装饰客户端的流式输出，完成后写入缓存。
+     */
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<? super LlmChunk> consumer) throws Exception {
+        LlmRequestKey key = LlmRequestKey.of(request);
+        LlmResponse cached = lookup(key);
+        if (cached != null) {
+            LlmResponse response = LlmResponses.copyFor(cached, request);
+            consumer.accept(LlmChunk.fromResponse(response));
+            return response;
+        }
+        LlmResponse response = delegate.stream(request, consumer);
+        store(key, response);
+        return response;
+    }
+
+    @Override
+    public CompletionStage<LlmResponse> streamAsync(LlmRequest request, Consumer<? super LlmChunk> consumer) {
+        LlmRequestKey key = LlmRequestKey.of(request);
+        LlmResponse cached = lookup(key);
+        if (cached != null) {
+            LlmResponse response = LlmResponses.copyFor(cached, request);
+            try {
+                consumer.accept(LlmChunk.fromResponse(response));
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+            return CompletableFuture.completedFuture(response);
+        }
+        return delegate.streamAsync(request, consumer).thenApply(response -> {
+            store(key, response);
+            return response;
+        });
+    }
+
+    /**
+     * 命中缓存的请求直接返回，其余请求交给被装饰客户端的批量接口，成功的结果写入缓存。
+     */
+    @Override
+    public List<LlmBatchResult> generateBatch(List<LlmRequest> requests, Duration pollInterval) throws Exception {
+        LlmBatchResult[] results = new LlmBatchResult[requests.size()];
+        List<LlmRequest> missed = new ArrayList<>();
+        List<Integer> missedPositions = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            LlmRequest request = requests.get(i);
+            LlmResponse cached = lookup(LlmRequestKey.of(request));
+            if (cached != null) {
+                results[i] = LlmBatchResult.success(request.getRequestId(), LlmResponses.copyFor(cached, request));
+            } else {
+                missed.add(request);
+                missedPositions.add(i);
+            }
+        }
+        if (!missed.isEmpty()) {
+            List<LlmBatchResult> fetched = delegate.generateBatch(missed, pollInterval);
+            for (int i = 0; i < fetched.size(); i++) {
+                LlmBatchResult result = fetched.get(i);
+                if (result.isSuccess()) {
+                    store(LlmRequestKey.of(missed.get(i)), result.getResponse());
+                }
+                results[missedPositions.get(i)] = result;
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public boolean supportsBatch() {
+        return delegate.supportsBatch();
+    }
+
+    @Override
+    public LlmBatchJob submitBatch(List<LlmRequest> requests) throws Exception {
+        return delegate.submitBatch(requests);
+    }
+
+    @Override
+    public LlmBatchJob pollBatch(String jobId) throws Exception {
+        return delegate.pollBatch(jobId);
+    }
+
+    @Override
+    public List<LlmBatchResult> getBatchResults(String jobId) throws Exception {
+        return delegate.getBatchResults(jobId);
+    }
+
+    /**
+     * 移除某个请求对应的内存缓存项，磁盘层的记录保留至过期。
+     */
+    public void invalidate(LlmRequest request) {
+        LlmRequestKey key = LlmRequestKey.of(request);
+        synchronized (memory) {
+            memory.remove(key);
+        }
+    }
+
+    /**
+     * 当前内存缓存项数量。
+     */
+    public int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getHits() {
+        return memoryHits.sum() + diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getDiskErrors() {
+        return diskErrors.sum();
+    }
+
+    /**
+     * 命中率，尚无请求时为 0。
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private LlmResponse lookup(LlmRequestKey key) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    memoryHits.increment();
+                    return entry.response;
+                }
+                memory.remove(key);
+            }
+        }
+        if (diskStore != null) {
+            try {
+                DiskResponseStore.Stored stored = diskStore.get(key, now);
+                if (stored != null) {
+                    diskHits.increment();
+                    // 回填内存时沿用磁盘记录的过期时间，反复读取不会延长条目寿命。
+                    remember(key, stored.getResponse(), stored.getExpiresAt());
+                    return stored.getResponse();
+                }
+            } catch (IOException | RuntimeException ex) {
+                diskErrors.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private void store(LlmRequestKey key, LlmResponse response) {
+        if (response == null) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        // 缓存保存副本，调用方后续修改返回对象不会影响缓存内容。
+        remember(key, LlmResponses.copyFor(response, null), expiresAt);
+        if (diskStore != null) {
+            try {
+                diskStore.put(key, response, expiresAt);
+            } catch (IOException | RuntimeException ex) {
+                diskErrors.increment();
+            }
+        }
+    }
+
+    private void remember(LlmRequestKey key, LlmResponse response, long expiresAt) {
+        synchronized (memory) {
+            memory.put(key, new Entry(response, expiresAt));
+        }
+    }
+
+    private static final class Entry {
+
+        private final LlmResponse response;
+        private final long expiresAt;
+
+        private Entry(LlmResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.caas.llm.cache;
+
+import com.caas.llm.LlmBatchJob;
+import com.caas.llm.LlmBatchResult;
+import com.caas.llm.LlmChunk;
+import com.caas.llm.LlmClient;
+import com.caas.llm.LlmRequest;
+import com.caas.llm.LlmResponse;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 合并相同在途请求的 {@link LlmClient} 装饰器（single-flight）。
+ * <p>
+ * 缓存键相同（见 {@link LlmRequestKey}）的并发调用只会向下游发出一次请求：第一个调用方发起调用，
+ * 其余调用方等待同一结果，各自拿到 requestId 为自己请求值的响应副本。调用失败时所有等待方收到同一异常，
+ * 且失败的调用会先从在途表中移除，之后的请求会重新发起，不会沿用失败结果。
+ * <p>
+ * 共享结果只取自下游调用本身。发起方自己的片段消费者抛出的异常只抛给发起方，下游调用照常完成；
+ * 发起方在同步调用中被中断时，等待方不会收到中断异常，而是重新发起（或合并到新的）调用。
+ * <p>
+ * 只合并同时在途的请求，调用完成后不保留结果；需要复用已完成的结果时可与 {@link CachingLlmClient} 组合，
+ * 并将本装饰器放在缓存内层。
+ */
+public class CoalescingLlmClient implements LlmClient {
+
+    private final LlmClient delegate;
+    private final ConcurrentMap<LlmRequestKey, CompletableFuture<LlmResponse>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CoalescingLlmClient(LlmClient delegate) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+    }
+
+    @Override
+    public LlmResponse generate(LlmRequest request) throws Exception {
+        return call(request, null);
+    }
+
+    @Override
+    public CompletionStage<LlmResponse> generateAsync(LlmRequest request) {
+        return callAsync(request, null);
+    }
+
+    /**
+     * 发起调用的调用方收到逐个片段；被合并的调用方在共享调用完成后收到单个结束片段。
+     */
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<? super LlmChunk> consumer) throws Exception {
+        return call(request, Objects.requireNonNull(consumer, "consumer"));
+    }
+
+    @Override
+    public CompletionStage<LlmResponse> streamAsync(LlmRequest request, Consumer<? super LlmChunk> consumer) {
+        return callAsync(request, Objects.requireNonNull(consumer, "consumer"));
+    }
+
+    // 批量任务本身不合并，直接透传给被装饰的客户端。
+    @Override
+    public boolean supportsBatch() {
+        return delegate.supportsBatch();
+    }
+
+    @Override
+    public LlmBatchJob submitBatch(List<LlmRequest> requests) throws Exception {
+        return delegate.submitBatch(requests);
+    }
+
+    @Override
+    public LlmBatchJob pollBatch(String jobId) throws Exception {
+        return delegate.pollBatch(jobId);
+    }
+
+    @Override
+    public List<LlmBatchResult> getBatchResults(String jobId) throws Exception {
+        return delegate.getBatchResults(jobId);
+    }
+
+    /**
+     * 实际发往下游的调用次数。
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * 被合并到在途调用、未发往下游的调用次数。
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 当前在途的不同请求数量。
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private LlmResponse call(LlmRequest request, Consumer<? super LlmChunk> consumer) throws Exception {
+        LlmRequestKey key = LlmRequestKey.of(request);
+        CompletableFuture<LlmResponse> created = new CompletableFuture<>();
+        CompletableFuture<LlmResponse> existing;
+        while ((existing = inFlight.putIfAbsent(key, created)) != null) {
+            coalesced.increment();
+            try {
+                return deliver(await(existing), request, consumer);
+            } catch (LeaderAbandoned ex) {
+                // 发起方放弃了调用：重新竞争发起权。
+            }
+        }
+        calls.increment();
+        LeaderConsumer guarded = consumer == null ? null : new LeaderConsumer(consumer);
+        LlmResponse response;
+        try {
+            response = guarded == null
+                    ? delegate.generate(request)
+                    : delegate.stream(request, guarded);
+        } catch (Throwable ex) {
+            boolean local = ex instanceof InterruptedException || Thread.currentThread().isInterrupted();
+            complete(key, created, null, local ? new LeaderAbandoned() : ex);
+            throw ex;
+        }
+        complete(key, created, response, null);
+        if (guarded != null) {
+            guarded.rethrow();
+        }
+        return response;
+    }
+
+    private CompletionStage<LlmResponse> callAsync(LlmRequest request, Consumer<? super LlmChunk> consumer) {
+        LlmRequestKey key = LlmRequestKey.of(request);
+        CompletableFuture<LlmResponse> created = new CompletableFuture<>();
+        CompletableFuture<LlmResponse> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.increment();
+            // 派生出各自的阶段，某个调用方取消不会影响共享的调用。
+            return existing.thenApply(response -> deliver(response, request, consumer))
+                    .exceptionallyCompose(error -> unwrap(error) instanceof LeaderAbandoned
+                            ? callAsync(request, consumer)
+                            : CompletableFuture.failedFuture(unwrap(error)));
+        }
+        calls.increment();
+        LeaderConsumer guarded = consumer == null ? null : new LeaderConsumer(consumer);
+        CompletionStage<LlmResponse> stage;
+        try {
+            stage = guarded == null
+                    ? delegate.generateAsync(request)
+                    : delegate.streamAsync(request, guarded);
+        } catch (Throwable ex) {
+            complete(key, created, null, ex);
+            return CompletableFuture.failedFuture(ex);
+        }
+        stage.whenComplete((response, error) -> complete(key, created, response, unwrap(error)));
+        return created.thenApply(response -> {
+            if (guarded != null) {
+                guarded.rethrow();
+            }
+            return response;
+        });
+    }
+
+    private static LlmResponse deliver(LlmResponse shared, LlmRequest request, Consumer<? super LlmChunk> consumer) {
+        LlmResponse response = LlmResponses.copyFor(shared, request);
+        if (consumer != null) {
+            consumer.accept(LlmChunk.fromResponse(response));
+        }
+        return response;
+    }
+
+    private void complete(LlmRequestKey key, CompletableFuture<LlmResponse> future, LlmResponse response,
+                          Throwable error) {
+        // 先移除再完成：等待方被唤醒后若立即重试，会发起新的调用而不是拿到同一个失败结果。
+        inFlight.remove(key, future);
+        if (error != null) {
+            future.completeExceptionally(error);
+        } else {
+            future.complete(response);
+        }
+    }
+
+    private static LlmResponse await(CompletableFuture<LlmResponse> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * 包装发起方的片段消费者：消费者抛出的异常先记下，不再继续回调，也不打断下游调用，
+     * 等共享结果完成后再抛给发起方。
+     */
+    private static final class LeaderConsumer implements Consumer<LlmChunk> {
+
+        private final Consumer<? super LlmChunk> consumer;
+        private volatile RuntimeException failure;
+
+        private LeaderConsumer(Consumer<? super LlmChunk> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(LlmChunk chunk) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                consumer.accept(chunk);
+            } catch (RuntimeException ex) {
+                failure = ex;
+            }
+        }
+
+        private void rethrow() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * 发起方因自身原因（如被中断）放弃调用时交给等待方的信号，等待方据此重新发起调用。
+     */
+    private static final class LeaderAbandoned extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private LeaderAbandoned() {
+            super("coalesced leader abandoned the call", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.caas.llm.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.caas.llm.LlmResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+/**
+ * 磁盘缓存层：每个响应以 JSON 文件保存在 {@code <目录>/<摘要前两位>/<摘要>.json}，进程重启后仍然有效。
+ * <p>
+ * 写入先落到临时文件再原子改名，读到的文件总是完整的；过期或无法解析的文件视为未命中并被删除。
+ */
+public class DiskResponseStore {
+
+    private static final String SUFFIX = ".json";
+
+    private final Path directory;
+
+    public DiskResponseStore(Path directory) throws IOException {
+        this.directory = Objects.requireNonNull(directory, "directory");
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * 读取未过期的响应及其写入时记录的过期时间，不存在、已过期或已损坏时返回 null。
+     */
+    public Stored get(LlmRequestKey key, long nowMillis) throws IOException {
+        Path file = fileOf(key);
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+        JSONObject record;
+        try {
+            record = JSON.parseObject(new String(content, StandardCharsets.UTF_8));
+        } catch (RuntimeException ex) {
+            record = null;
+        }
+        if (record == null || record.getLongValue("expiresAt") <= nowMillis || !record.containsKey("response")) {
+            Files.deleteIfExists(file);
+            return null;
+        }
+        return new Stored(record.getObject("response", LlmResponse.class), record.getLongValue("expiresAt"));
+    }
+
+    /**
+     * 写入响应及其过期时间（毫秒时间戳）。
+     */
+    public void put(LlmRequestKey key, LlmResponse response, long expiresAtMillis) throws IOException {
+        JSONObject record = new JSONObject();
+        record.put("expiresAt", expiresAtMillis);
+        record.put("response", response);
+
+        Path file = fileOf(key);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), key.getHash(), ".tmp");
+        try {
+            Files.write(temp, JSON.toJSONString(record).getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private Path fileOf(LlmRequestKey key) {
+        String hash = key.getHash();
+        return directory.resolve(hash.substring(0, 2)).resolve(hash + SUFFIX);
+    }
+
+    /**
+     * 磁盘上的一条缓存记录。
+     */
+    public static final class Stored {
+
+        private final LlmResponse response;
+        private final long expiresAt;
+
+        private Stored(LlmResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+
+        public LlmResponse getResponse() {
+            return response;
+        }
+
+        /**
+         * 写入时记录的过期时间（毫秒时间戳）。
+         */
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.caas.llm.cache;
+
+import com.caas.llm.LlmRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 请求的规范化缓存键：对影响生成结果的字段做 SHA-256 摘要。
+ * <p>
+ * 参与摘要的字段为 systemPrompt、userPrompt、temperature、maxTokens、topP、stopSequences 以及
+ * attributes 中的 promptVariantId；requestId 等仅用于追踪的字段不参与，因此同一 Prompt 的重复调用得到相同的键。
+ * 每个字段以"类型标记 + 长度 + 内容"的形式写入摘要，null 与空串、字段边界均不会混淆。
+ */
+public final class LlmRequestKey {
+
+    private static final String PROMPT_VARIANT_ID = "promptVariantId";
+
+    private final String hash;
+
+    private LlmRequestKey(String hash) {
+        this.hash = hash;
+    }
+
+    /**
+     * 计算请求的缓存键。
+     */
+    public static LlmRequestKey of(LlmRequest request) {
+        Objects.requireNonNull(request, "request");
+        MessageDigest digest = sha256();
+        update(digest, request.getSystemPrompt());
+        update(digest, request.getUserPrompt());
+        update(digest, request.getTemperature());
+        update(digest, request.getMaxTokens());
+        update(digest, request.getTopP());
+        List<String> stopSequences = request.getStopSequences();
+        if (stopSequences == null) {
+            digest.update((byte) 0);
+        } else {
+            digest.update((byte) 1);
+            updateLength(digest, stopSequences.size());
+            for (String stop : stopSequences) {
+                update(digest, stop);
+            }
+        }
+        Map<String, Object> attributes = request.getAttributes();
+        update(digest, attributes == null ? null : attributes.get(PROMPT_VARIANT_ID));
+        return new LlmRequestKey(HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * 十六进制形式的摘要，可直接用作文件名。
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LlmRequestKey && hash.equals(((LlmRequestKey) other).hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return hash;
+    }
+
+    private static void update(MessageDigest digest, Object value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        digest.update((byte) 1);
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        updateLength(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void updateLength(MessageDigest digest, int length) {
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 不可用", ex);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.caas.llm.cache;
+
+import com.caas.llm.LlmRequest;
+import com.caas.llm.LlmResponse;
+
+import java.util.HashMap;
+
+/**
+ * 响应复制工具，供共享同一份响应的装饰器使用。
+ */
+final class LlmResponses {
+
+    private LlmResponses() {
+    }
+
+    /**
+     * 复制响应，requestId 改写为指定请求的值；request 为 null 时保留原值。
+     */
+    static LlmResponse copyFor(LlmResponse source, LlmRequest request) {
+        LlmResponse copy = new LlmResponse();
+        copy.setRequestId(request == null ? source.getRequestId() : request.getRequestId());
+        copy.setContent(source.getContent());
+        copy.setFinishReason(source.getFinishReason());
+        LlmResponse.Usage usage = source.getUsage();
+        if (usage != null) {
+            LlmResponse.Usage usageCopy = new LlmResponse.Usage();
+            usageCopy.setPromptTokens(usage.getPromptTokens());
+            usageCopy.setCompletionTokens(usage.getCompletionTokens());
+            usageCopy.setTotalTokens(usage.getTotalTokens());
+            copy.setUsage(usageCopy);
+        }
+        if (source.getAttributes() != null) {
+            copy.setAttributes(new HashMap<>(source.getAttributes()));
+        }
+        return copy;
+    }
+}
@@ -1,23 +1,71 @@
 package com.caas.llm.processor;
 
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
-import com.alibaba.fastjson.JSONObject;
 import com.caas.domain.content.ArticleDraft;
 import com.caas.domain.content.VideoScript;
+import com.caas.llm.LlmChunk;
 import com.caas.llm.LlmClient;
 import com.caas.llm.LlmProcessor;
 import com.caas.llm.LlmResponse;
+import com.caas.llm.prompt.PromptTemplate;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 文章转视频脚本处理器：将 ArticleDraft 生成 JSON 结构脚本并解析为 VideoScript。
+ * <p>
+ * 响应由 {@link VideoScriptJsonParser} 直接解析为实体，流式模式下随片段到达增量解析。
+ * 设置了 Token 预算时，超出部分先截短正文，其次摘要，标题始终保留。
  */
 public class ArticleToVideoScriptProcessor extends LlmProcessor<ArticleDraft, VideoScript> {
 
+    private static final String SYSTEM_PROMPT = """
+            你是视频脚本策划，擅长把文章改写成分段视频脚本。
+            输出必须是 JSON，严格可解析，不要出现多余文本。
+            """;
+
+    // 格式与写作要求放在前面、文章内容放在末尾，使前缀在各次调用间保持一致。
+    private static final PromptTemplate USER_PROMPT = PromptTemplate.compile("""
+            请把文末的文章改写为视频脚本，并输出 JSON。
+
+            JSON 格式要求（字段名必须一致）：
+            {
+              "title": "视频标题",
+              "style": "视频风格",
+              "target_duration_seconds": 120,
+              "language": "zh-CN",
+              "narration": "全片旁白文本",
+              "segments": [
+                {
+                  "order_index": 1,
+                  "type": "intro|main|outro",
+                  "text": "本段口播文本",
+                  "visual_notes": "画面/镜头提示",
+                  "duration_seconds": 8,
+                  "asset_urls": ["https://..."],
+                  "start_offset_seconds": 0
+                }
+              ]
+            }
+
+            写作要求：
+            1) 结构清晰，包含开场、主体、结尾。
+            2) 文案简洁，适合口播。
+            3) 时长分配合理，总时长接近目标时长。
+
+            文章内容：
+            - 文章标题：{{title}}
+            - 文章摘要：{{summary}}
+            - 文章正文（Markdown）：{{body}}
+            """);
+
+    private static final List<String> TRIM_ORDER = List.of("body", "summary");
+
+    public ArticleToVideoScriptProcessor(LlmClient llmClient, Double temperature, Integer maxTokens,
+                                         boolean streaming) {
+        super(llmClient, temperature, maxTokens, streaming);
+    }
+
     public ArticleToVideoScriptProcessor(LlmClient llmClient, Double temperature, Integer maxTokens) {
         super(llmClient, temperature, maxTokens);
     }
@@ -28,114 +76,51 @@ public class ArticleToVideoScriptProcessor extends LlmProcessor<ArticleDraft, Vi
 
     @Override
     protected PromptVariant buildPromptVariant(ArticleDraft input) {
-        String systemPrompt = """
-                你是视频脚本策划，擅长把文章改写成分段视频脚本。
-                输出必须是 JSON，严格可解析，不要出现多余文本。
-                """;
-
-        String userPrompt = """
-                请把以下文章改写为视频脚本，并输出 JSON：
-                - 文章标题：%s
-                - 文章摘要：%s
-                - 文章正文（Markdown）：%s
-
-                JSON 格式要求（字段名必须一致）：
-                {
-                  "title": "视频标题",
-                  "style": "视频风格",
-                  "target_duration_seconds": 120,
-                  "language": "zh-CN",
-                  "narration": "全片旁白文本",
-                  "segments": [
-                    {
-                      "order_index": 1,
-                      "type": "intro|main|outro",
-                      "text": "本段口播文本",
-                      "visual_notes": "画面/镜头提示",
-                      "duration_seconds": 8,
-                      "asset_urls": ["https://..."],
-                      "start_offset_seconds": 0
-                    }
-                  ]
-                }
-
-                写作要求：
-                1) 结构清晰，包含开场、主体、结尾。
-                2) 文案简洁，适合口播。
-                3) 时长分配合理，总时长接近目标时长。
-                """.formatted(
-                safe(input.getTitle()),
-                safe(input.getSummary()),
-                safe(input.getBody())
-        );
-
-        return new PromptVariant("article-to-video-v1", systemPrompt, userPrompt);
+        String userPrompt = USER_PROMPT.renderWithin(getTokenCounter(), userPromptBudget(SYSTEM_PROMPT), TRIM_ORDER,
+                input.getTitle(), input.getSummary(), input.getBody());
+        return new PromptVariant("article-to-video-v2", SYSTEM_PROMPT, userPrompt, USER_PROMPT.getStaticPrefixLength());
     }
 
     @Override
     protected VideoScript parseResponse(LlmResponse response, ArticleDraft input, PromptVariant variant) {
-        JSONObject root = JSON.parseObject(response.getContent());
-
-        VideoScript script = new VideoScript();
-        script.setHotTopicId(input.getHotTopicId());
-        script.setTitle(defaultIfBlank(root.getString("title"), input.getTitle()));
-        script.setStyle(root.getString("style"));
-        script.setTargetDurationSeconds(intValue(root.get("target_duration_seconds")));
-        script.setLanguage(defaultIfBlank(root.getString("language"), input.getLanguage()));
-        script.setNarration(root.getString("narration"));
-        script.setSegments(parseSegments(root.getJSONArray("segments")));
-        script.setStatus("draft");
-        script.setCreatedAt(LocalDateTime.now());
-        script.setUpdatedAt(LocalDateTime.now());
-        return script;
+        VideoScriptJsonParser parser = new VideoScriptJsonParser(segment -> onSegment(input, segment));
+        parser.feed(response.getContent());
+        return complete(parser.finish(), input);
     }
 
-    private List<VideoScript.Segment> parseSegments(JSONArray segments) {
-        if (segments == null || segments.isEmpty()) {
-            return List.of();
-        }
-        List<VideoScript.Segment> results = new ArrayList<>(segments.size());
-        for (int i = 0; i < segments.size(); i++) {
-            JSONObject item = segments.getJSONObject(i);
-            if (item == null) {
-                continue;
+    /**
+     * 流式模式下边接收边解析，每个分段完成时即回调 {@link #onSegment}。
+     */
+    @Override
+    protected IncrementalParser<VideoScript> newIncrementalParser(ArticleDraft input, PromptVariant variant) {
+        VideoScriptJsonParser parser = new VideoScriptJsonParser(segment -> onSegment(input, segment));
+        return new IncrementalParser<>() {
+            @Override
+            public void accept(LlmChunk chunk) {
+                parser.feed(chunk.getDelta());
             }
-            VideoScript.Segment segment = new VideoScript.Segment();
-            segment.setOrderIndex(intValue(item.get("order_index")));
-            segment.setType(item.getString("type"));
-            segment.setText(item.getString("text"));
-            segment.setVisualNotes(item.getString("visual_notes"));
-            segment.setDurationSeconds(intValue(item.get("duration_seconds")));
-            segment.setAssetUrls(stringListValue(item.get("asset_urls")));
-            segment.setStartOffsetSeconds(intValue(item.get("start_offset_seconds")));
-            results.add(segment);
-        }
-        return results;
+
+            @Override
+            public VideoScript finish(LlmResponse response) {
+                return complete(parser.finish(), input);
+            }
+        };
     }
 
-    private Integer intValue(Object value) {
-        if (value == null) {
-            return null;
-        }
-        if (value instanceof Number) {
-            return ((Number) value).intValue();
-        }
-        return Integer.valueOf(String.valueOf(value));
+    /**
+     * 每个分段解析完成时回调，默认不做处理；流式模式下可借此尽早把分段交给下游。
+     */
+    protected void onSegment(ArticleDraft input, VideoScript.Segment segment) {
     }
 
-    private List<String> stringListValue(Object value) {
-        if (value == null) {
-            return List.of();
-        }
-        if (value instanceof JSONArray) {
-            JSONArray array = (JSONArray) value;
-            List<String> result = new ArrayList<>(array.size());
-            for (int i = 0; i < array.size(); i++) {
-                result.add(String.valueOf(array.get(i)));
-            }
-            return result;
-        }
-        return List.of(String.valueOf(value));
+    private VideoScript complete(VideoScript script, ArticleDraft input) {
+        script.setHotTopicId(input.getHotTopicId());
+        script.setTitle(defaultIfBlank(script.getTitle(), input.getTitle()));
+        script.setLanguage(defaultIfBlank(script.getLanguage(), input.getLanguage()));
+        script.setStatus("draft");
+        script.setCreatedAt(LocalDateTime.now());
+        script.setUpdatedAt(LocalDateTime.now());
+        return script;
     }
 
     private String defaultIfBlank(String value, String fallback) {
@@ -144,8 +129,4 @@ public class ArticleToVideoScriptProcessor extends LlmProcessor<ArticleDraft, Vi
         }
         return value;
     }
-
-    private String safe(Object value) {
-        return value == null ? "" : String.valueOf(value);
-    }
 }
@@ -5,14 +5,48 @@ import com.caas.domain.content.HotTopic;
 import com.caas.llm.LlmClient;
 import com.caas.llm.LlmProcessor;
 import com.caas.llm.LlmResponse;
+import com.caas.llm.prompt.PromptTemplate;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 热点解读处理器：将 HotTopic 生成公众号/知乎风格的 Markdown 解读稿。
+ * 设置了 Token 预算时，超出部分先截短热点描述，其次关键词。
  */
 public class TopicExplainProcessor extends LlmProcessor<HotTopic, ArticleDraft> {
 
+    private static final String SYSTEM_PROMPT = """
+            你是资深内容编辑，擅长公众号/知乎风格的热点解读。
+            输出必须是 Markdown，结构清晰，语言克制、专业、可读。
+            """;
+
+    // 写作要求放在前面、热点数据放在末尾，使前缀在各次调用间保持一致。
+    private static final PromptTemplate USER_PROMPT = PromptTemplate.compile("""
+            请基于文末的热点信息撰写解读文章，输出 Markdown。
+
+            写作要求：
+            1) 标题使用一级标题（#）。
+            2) 正文分段清晰，包含背景、核心信息、影响分析、观点小结。
+            3) 适当使用项目符号或小标题，但不要过度营销。
+            4) 如信息不足，允许合理补充常识性背景，但需保持谨慎措辞。
+
+            热点信息：
+            - 热点标题：{{title}}
+            - 热点描述：{{description}}
+            - 分类：{{category}}
+            - 来源平台：{{sourcePlatform}}
+            - 来源链接：{{sourceUrl}}
+            - 语言：{{language}}
+            - 地区：{{region}}
+            - 热度分数：{{popularityScore}}
+            - 讨论量：{{mentionCount}}
+            - 情感倾向：{{sentiment}}
+            - 关键词：{{keywords}}
+            """);
+
+    private static final List<String> TRIM_ORDER = List.of("description", "keywords");
+
     public TopicExplainProcessor(LlmClient llmClient, Double temperature, Integer maxTokens) {
         super(llmClient, temperature, maxTokens);
     }
@@ -23,45 +57,20 @@ public class TopicExplainProcessor extends LlmProcessor<HotTopic, ArticleDraft>
 
     @Override
     protected PromptVariant buildPromptVariant(HotTopic input) {
-        String systemPrompt = """
-                你是资深内容编辑，擅长公众号/知乎风格的热点解读。
-                输出必须是 Markdown，结构清晰，语言克制、专业、可读。
-                """;
-
-        String userPrompt = """
-                请基于以下热点信息撰写解读文章，输出 Markdown：
-                - 热点标题：%s
-                - 热点描述：%s
-                - 分类：%s
-                - 来源平台：%s
-                - 来源链接：%s
-                - 语言：%s
-                - 地区：%s
-                - 热度分数：%s
-                - 讨论量：%s
-                - 情感倾向：%s
-                - 关键词：%s
-
-                写作要求：
-                1) 标题使用一级标题（#）。
-                2) 正文分段清晰，包含背景、核心信息、影响分析、观点小结。
-                3) 适当使用项目符号或小标题，但不要过度营销。
-                4) 如信息不足，允许合理补充常识性背景，但需保持谨慎措辞。
-                """.formatted(
-                safe(input.getTitle()),
-                safe(input.getDescription()),
-                safe(input.getCategory()),
-                safe(input.getSourcePlatform()),
-                safe(input.getSourceUrl()),
-                safe(input.getLanguage()),
-                safe(input.getRegion()),
-                safe(input.getPopularityScore()),
-                safe(input.getMentionCount()),
-                safe(input.getSentiment()),
-                safe(input.getKeywords())
+        String userPrompt = USER_PROMPT.renderWithin(getTokenCounter(), userPromptBudget(SYSTEM_PROMPT), TRIM_ORDER,
+                input.getTitle(),
+                input.getDescription(),
+                input.getCategory(),
+                input.getSourcePlatform(),
+                input.getSourceUrl(),
+                input.getLanguage(),
+                input.getRegion(),
+                input.getPopularityScore(),
+                input.getMentionCount(),
+                input.getSentiment(),
+                input.getKeywords()
         );
-
-        return new PromptVariant("topic-explain-v1", systemPrompt, userPrompt);
+        return new PromptVariant("topic-explain-v2", SYSTEM_PROMPT, userPrompt, USER_PROMPT.getStaticPrefixLength());
     }
 
     @Override
@@ -98,8 +107,4 @@ public class TopicExplainProcessor extends LlmProcessor<HotTopic, ArticleDraft>
         String trimmed = content.trim();
         return trimmed.length();
     }
-
-    private String safe(Object value) {
-        return value == null ? "" : String.valueOf(value);
-    }
 }
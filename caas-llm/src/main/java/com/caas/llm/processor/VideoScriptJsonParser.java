@@ -0,0 +1,435 @@
+package com.caas.llm.processor;
+
+import com.caas.domain.content.VideoScript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 视频脚本 JSON 的增量解析器：按片段推入文本，边读边把字段写入 {@link VideoScript} 与 {@link VideoScript.Segment}。
+ * <p>
+ * 不构建中间的 JSON 树，只为需要的字段创建字符串；每个分段解析完成后立即回调监听器，适合直接消费流式响应。
+ * 容忍模型在 JSON 前后附加的说明文字或代码块标记：第一个能解析出字段的对象才视为脚本，根对象结束后的内容全部忽略。
+ * 非线程安全，一个实例只解析一份脚本。
+ */
+public final class VideoScriptJsonParser {
+
+    private static final int MAX_DEPTH = 64;
+
+    private static final int SEEK = 0;
+    private static final int VALUE = 1;
+    private static final int VALUE_OR_END = 2;
+    private static final int KEY = 3;
+    private static final int KEY_OR_END = 4;
+    private static final int COLON = 5;
+    private static final int AFTER_VALUE = 6;
+    private static final int STRING = 7;
+    private static final int ESCAPE = 8;
+    private static final int UNICODE = 9;
+    private static final int LITERAL = 10;
+    private static final int DONE = 11;
+
+    private static final int ROLE_ROOT = 0;
+    private static final int ROLE_SEGMENTS = 1;
+    private static final int ROLE_SEGMENT = 2;
+    private static final int ROLE_ASSETS = 3;
+    private static final int ROLE_SKIP = 4;
+
+    private static final String[] ROOT_KEYS = {
+            "title", "style", "target_duration_seconds", "language", "narration", "segments"
+    };
+    private static final int ROOT_SEGMENTS = 5;
+
+    private static final String[] SEGMENT_KEYS = {
+            "order_index", "type", "text", "visual_notes", "duration_seconds", "asset_urls", "start_offset_seconds"
+    };
+    private static final int SEGMENT_ASSET_URLS = 5;
+
+    private final Consumer<? super VideoScript.Segment> segmentListener;
+    private final StringBuilder buffer = new StringBuilder(64);
+    private final boolean[] arrays = new boolean[MAX_DEPTH];
+    private final int[] roles = new int[MAX_DEPTH];
+    private final int[] keys = new int[MAX_DEPTH];
+
+    private int state = SEEK;
+    private int depth;
+    private boolean stringIsKey;
+    private int unicodeValue;
+    private int unicodeDigits;
+    private int rootFields;
+    private long offset;
+
+    private final VideoScript script = new VideoScript();
+    private List<VideoScript.Segment> segments;
+    private VideoScript.Segment segment;
+    private List<String> assetUrls;
+
+    public VideoScriptJsonParser() {
+        this(null);
+    }
+
+    /**
+     * @param segmentListener 每个分段解析完成时回调，可为 null
+     */
+    public VideoScriptJsonParser(Consumer<? super VideoScript.Segment> segmentListener) {
+        this.segmentListener = segmentListener;
+    }
+
+    /**
+     * 一次性解析完整文本。
+     */
+    public static VideoScript parse(CharSequence content) {
+        VideoScriptJsonParser parser = new VideoScriptJsonParser();
+        parser.feed(content);
+        return parser.finish();
+    }
+
+    /**
+     * 推入一段文本，片段边界可以落在任意位置（包括字符串与转义序列中间）。
+     *
+     * @throws IllegalArgumentException 脚本对象内出现语法错误时抛出
+     */
+    public void feed(CharSequence chunk) {
+        if (chunk == null) {
+            return;
+        }
+        int length = chunk.length();
+        for (int i = 0; i < length; i++) {
+            if (state == DONE) {
+                offset += length - i;
+                return;
+            }
+            if (state == STRING) {
+                // 字符串内容占响应的绝大部分，整段追加到缓冲区，只在引号与转义处逐字符处理。
+                int end = i;
+                while (end < length) {
+                    char c = chunk.charAt(end);
+                    if (c == '"' || c == '\\') {
+                        break;
+                    }
+                    end++;
+                }
+                if (end > i) {
+                    buffer.append(chunk, i, end);
+                    offset += end - i;
+                    i = end;
+                    if (i == length) {
+                        return;
+                    }
+                }
+            }
+            // 字面量在遇到分隔符时结束，分隔符需要按新状态再处理一次。
+            if (accept(chunk.charAt(i))) {
+                offset++;
+            } else {
+                i--;
+            }
+        }
+    }
+
+    /**
+     * 根对象是否已经解析完成。
+     */
+    public boolean isComplete() {
+        return state == DONE;
+    }
+
+    /**
+     * 结束解析并返回脚本，分段缺失时为空列表。
+     *
+     * @throws IllegalArgumentException 文本中没有完整的脚本对象时抛出
+     */
+    public VideoScript finish() {
+        if (state != DONE) {
+            throw new IllegalArgumentException("视频脚本 JSON 不完整，已读取 " + offset + " 个字符");
+        }
+        script.setSegments(segments == null || segments.isEmpty() ? List.of() : segments);
+        return script;
+    }
+
+    private boolean accept(char c) {
+        switch (state) {
+            case SEEK:
+                if (c == '{') {
+                    push(false);
+                    state = KEY_OR_END;
+                }
+                return true;
+            case VALUE:
+            case VALUE_OR_END:
+                if (isWhitespace(c)) {
+                    return true;
+                }
+                if (c == ']' && state == VALUE_OR_END) {
+                    pop();
+                } else if (c == '{') {
+                    push(false);
+                    state = KEY_OR_END;
+                } else if (c == '[') {
+                    push(true);
+                    state = VALUE_OR_END;
+                } else if (c == '"') {
+                    stringIsKey = false;
+                    buffer.setLength(0);
+                    state = STRING;
+                } else if (c == '-' || (c >= '0' && c <= '9') || c == 't' || c == 'f' || c == 'n') {
+                    buffer.setLength(0);
+                    buffer.append(c);
+                    state = LITERAL;
+                } else {
+                    fail(c);
+                }
+                return true;
+            case KEY:
+            case KEY_OR_END:
+                if (isWhitespace(c)) {
+                    return true;
+                }
+                if (c == '}' && state == KEY_OR_END) {
+                    pop();
+                } else if (c == '"') {
+                    stringIsKey = true;
+                    buffer.setLength(0);
+                    state = STRING;
+                } else {
+                    fail(c);
+                }
+                return true;
+            case COLON:
+                if (c == ':') {
+                    state = VALUE;
+                } else if (!isWhitespace(c)) {
+                    fail(c);
+                }
+                return true;
+            case AFTER_VALUE:
+                if (isWhitespace(c)) {
+                    return true;
+                }
+                boolean array = arrays[depth - 1];
+                if (c == ',') {
+                    state = array ? VALUE : KEY;
+                } else if ((c == '}' && !array) || (c == ']' && array)) {
+                    pop();
+                } else {
+                    fail(c);
+                }
+                return true;
+            case STRING:
+                if (c == '"') {
+                    if (stringIsKey) {
+                        onKey();
+                        state = COLON;
+                    } else {
+                        state = AFTER_VALUE;
+                        onScalar(true);
+                    }
+                } else if (c == '\\') {
+                    state = ESCAPE;
+                } else {
+                    buffer.append(c);
+                }
+                return true;
+            case ESCAPE:
+                state = STRING;
+                switch (c) {
+                    case 'n' -> buffer.append('\n');
+                    case 't' -> buffer.append('\t');
+                    case 'r' -> buffer.append('\r');
+                    case 'b' -> buffer.append('\b');
+                    case 'f' -> buffer.append('\f');
+                    case 'u' -> {
+                        unicodeValue = 0;
+                        unicodeDigits = 0;
+                        state = UNICODE;
+                    }
+                    default -> buffer.append(c);
+                }
+                return true;
+            case UNICODE:
+                int digit = Character.digit(c, 16);
+                if (digit < 0) {
+                    fail(c);
+                    return true;
+                }
+                unicodeValue = (unicodeValue << 4) | digit;
+                if (++unicodeDigits == 4) {
+                    buffer.append((char) unicodeValue);
+                    state = STRING;
+                }
+                return true;
+            case LITERAL:
+                if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) {
+                    state = AFTER_VALUE;
+                    onScalar(false);
+                    return false;
+                }
+                if (Character.isLetterOrDigit(c) || c == '.' || c == '+' || c == '-') {
+                    buffer.append(c);
+                } else {
+                    fail(c);
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    private void push(boolean array) {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalArgumentException("视频脚本 JSON 嵌套过深，位置 " + offset);
+        }
+        int role;
+        if (depth == 0) {
+            role = ROLE_ROOT;
+        } else {
+            int parentRole = roles[depth - 1];
+            int parentKey = keys[depth - 1];
+            if (parentRole == ROLE_ROOT && array && parentKey == ROOT_SEGMENTS) {
+                role = ROLE_SEGMENTS;
+                segments = new ArrayList<>();
+            } else if (parentRole == ROLE_SEGMENTS && !array) {
+                role = ROLE_SEGMENT;
+                segment = new VideoScript.Segment();
+            } else if (parentRole == ROLE_SEGMENT && array && parentKey == SEGMENT_ASSET_URLS) {
+                role = ROLE_ASSETS;
+                assetUrls = new ArrayList<>();
+            } else {
+                role = ROLE_SKIP;
+            }
+        }
+        arrays[depth] = array;
+        roles[depth] = role;
+        keys[depth] = -1;
+        depth++;
+    }
+
+    private void pop() {
+        depth--;
+        int role = roles[depth];
+        if (role == ROLE_SEGMENT) {
+            segments.add(segment);
+            if (segmentListener != null) {
+                segmentListener.accept(segment);
+            }
+            segment = null;
+        } else if (role == ROLE_ASSETS) {
+            segment.setAssetUrls(assetUrls);
+            assetUrls = null;
+        } else if (role == ROLE_ROOT && rootFields == 0) {
+            // 没有任何字段的对象（如说明文字里的 "{}"）不是脚本，继续向后寻找。
+            state = SEEK;
+            return;
+        }
+        state = depth == 0 ? DONE : AFTER_VALUE;
+    }
+
+    private void onKey() {
+        int role = roles[depth - 1];
+        if (role == ROLE_ROOT) {
+            keys[depth - 1] = indexOf(ROOT_KEYS);
+            rootFields++;
+        } else if (role == ROLE_SEGMENT) {
+            keys[depth - 1] = indexOf(SEGMENT_KEYS);
+        }
+    }
+
+    private void onScalar(boolean quoted) {
+        boolean isNull = !quoted && contentEquals("null");
+        if (!quoted && !isNull && !contentEquals("true") && !contentEquals("false")) {
+            char first = buffer.charAt(0);
+            if (first != '-' && (first < '0' || first > '9')) {
+                fail(first);
+                return;
+            }
+        }
+        int role = roles[depth - 1];
+        int key = keys[depth - 1];
+        if (role == ROLE_ROOT) {
+            switch (key) {
+                case 0 -> script.setTitle(text(isNull));
+                case 1 -> script.setStyle(text(isNull));
+                case 2 -> script.setTargetDurationSeconds(intValue(isNull, quoted));
+                case 3 -> script.setLanguage(text(isNull));
+                case 4 -> script.setNarration(text(isNull));
+                default -> {
+                }
+            }
+        } else if (role == ROLE_SEGMENT) {
+            switch (key) {
+                case 0 -> segment.setOrderIndex(intValue(isNull, quoted));
+                case 1 -> segment.setType(text(isNull));
+                case 2 -> segment.setText(text(isNull));
+                case 3 -> segment.setVisualNotes(text(isNull));
+                case 4 -> segment.setDurationSeconds(intValue(isNull, quoted));
+                case 5 -> segment.setAssetUrls(isNull ? List.of() : List.of(buffer.toString()));
+                case 6 -> segment.setStartOffsetSeconds(intValue(isNull, quoted));
+                default -> {
+                }
+            }
+        } else if (role == ROLE_ASSETS && !isNull) {
+            assetUrls.add(buffer.toString());
+        }
+    }
+
+    private String text(boolean isNull) {
+        return isNull ? null : buffer.toString();
+    }
+
+    private Integer intValue(boolean isNull, boolean quoted) {
+        if (isNull) {
+            return null;
+        }
+        String value = buffer.toString();
+        if (quoted) {
+            return Integer.valueOf(value);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return (int) Double.parseDouble(value);
+            }
+        }
+        return (int) Long.parseLong(value);
+    }
+
+    private int indexOf(String[] candidates) {
+        for (int i = 0; i < candidates.length; i++) {
+            if (contentEquals(candidates[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean contentEquals(String value) {
+        int length = buffer.length();
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.charAt(i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void fail(char c) {
+        if (rootFields == 0) {
+            // 尚未读到任何字段，说明命中的是说明文字里的大括号，丢弃后继续寻找脚本对象。
+            depth = 0;
+            segments = null;
+            segment = null;
+            assetUrls = null;
+            state = SEEK;
+            return;
+        }
+        throw new IllegalArgumentException("视频脚本 JSON 格式错误：位置 " + offset + " 出现意外字符 '" + c + "'");
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
@@ -0,0 +1,195 @@
+package com.caas.llm.prompt;
+
+import com.caas.llm.token.TokenCounter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 预编译的 Prompt 模板，占位符写作 {@code {{name}}}。
+ * <p>
+ * 模板只在创建时解析一次，拆成固定文本与占位符两类片段；渲染时先算出总长度，再写入一次分配到位的 StringBuilder。
+ * 第一个占位符之前的固定文本即静态前缀，在所有调用之间完全相同，可交给服务商做 Prompt 缓存，
+ * 因此应把不变的说明与格式要求写在模板开头，把逐条变化的数据放在末尾。
+ * 数据字段可能很长时用 {@link #renderWithin} 按 Token 预算渲染，超出时按给定顺序截短低优先级字段。
+ * 实例不可变，可作为常量在线程间共享。
+ */
+public final class PromptTemplate {
+
+    /**
+     * 字段被截短时追加的标记，提示模型内容不完整。
+     */
+    public static final String TRUNCATION_MARK = "……（后文已省略）";
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    private final String[] literals;
+    private final int[] slots;
+    private final List<String> variables;
+    private final int literalLength;
+
+    private PromptTemplate(String[] literals, int[] slots, List<String> variables) {
+        this.literals = literals;
+        this.slots = slots;
+        this.variables = variables;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 解析模板。同名占位符可以出现多次，渲染时取同一个值。
+     *
+     * @throws IllegalArgumentException 占位符未闭合或名称为空时抛出
+     */
+    public static PromptTemplate compile(String template) {
+        Objects.requireNonNull(template, "template");
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = template.indexOf(OPEN, position);
+            if (open < 0) {
+                literals.add(template.substring(position));
+                break;
+            }
+            int close = template.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("占位符未闭合，位置 " + open);
+            }
+            String name = template.substring(open + OPEN.length(), close).trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("占位符名称不能为空，位置 " + open);
+            }
+            literals.add(template.substring(position, open));
+            int index = variables.indexOf(name);
+            if (index < 0) {
+                index = variables.size();
+                variables.add(name);
+            }
+            slots.add(index);
+            position = close + CLOSE.length();
+        }
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new PromptTemplate(literals.toArray(new String[0]), slotArray,
+                Collections.unmodifiableList(variables));
+    }
+
+    /**
+     * 按占位符首次出现的顺序给出取值并渲染，null 渲染为空串。
+     *
+     * @throws IllegalArgumentException 取值个数与占位符个数不一致时抛出
+     */
+    public String render(Object... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException("模板需要 " + variables.size() + " 个取值，实际为 " + values.length);
+        }
+        String[] texts = new String[values.length];
+        int length = literalLength;
+        for (int i = 0; i < slots.length; i++) {
+            int slot = slots[i];
+            if (texts[slot] == null) {
+                texts[slot] = values[slot] == null ? "" : String.valueOf(values[slot]);
+            }
+            length += texts[slot].length();
+        }
+        StringBuilder result = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            result.append(literals[i]).append(texts[slots[i]]);
+        }
+        result.append(literals[slots.length]);
+        return result.toString();
+    }
+
+    /**
+     * 在 Token 预算内渲染：整体超出 maxTokens 时，按 trimOrder 依次截短对应字段（保留开头并追加
+     * {@link #TRUNCATION_MARK}），一个字段截空后再截下一个，直到不超出预算。
+     * <p>
+     * maxTokens 为 {@link Integer#MAX_VALUE} 时等同于 {@link #render}，不做计数。
+     * trimOrder 中的字段全部截空后仍超出预算时，返回此时的渲染结果，由调用方决定如何处理。
+     *
+     * @param trimOrder 可截短的占位符名称，优先级最低的在前
+     * @throws IllegalArgumentException trimOrder 中含有模板里不存在的占位符时抛出
+     */
+    public String renderWithin(TokenCounter counter, int maxTokens, List<String> trimOrder, Object... values) {
+        Objects.requireNonNull(counter, "counter");
+        for (String name : Objects.requireNonNull(trimOrder, "trimOrder")) {
+            if (!variables.contains(name)) {
+                throw new IllegalArgumentException("模板中没有占位符：" + name);
+            }
+        }
+        String rendered = render(values);
+        if (maxTokens == Integer.MAX_VALUE) {
+            return rendered;
+        }
+        int excess = counter.count(rendered) - maxTokens;
+        if (excess <= 0) {
+            return rendered;
+        }
+        Object[] trimmed = values.clone();
+        int markTokens = counter.count(TRUNCATION_MARK);
+        for (String name : trimOrder) {
+            int slot = variables.indexOf(name);
+            String text = values[slot] == null ? "" : String.valueOf(values[slot]);
+            int occurrences = occurrences(slot);
+            int keep = counter.count(text) - markTokens;
+            if (keep <= 0 && !text.isEmpty()) {
+                // 字段比截断标记还短，直接清空。
+                trimmed[slot] = "";
+                rendered = render(trimmed);
+                excess = counter.count(rendered) - maxTokens;
+            }
+            // 估算不一定可加，截短后重新计数，仍超出时继续缩短同一字段。
+            while (excess > 0 && keep > 0) {
+                keep -= Math.max(1, (excess + occurrences - 1) / occurrences);
+                trimmed[slot] = keep > 0 ? counter.truncate(text, keep) + TRUNCATION_MARK : "";
+                rendered = render(trimmed);
+                excess = counter.count(rendered) - maxTokens;
+            }
+            if (excess <= 0) {
+                return rendered;
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * 占位符名称，按首次出现的顺序排列。
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * 第一个占位符之前的固定文本。
+     */
+    public String getStaticPrefix() {
+        return literals[0];
+    }
+
+    /**
+     * 静态前缀的长度；渲染结果的前这么多个字符在每次调用中都相同。
+     */
+    public int getStaticPrefixLength() {
+        return literals[0].length();
+    }
+
+    private int occurrences(int slot) {
+        int count = 0;
+        for (int candidate : slots) {
+            if (candidate == slot) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,455 @@
+package com.caas.llm.ratelimit;
+
+import com.caas.llm.LlmBatchJob;
+import com.caas.llm.LlmBatchResult;
+import com.caas.llm.LlmChunk;
+import com.caas.llm.LlmClient;
+import com.caas.llm.LlmException;
+import com.caas.llm.LlmRequest;
+import com.caas.llm.LlmResponse;
+import com.caas.llm.token.HeuristicTokenCounter;
+import com.caas.llm.token.TokenCounter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 按服务商配额限速的 {@link LlmClient} 装饰器：同时约束每分钟请求数（RPM）、每分钟 Token 数（TPM）与并发数。
+ * <p>
+ * <ul>
+ *     <li>配额：RPM 与 TPM 各用一个令牌桶，按配额匀速补充，长期放行速率等于配额；桶容量为配额的 1/10（至少为 1），
+ *     即空闲之后允许的突发量，任意 60 秒窗口内放行的总量不超过配额加一个桶容量。</li>
+ *     <li>Token 记账：调用前用 {@link TokenCounter}（默认 {@link HeuristicTokenCounter}）估算 Prompt 并加上 maxTokens 预留，
+ *     完成后按 {@link LlmResponse.Usage#getTotalTokens()} 多退少补；实际用量超出预留时桶会出现负值，后续请求自然等待。</li>
+ *     <li>并发：AIMD 调整并发上限。成功且延迟未超过目标时每轮加一；延迟超过目标时乘以 0.9；
+ *     收到限流错误（{@link LlmException#isRateLimited()}）时减半，并按 Retry-After（缺省 1 秒）暂停放行。
+ *     两种收缩都只对上次收缩之后放行的请求生效，同一批并发请求同时失败只收缩一次。</li>
+ *     <li>排队：调用方按到达顺序排队，只有队首可以被放行，不会被拒绝，也不会被后来的小请求插队。
+ *     异步调用在排队期间被取消时立即离开队列。</li>
+ * </ul>
+ * 限流错误本身仍抛给调用方，重试交由上层（如流水线的重试策略）决定。
+ */
+public class RateLimitedLlmClient implements LlmClient {
+
+    private static final double BURST_FRACTION = 0.1;
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    private static final long DEFAULT_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LlmClient delegate;
+    private final int maxConcurrency;
+    private final long latencyTargetNanos;
+    private final TokenCounter tokenCounter;
+
+    private final double requestCapacity;
+    private final double requestRefillPerNano;
+    private final double tokenCapacity;
+    private final double tokenRefillPerNano;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Ticket> waiters = new ArrayDeque<>();
+    private double requestBucket;
+    private double tokenBucket;
+    private double concurrencyLimit;
+    private int inFlight;
+    private long lastRefill;
+    private long pausedUntil;
+    private long lastDecrease;
+    private long throttled;
+
+    public RateLimitedLlmClient(LlmClient delegate, int requestsPerMinute, int tokensPerMinute, int maxConcurrency) {
+        this(delegate, requestsPerMinute, tokensPerMinute, maxConcurrency, null);
+    }
+
+    /**
+     * @param latencyTarget 目标延迟，超过时收缩并发上限；为 null 时只根据限流错误收缩
+     */
+    public RateLimitedLlmClient(LlmClient delegate, int requestsPerMinute, int tokensPerMinute, int maxConcurrency,
+                                Duration latencyTarget) {
+        this(delegate, requestsPerMinute, tokensPerMinute, maxConcurrency, latencyTarget,
+                HeuristicTokenCounter.INSTANCE);
+    }
+
+    /**
+     * @param tokenCounter 估算请求 Token 数，用于 TPM 预留；应与服务商的计数方式接近
+     */
+    public RateLimitedLlmClient(LlmClient delegate, int requestsPerMinute, int tokensPerMinute, int maxConcurrency,
+                                Duration latencyTarget, TokenCounter tokenCounter) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.tokenCounter = Objects.requireNonNull(tokenCounter, "tokenCounter");
+        if (requestsPerMinute <= 0) {
+            throw new IllegalArgumentException("requestsPerMinute must be positive");
+        }
+        if (tokensPerMinute <= 0) {
+            throw new IllegalArgumentException("tokensPerMinute must be positive");
+        }
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.latencyTargetNanos = latencyTarget == null ? Long.MAX_VALUE : latencyTarget.toNanos();
+        this.requestCapacity = Math.max(1, requestsPerMinute * BURST_FRACTION);
+        this.requestRefillPerNano = requestsPerMinute / NANOS_PER_MINUTE;
+        this.tokenCapacity = Math.max(1, tokensPerMinute * BURST_FRACTION);
+        this.tokenRefillPerNano = tokensPerMinute / NANOS_PER_MINUTE;
+        this.requestBucket = requestCapacity;
+        this.tokenBucket = tokenCapacity;
+        // 从一半的并发上限起步，由 AIMD 逐步探到服务商能承受的水平。
+        this.concurrencyLimit = Math.max(1, (maxConcurrency + 1) / 2);
+        this.lastRefill = System.nanoTime();
+        this.lastDecrease = lastRefill;
+    }
+
+    @Override
+    public LlmResponse generate(LlmRequest request) throws Exception {
+        return call(request, () -> delegate.generate(request));
+    }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<? super LlmChunk> consumer) throws Exception {
+        return call(request, () -> delegate.stream(request, consumer));
+    }
+
+    @Override
+    public CompletionStage<LlmResponse> generateAsync(LlmRequest request) {
+        return callAsync(request, () -> delegate.generateAsync(request));
+    }
+
+    @Override
+    public CompletionStage<LlmResponse> streamAsync(LlmRequest request, Consumer<? super LlmChunk> consumer) {
+        return callAsync(request, () -> delegate.streamAsync(request, consumer));
+    }
+
+    // 批量接口走服务商独立的批量配额，直接透传，不占用实时调用的 RPM/TPM 与并发额度。
+    @Override
+    public boolean supportsBatch() {
+        return delegate.supportsBatch();
+    }
+
+    @Override
+    public LlmBatchJob submitBatch(List<LlmRequest> requests) throws Exception {
+        return delegate.submitBatch(requests);
+    }
+
+    @Override
+    public LlmBatchJob pollBatch(String jobId) throws Exception {
+        return delegate.pollBatch(jobId);
+    }
+
+    @Override
+    public List<LlmBatchResult> getBatchResults(String jobId) throws Exception {
+        return delegate.getBatchResults(jobId);
+    }
+
+    /**
+     * 当前的并发上限。
+     */
+    public int getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return (int) concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 正在排队等待放行的调用数量。
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 队首调用方按当前配额与暂停状态还需等待的时间；队列为空或只在等待并发名额时为 0。
+     */
+    public Duration getAdmissionDelay() {
+        lock.lock();
+        try {
+            Ticket head = waiters.peekFirst();
+            if (head == null) {
+                return Duration.ZERO;
+            }
+            long now = System.nanoTime();
+            refill(now);
+            return Duration.ofNanos(Math.max(0, admissionDelay(head, now)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 收到限流错误的次数。
+     */
+    public long getThrottled() {
+        lock.lock();
+        try {
+            return throttled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private LlmResponse call(LlmRequest request, Call call) throws Exception {
+        Ticket ticket = acquire(newTicket(request));
+        long start = System.nanoTime();
+        LlmResponse response = null;
+        Throwable error = null;
+        try {
+            response = call.run();
+            return response;
+        } catch (Throwable ex) {
+            error = ex;
+            throw ex;
+        } finally {
+            release(ticket, System.nanoTime() - start, response, error);
+        }
+    }
+
+    private CompletionStage<LlmResponse> callAsync(LlmRequest request, AsyncCall call) {
+        CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        Ticket ticket;
+        try {
+            ticket = newTicket(request);
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                cancel(ticket);
+            }
+        });
+        // 排队等待在虚拟线程上进行，不占用调用方线程；放行后由被装饰客户端的异步实现完成调用。
+        Thread.ofVirtual().name("caas-llm-rate-limit").start(() -> {
+            try {
+                acquire(ticket);
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+                return;
+            }
+            if (result.isDone()) {
+                // 放行前后恰好被取消：归还额度，不再调用。
+                refund(ticket);
+                return;
+            }
+            long start = System.nanoTime();
+            CompletionStage<LlmResponse> stage;
+            try {
+                stage = call.run();
+            } catch (Throwable ex) {
+                release(ticket, System.nanoTime() - start, null, ex);
+                result.completeExceptionally(ex);
+                return;
+            }
+            stage.whenComplete((response, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                release(ticket, System.nanoTime() - start, response, cause);
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.complete(response);
+                }
+            });
+        });
+        return result;
+    }
+
+    private Ticket newTicket(LlmRequest request) {
+        // 单次预留不超过桶容量，否则大请求永远等不到足够的令牌。
+        return new Ticket(Math.min(tokenCounter.countRequest(request), tokenCapacity));
+    }
+
+    private Ticket acquire(Ticket ticket) throws InterruptedException {
+        lock.lock();
+        try {
+            if (ticket.cancelled) {
+                throw new CancellationException("调用已取消");
+            }
+            waiters.addLast(ticket);
+            try {
+                while (true) {
+                    if (ticket.cancelled) {
+                        throw new CancellationException("调用已取消");
+                    }
+                    long now = System.nanoTime();
+                    refill(now);
+                    if (waiters.peekFirst() != ticket) {
+                        changed.await();
+                        continue;
+                    }
+                    long wait = admissionDelay(ticket, now);
+                    if (wait == 0) {
+                        waiters.pollFirst();
+                        inFlight++;
+                        requestBucket -= 1;
+                        tokenBucket -= ticket.reservedTokens;
+                        ticket.admittedAt = now;
+                        // 唤醒新的队首，它可能也已满足放行条件。
+                        changed.signalAll();
+                        return ticket;
+                    }
+                    if (wait < 0) {
+                        changed.await();
+                    } else {
+                        changed.awaitNanos(wait);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                waiters.remove(ticket);
+                changed.signalAll();
+                throw ex;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取消仍在排队的调用：移出队列并唤醒等待线程，使其结束等待。
+     */
+    private void cancel(Ticket ticket) {
+        lock.lock();
+        try {
+            ticket.cancelled = true;
+            if (waiters.remove(ticket)) {
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 队首还需等待的纳秒数：0 表示可以放行，负数表示需等待其他调用完成。
+     */
+    private long admissionDelay(Ticket ticket, long now) {
+        if (now < pausedUntil) {
+            return pausedUntil - now;
+        }
+        if (inFlight >= (int) concurrencyLimit) {
+            return -1;
+        }
+        long wait = 0;
+        if (requestBucket < 1) {
+            wait = Math.max(wait, nanosToRefill(1 - requestBucket, requestRefillPerNano));
+        }
+        if (tokenBucket < ticket.reservedTokens) {
+            wait = Math.max(wait, nanosToRefill(ticket.reservedTokens - tokenBucket, tokenRefillPerNano));
+        }
+        return wait;
+    }
+
+    private void release(Ticket ticket, long latencyNanos, LlmResponse response, Throwable error) {
+        lock.lock();
+        try {
+            inFlight--;
+            LlmResponse.Usage usage = response == null ? null : response.getUsage();
+            if (usage != null && usage.getTotalTokens() != null) {
+                // 按实际用量多退少补。
+                tokenBucket = Math.min(tokenCapacity, tokenBucket + ticket.reservedTokens - usage.getTotalTokens());
+            }
+            if (error instanceof LlmException && ((LlmException) error).isRateLimited()) {
+                throttled++;
+                decrease(ticket, 0.5);
+                Duration retryAfter = ((LlmException) error).getRetryAfter();
+                long pause = retryAfter == null ? DEFAULT_PAUSE_NANOS : retryAfter.toNanos();
+                pausedUntil = Math.max(pausedUntil, System.nanoTime() + pause);
+            } else if (error == null) {
+                if (latencyNanos > latencyTargetNanos) {
+                    decrease(ticket, 0.9);
+                } else {
+                    concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+                }
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 撤销一次未实际发出的放行：归还并发名额、请求与 Token 预留。
+     */
+    private void refund(Ticket ticket) {
+        lock.lock();
+        try {
+            inFlight--;
+            requestBucket = Math.min(requestCapacity, requestBucket + 1);
+            tokenBucket = Math.min(tokenCapacity, tokenBucket + ticket.reservedTokens);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 乘性收缩并发上限。只有在上次收缩之后放行的请求才会触发，同一窗口内的多个失败只收缩一次。
+     */
+    private void decrease(Ticket ticket, double factor) {
+        if (ticket.admittedAt - lastDecrease <= 0) {
+            return;
+        }
+        concurrencyLimit = Math.max(1, concurrencyLimit * factor);
+        lastDecrease = System.nanoTime();
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0) {
+            return;
+        }
+        lastRefill = now;
+        requestBucket = Math.min(requestCapacity, requestBucket + elapsed * requestRefillPerNano);
+        tokenBucket = Math.min(tokenCapacity, tokenBucket + elapsed * tokenRefillPerNano);
+    }
+
+    private static long nanosToRefill(double deficit, double refillPerNano) {
+        return Math.max(1, (long) Math.ceil(deficit / refillPerNano));
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        LlmResponse run() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface AsyncCall {
+        CompletionStage<LlmResponse> run();
+    }
+
+    private static final class Ticket {
+
+        private final double reservedTokens;
+        private long admittedAt;
+        private boolean cancelled;
+
+        private Ticket(double reservedTokens) {
+            this.reservedTokens = reservedTokens;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package com.caas.llm.routing;
+
+import com.caas.llm.LlmChunk;
+import com.caas.llm.LlmClient;
+import com.caas.llm.LlmException;
+import com.caas.llm.LlmRequest;
+import com.caas.llm.LlmResponse;
+import com.caas.pipeline.metrics.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 在多个后端之间路由的 {@link LlmClient}，按观测到的延迟与错误率选择后端，并对长尾请求做对冲。
+ * <p>
+ * <ul>
+ *     <li>选择：得分 = 延迟 EWMA + 错误率 EWMA × 错误惩罚，取得分最低的可用后端；尚无样本的后端得分为 0，会被优先尝试。</li>
+ *     <li>对冲：主请求超过该后端延迟的 p95（可配置；样本不足时用初始值）仍未返回时，向另一个后端发送相同请求，
+ *     先成功的结果胜出，另一个被取消。被取消的一方以已耗时更新延迟 EWMA，避免慢后端因从未完成而一直被选中。</li>
+ *     <li>故障转移：请求失败且没有其他在途请求时，立即改投下一个未尝试的后端；
+ *     不可重试的错误（{@link LlmException#isRetryable()} 为 false）直接抛出。</li>
+ *     <li>熔断：连续失败达到阈值的后端在一段时间内不再被选择，到期后放行一个探测请求，成功即恢复。</li>
+ * </ul>
+ * 流式调用不做对冲，仅在尚未收到任何片段时故障转移。
+ */
+public class RoutingLlmClient implements LlmClient {
+
+    private final List<Backend> backends;
+    private final RoutingOptions options;
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public RoutingLlmClient(List<LlmClient> backends) {
+        this(backends, new RoutingOptions());
+    }
+
+    public RoutingLlmClient(List<LlmClient> backends, RoutingOptions options) {
+        Objects.requireNonNull(backends, "backends");
+        this.options = Objects.requireNonNull(options, "options");
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("backends must not be empty");
+        }
+        if (options.getFailureThreshold() <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+        this.backends = new ArrayList<>(backends.size());
+        for (LlmClient backend : backends) {
+            this.backends.add(new Backend(Objects.requireNonNull(backend, "backend")));
+        }
+    }
+
+    @Override
+    public LlmResponse generate(LlmRequest request) throws Exception {
+        CompletableFuture<LlmResponse> future = generateAsync(request).toCompletableFuture();
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            throw ex;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public CompletionStage<LlmResponse> generateAsync(LlmRequest request) {
+        Race race = new Race(request);
+        race.start();
+        return race.result;
+    }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<? super LlmChunk> consumer) throws Exception {
+        boolean[] tried = new boolean[backends.size()];
+        Exception lastError = null;
+        while (true) {
+            Backend backend = select(tried);
+            if (backend == null) {
+                throw exhausted(lastError);
+            }
+            boolean[] delivered = new boolean[1];
+            long start = System.nanoTime();
+            try {
+                LlmResponse response = backend.client.stream(request, chunk -> {
+                    delivered[0] = true;
+                    consumer.accept(chunk);
+                });
+                backend.onSuccess(System.nanoTime() - start);
+                return response;
+            } catch (Exception ex) {
+                backend.onFailure();
+                // 已经向调用方输出过片段时不能再换后端重来。
+                if (delivered[0] || !isRetryable(ex)) {
+                    throw ex;
+                }
+                if (lastError != null) {
+                    ex.addSuppressed(lastError);
+                }
+                lastError = ex;
+            }
+        }
+    }
+
+    /**
+     * 已发出的对冲请求次数。
+     */
+    public long getHedges() {
+        return hedges.sum();
+    }
+
+    /**
+     * 对冲请求先于主请求成功的次数。
+     */
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+
+    /**
+     * 第 index 个后端被选中的次数。
+     */
+    public long getSelections(int index) {
+        return backends.get(index).selections.sum();
+    }
+
+    /**
+     * 第 index 个后端当前是否处于熔断状态。
+     */
+    public boolean isCircuitOpen(int index) {
+        return backends.get(index).isOpen(System.nanoTime());
+    }
+
+    /**
+     * 从未尝试过的后端中选出得分最低的可用后端并标记为已尝试；没有可用后端时返回 null。
+     */
+    private Backend select(boolean[] tried) {
+        while (true) {
+            long now = System.nanoTime();
+            Backend best = null;
+            int bestIndex = -1;
+            double bestScore = Double.MAX_VALUE;
+            for (int i = 0; i < backends.size(); i++) {
+                Backend backend = backends.get(i);
+                if (tried[i] || !backend.isAvailable(now)) {
+                    continue;
+                }
+                double score = backend.score();
+                if (score < bestScore) {
+                    best = backend;
+                    bestIndex = i;
+                    bestScore = score;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            // 熔断到期后只放行一个探测请求，并发选择时可能被其他调用抢先，此时重新挑选。
+            if (best.tryAcquire(now)) {
+                tried[bestIndex] = true;
+                best.selections.increment();
+                return best;
+            }
+        }
+    }
+
+    private long hedgeDelayNanos(Backend primary) {
+        long delay = primary.latency.getCount() >= options.getMinHedgeSamples()
+                ? primary.latency.getPercentile(options.getHedgePercentile())
+                : options.getInitialHedgeDelay().toNanos();
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(1), delay);
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        return !(error instanceof LlmException) || ((LlmException) error).isRetryable();
+    }
+
+    private static Exception exhausted(Throwable lastError) {
+        if (lastError instanceof Exception) {
+            return (Exception) lastError;
+        }
+        LlmException ex = new LlmException("没有可用的模型后端", 503);
+        if (lastError != null) {
+            ex.addSuppressed(lastError);
+        }
+        return ex;
+    }
+
+    /**
+     * 一次异步调用的状态：主请求、可能的对冲请求与故障转移请求，先成功者胜出。
+     */
+    private final class Race {
+
+        private final LlmRequest request;
+        private final CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        private final boolean[] tried = new boolean[backends.size()];
+        private final List<Attempt> running = new ArrayList<>(2);
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private Throwable lastError;
+
+        private Race(LlmRequest request) {
+            this.request = request;
+            // 调用方取消时一并取消所有在途请求。
+            result.whenComplete((response, error) -> {
+                if (result.isCancelled()) {
+                    cancelRunning(null);
+                }
+            });
+        }
+
+        private void start() {
+            Attempt primary = launch(false);
+            if (primary != null && options.isHedging() && backends.size() > 1) {
+                CompletableFuture.delayedExecutor(hedgeDelayNanos(primary.backend), TimeUnit.NANOSECONDS)
+                        .execute(this::hedge);
+            }
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                // 主请求已结束，或已经故障转移到其他后端时不再对冲。
+                if (result.isDone() || running.size() != 1) {
+                    return;
+                }
+            }
+            launch(true);
+        }
+
+        private Attempt launch(boolean hedge) {
+            Attempt attempt;
+            synchronized (this) {
+                if (result.isDone()) {
+                    return null;
+                }
+                Backend backend = select(tried);
+                if (backend == null) {
+                    // 对冲时找不到第二个后端不影响主请求。
+                    if (running.isEmpty()) {
+                        result.completeExceptionally(exhausted(lastError));
+                    }
+                    return null;
+                }
+                attempt = new Attempt(backend, hedge);
+                running.add(attempt);
+            }
+            if (hedge) {
+                hedges.increment();
+            }
+            CompletableFuture<LlmResponse> future;
+            try {
+                future = attempt.backend.client.generateAsync(request).toCompletableFuture();
+            } catch (Throwable ex) {
+                future = CompletableFuture.failedFuture(ex);
+            }
+            attempt.future = future;
+            future.whenComplete((response, error) -> onComplete(attempt, response, error));
+            return attempt;
+        }
+
+        private void onComplete(Attempt attempt, LlmResponse response, Throwable error) {
+            long elapsed = System.nanoTime() - attempt.start;
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause == null) {
+                attempt.backend.onSuccess(elapsed);
+                if (settled.compareAndSet(false, true)) {
+                    // 先计数再完成结果，调用方拿到响应时统计已经可见。
+                    if (attempt.hedge) {
+                        hedgeWins.increment();
+                    }
+                    result.complete(response);
+                    cancelRunning(attempt);
+                }
+                return;
+            }
+            if (cause instanceof CancellationException) {
+                attempt.backend.onCancelled(elapsed);
+                return;
+            }
+            attempt.backend.onFailure();
+            boolean failover;
+            synchronized (this) {
+                running.remove(attempt);
+                if (lastError != null && lastError != cause) {
+                    cause.addSuppressed(lastError);
+                }
+                lastError = cause;
+                if (result.isDone()) {
+                    return;
+                }
+                if (!isRetryable(cause)) {
+                    result.completeExceptionally(cause);
+                    failover = false;
+                } else {
+                    // 还有其他在途请求时等待它的结果，否则立即改投下一个后端。
+                    failover = running.isEmpty();
+                }
+            }
+            if (failover) {
+                launch(false);
+            } else if (result.isCompletedExceptionally()) {
+                cancelRunning(null);
+            }
+        }
+
+        private void cancelRunning(Attempt winner) {
+            List<Attempt> losers;
+            synchronized (this) {
+                losers = new ArrayList<>(running);
+            }
+            for (Attempt attempt : losers) {
+                if (attempt != winner && attempt.future != null) {
+                    attempt.future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static final class Attempt {
+
+        private final Backend backend;
+        private final boolean hedge;
+        private final long start = System.nanoTime();
+        private volatile CompletableFuture<LlmResponse> future;
+
+        private Attempt(Backend backend, boolean hedge) {
+            this.backend = backend;
+            this.hedge = hedge;
+        }
+    }
+
+    /**
+     * 单个后端的观测数据与熔断状态。
+     */
+    private final class Backend {
+
+        private final LlmClient client;
+        private final Histogram latency = new Histogram();
+        private final LongAdder selections = new LongAdder();
+        private double latencyEwma = -1;
+        private double errorRate;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean probing;
+
+        private Backend(LlmClient client) {
+            this.client = client;
+        }
+
+        synchronized double score() {
+            double base = latencyEwma < 0 ? 0 : latencyEwma;
+            return base + errorRate * options.getErrorPenalty().toNanos();
+        }
+
+        synchronized boolean isOpen(long now) {
+            return openUntil != 0 && (now < openUntil || probing);
+        }
+
+        synchronized boolean isAvailable(long now) {
+            return openUntil == 0 || (now >= openUntil && !probing);
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            if (openUntil == 0) {
+                return true;
+            }
+            if (now < openUntil || probing) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+
+        synchronized void onSuccess(long nanos) {
+            latency.record(nanos);
+            updateLatency(nanos);
+            errorRate *= 1 - options.getEwmaAlpha();
+            consecutiveFailures = 0;
+            openUntil = 0;
+            probing = false;
+        }
+
+        synchronized void onFailure() {
+            double alpha = options.getEwmaAlpha();
+            errorRate = errorRate * (1 - alpha) + alpha;
+            consecutiveFailures++;
+            if (probing || consecutiveFailures >= options.getFailureThreshold()) {
+                openUntil = System.nanoTime() + options.getOpenDuration().toNanos();
+            }
+            probing = false;
+        }
+
+        /**
+         * 对冲失败被取消：真实延迟至少为已耗时，只更新延迟 EWMA，不计入错误。
+         */
+        synchronized void onCancelled(long nanos) {
+            updateLatency(Math.max(nanos, (long) latencyEwma));
+            probing = false;
+        }
+
+        private void updateLatency(long nanos) {
+            double alpha = options.getEwmaAlpha();
+            latencyEwma = latencyEwma < 0 ? nanos : latencyEwma * (1 - alpha) + nanos * alpha;
+        }
+    }
+}
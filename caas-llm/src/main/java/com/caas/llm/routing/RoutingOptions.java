@@ -0,0 +1,103 @@
+package com.caas.llm.routing;
+
+import java.time.Duration;
+
+/**
+ * {@link RoutingLlmClient} 的可选参数，均有默认值。
+ */
+public class RoutingOptions {
+
+    private boolean hedging = true;
+    private double hedgePercentile = 95;
+    private Duration initialHedgeDelay = Duration.ofSeconds(5);
+    private int minHedgeSamples = 20;
+    private double ewmaAlpha = 0.2;
+    private Duration errorPenalty = Duration.ofSeconds(10);
+    private int failureThreshold = 5;
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    /**
+     * 是否在主请求迟迟未返回时向第二个后端发送对冲请求。
+     */
+    public boolean isHedging() {
+        return hedging;
+    }
+
+    public void setHedging(boolean hedging) {
+        this.hedging = hedging;
+    }
+
+    /**
+     * 对冲等待时间取主后端延迟的哪个百分位，默认 p95。
+     */
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    /**
+     * 样本不足 {@link #getMinHedgeSamples()} 时使用的对冲等待时间。
+     */
+    public Duration getInitialHedgeDelay() {
+        return initialHedgeDelay;
+    }
+
+    public void setInitialHedgeDelay(Duration initialHedgeDelay) {
+        this.initialHedgeDelay = initialHedgeDelay;
+    }
+
+    public int getMinHedgeSamples() {
+        return minHedgeSamples;
+    }
+
+    public void setMinHedgeSamples(int minHedgeSamples) {
+        this.minHedgeSamples = minHedgeSamples;
+    }
+
+    /**
+     * 延迟与错误率指数滑动平均的权重，越大越偏向最近的观测。
+     */
+    public double getEwmaAlpha() {
+        return ewmaAlpha;
+    }
+
+    public void setEwmaAlpha(double ewmaAlpha) {
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    /**
+     * 选择后端时错误率折算成的延迟惩罚：得分 = 平均延迟 + 错误率 × 本值。
+     */
+    public Duration getErrorPenalty() {
+        return errorPenalty;
+    }
+
+    public void setErrorPenalty(Duration errorPenalty) {
+        this.errorPenalty = errorPenalty;
+    }
+
+    /**
+     * 连续失败多少次后熔断该后端。
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    /**
+     * 熔断持续时间，到期后放行一个探测请求。
+     */
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+}
@@ -0,0 +1,231 @@
+package com.caas.llm.simulate;
+
+import com.caas.llm.LlmChunk;
+import com.caas.llm.LlmChunkAccumulator;
+import com.caas.llm.LlmClient;
+import com.caas.llm.LlmException;
+import com.caas.llm.LlmRequest;
+import com.caas.llm.LlmResponse;
+import com.caas.llm.token.HeuristicTokenCounter;
+import com.caas.llm.token.TokenCounter;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 进程内的模拟模型服务，用于在本地压测并发、限速与缓存配置。
+ * <p>
+ * 每次调用先等待按 {@link SimulationOptions} 抽样的首字延迟，再按 Token 速率输出；流式调用按片段逐个回调，
+ * 非流式调用等待同样的总时长后一次返回。可按比例注入服务端错误（500）与限流错误（429，携带 Retry-After）。
+ * 用量按 {@link HeuristicTokenCounter} 计算 Prompt 与输出的 Token 数。
+ * <p>
+ * 输出只取决于种子与 Prompt，相同请求总是得到相同内容，便于验证缓存；延迟与错误按调用顺序从种子派生。
+ * 等待通过 sleep 完成，被中断时抛出 {@link InterruptedException}，可配合取消与对冲使用。线程安全。
+ */
+public class SimulatedLlmClient implements LlmClient {
+
+    private static final String[] WORDS = {
+            "热点", "用户", "平台", "内容", "数据", "趋势", "讨论", "影响",
+            "行业", "观点", "背景", "分析", "事件", "传播", "关注", "变化"
+    };
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+    private static final double COMPLETION_SIGMA = 0.3;
+
+    private final SimulationOptions options;
+    private final Function<LlmRequest, String> responder;
+    private final TokenCounter tokenCounter = HeuristicTokenCounter.INSTANCE;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    public SimulatedLlmClient(SimulationOptions options) {
+        this(options, null);
+    }
+
+    /**
+     * @param responder 按请求给出输出文本，为 null 时按种子生成中文占位文本
+     */
+    public SimulatedLlmClient(SimulationOptions options, Function<LlmRequest, String> responder) {
+        this.options = Objects.requireNonNull(options, "options");
+        this.responder = responder;
+        Objects.requireNonNull(options.getFirstTokenLatency(), "firstTokenLatency");
+        Objects.requireNonNull(options.getRetryAfter(), "retryAfter");
+        if (options.getTokensPerSecond() <= 0) {
+            throw new IllegalArgumentException("tokensPerSecond must be positive");
+        }
+        if (options.getTokensPerChunk() <= 0) {
+            throw new IllegalArgumentException("tokensPerChunk must be positive");
+        }
+        if (options.getCompletionTokens() <= 0) {
+            throw new IllegalArgumentException("completionTokens must be positive");
+        }
+        if (options.getLatencySigma() < 0 || options.getTailMultiplier() < 1) {
+            throw new IllegalArgumentException("latencySigma must not be negative and tailMultiplier must be >= 1");
+        }
+        if (options.getErrorRate() < 0 || options.getRateLimitRate() < 0
+                || options.getErrorRate() + options.getRateLimitRate() > 1) {
+            throw new IllegalArgumentException("errorRate and rateLimitRate must be within [0, 1]");
+        }
+    }
+
+    @Override
+    public LlmResponse generate(LlmRequest request) throws Exception {
+        Reply reply = begin(request);
+        sleep(reply.firstTokenNanos + tokenNanos(reply.completionTokens));
+        return reply.response;
+    }
+
+    @Override
+    public LlmResponse stream(LlmRequest request, Consumer<? super LlmChunk> consumer) throws Exception {
+        Reply reply = begin(request);
+        LlmChunkAccumulator accumulator = new LlmChunkAccumulator(consumer);
+        LlmResponse response = reply.response;
+        String rest = response.getContent();
+        int index = 0;
+        sleep(reply.firstTokenNanos);
+        do {
+            String delta = tokenCounter.truncate(rest, options.getTokensPerChunk());
+            if (delta.isEmpty() && !rest.isEmpty()) {
+                delta = rest.substring(0, Character.charCount(rest.codePointAt(0)));
+            }
+            rest = rest.substring(delta.length());
+            sleep(tokenNanos(tokenCounter.count(delta)));
+
+            LlmChunk chunk = new LlmChunk();
+            chunk.setRequestId(response.getRequestId());
+            chunk.setIndex(index++);
+            chunk.setDelta(delta);
+            if (rest.isEmpty()) {
+                chunk.setLast(true);
+                chunk.setFinishReason(response.getFinishReason());
+                chunk.setUsage(response.getUsage());
+            }
+            accumulator.accept(chunk);
+        } while (!rest.isEmpty());
+        return accumulator.toResponse();
+    }
+
+    /**
+     * 已收到的调用次数，包括注入错误的调用。
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * 注入的服务端错误次数。
+     */
+    public long getServerErrors() {
+        return serverErrors.sum();
+    }
+
+    /**
+     * 注入的限流错误次数。
+     */
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * 抽样本次调用的延迟与结果；注入错误时在此抛出，限流立即返回，服务端错误在首字延迟之后返回。
+     */
+    private Reply begin(LlmRequest request) throws Exception {
+        Objects.requireNonNull(request, "request");
+        calls.increment();
+        SplittableRandom random = new SplittableRandom(options.getSeed() + sequence.getAndIncrement() * SEED_STEP);
+        long firstTokenNanos = sampleFirstToken(random);
+        double roll = random.nextDouble();
+        if (roll < options.getRateLimitRate()) {
+            rateLimited.increment();
+            throw new LlmException("模拟限流", LlmException.TOO_MANY_REQUESTS, options.getRetryAfter(), null);
+        }
+        if (roll < options.getRateLimitRate() + options.getErrorRate()) {
+            serverErrors.increment();
+            sleep(firstTokenNanos);
+            throw new LlmException("模拟服务端错误", 500);
+        }
+
+        String content = responder == null ? generateText(request) : responder.apply(request);
+        content = content == null ? "" : content;
+        String finishReason = "stop";
+        Integer maxTokens = request.getMaxTokens();
+        if (maxTokens != null && tokenCounter.count(content) > maxTokens) {
+            content = tokenCounter.truncate(content, maxTokens);
+            finishReason = "length";
+        }
+        int completionTokens = tokenCounter.count(content);
+        int promptTokens = tokenCounter.countPrompt(request);
+
+        LlmResponse.Usage usage = new LlmResponse.Usage();
+        usage.setPromptTokens(promptTokens);
+        usage.setCompletionTokens(completionTokens);
+        usage.setTotalTokens(promptTokens + completionTokens);
+        LlmResponse response = new LlmResponse();
+        response.setRequestId(request.getRequestId());
+        response.setContent(content);
+        response.setFinishReason(finishReason);
+        response.setUsage(usage);
+        return new Reply(firstTokenNanos, completionTokens, response);
+    }
+
+    private long sampleFirstToken(SplittableRandom random) {
+        double median = options.getFirstTokenLatency().toNanos();
+        double latency = median * Math.exp(options.getLatencySigma() * random.nextGaussian());
+        if (random.nextDouble() < options.getTailProbability()) {
+            latency *= options.getTailMultiplier();
+        }
+        return (long) latency;
+    }
+
+    /**
+     * 生成中文占位文本，长度在 completionTokens 上下浮动；每个字计一个 Token，内容只取决于种子与 Prompt。
+     * 超出 maxTokens 的部分由调用方截断并标记为 length。
+     */
+    private String generateText(LlmRequest request) {
+        long promptHash = Objects.hash(request.getSystemPrompt(), request.getUserPrompt());
+        SplittableRandom random = new SplittableRandom(options.getSeed() ^ promptHash * SEED_STEP);
+        int target = Math.max(1, (int) Math.round(
+                options.getCompletionTokens() * Math.exp(COMPLETION_SIGMA * random.nextGaussian())));
+        StringBuilder text = new StringBuilder(target + 2);
+        while (text.length() < target) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            int punctuation = random.nextInt(8);
+            if (punctuation == 0) {
+                text.append('。');
+            } else if (punctuation == 1) {
+                text.append('，');
+            }
+        }
+        text.setLength(target);
+        return text.toString();
+    }
+
+    private long tokenNanos(int tokens) {
+        return (long) (tokens * 1_000_000_000d / options.getTokensPerSecond());
+    }
+
+    private static void sleep(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    private static final class Reply {
+
+        private final long firstTokenNanos;
+        private final int completionTokens;
+        private final LlmResponse response;
+
+        private Reply(long firstTokenNanos, int completionTokens, LlmResponse response) {
+            this.firstTokenNanos = firstTokenNanos;
+            this.completionTokens = completionTokens;
+            this.response = response;
+        }
+    }
+}
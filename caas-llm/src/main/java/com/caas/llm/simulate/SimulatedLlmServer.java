@@ -0,0 +1,271 @@
+package com.caas.llm.simulate;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.caas.llm.LlmChunk;
+import com.caas.llm.LlmClient;
+import com.caas.llm.LlmException;
+import com.caas.llm.LlmRequest;
+import com.caas.llm.LlmResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 把任意 {@link LlmClient}（通常是 {@link SimulatedLlmClient}）以 HTTP 接口暴露在本机，供进程外的压测工具或
+ * 其他语言的客户端调用。
+ * <p>
+ * 接口为 {@code POST /v1/chat/completions}，请求与响应采用常见的 Chat Completions 格式：
+ * 读取 messages 中的 system/user 消息以及 max_tokens、temperature、top_p、stop、stream；
+ * {@code stream=true} 时以 SSE 逐片段返回，以 {@code data: [DONE]} 结束。
+ * {@link LlmException} 按其状态码返回，限流错误附带 Retry-After 头。每个请求在独立的虚拟线程上处理。
+ */
+public class SimulatedLlmServer implements AutoCloseable {
+
+    public static final String PATH = "/v1/chat/completions";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LlmClient client;
+
+    private SimulatedLlmServer(HttpServer server, ExecutorService executor, LlmClient client) {
+        this.server = server;
+        this.executor = executor;
+        this.client = client;
+    }
+
+    /**
+     * 在本机回环地址上启动服务。
+     *
+     * @param port 端口，0 表示随机选择空闲端口
+     */
+    public static SimulatedLlmServer start(LlmClient client, int port) throws IOException {
+        Objects.requireNonNull(client, "client");
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        SimulatedLlmServer simulated = new SimulatedLlmServer(server, executor, client);
+        server.createContext(PATH, simulated::handle);
+        server.setExecutor(executor);
+        server.start();
+        return simulated;
+    }
+
+    /**
+     * Chat Completions 接口的完整地址。
+     */
+    public URI getEndpoint() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + PATH);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JSONObject body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = JSON.parseObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            } catch (RuntimeException ex) {
+                sendError(exchange, 400, "请求体不是合法的 JSON", null);
+                return;
+            }
+            if (body == null) {
+                sendError(exchange, 400, "请求体为空", null);
+                return;
+            }
+            LlmRequest request;
+            try {
+                request = toRequest(body);
+            } catch (RuntimeException ex) {
+                sendError(exchange, 400, "请求体格式不正确: " + ex.getMessage(), null);
+                return;
+            }
+            try {
+                if (body.getBooleanValue("stream")) {
+                    stream(exchange, request);
+                } else {
+                    sendJson(exchange, 200, toCompletion(client.generate(request)));
+                }
+            } catch (LlmException ex) {
+                sendError(exchange, ex.getStatusCode(), ex.getMessage(), ex);
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                sendError(exchange, 500, String.valueOf(ex.getMessage()), null);
+            }
+        }
+    }
+
+    /**
+     * 首个片段到达时才发送响应头，此前出现的错误仍能以对应状态码返回；之后的错误以一条 error 事件结束响应。
+     * 没有任何片段时只返回 {@code data: [DONE]}。
+     */
+    private void stream(HttpExchange exchange, LlmRequest request) throws Exception {
+        OutputStream[] out = new OutputStream[1];
+        try {
+            streamChunks(exchange, request, out);
+        } catch (UncheckedIOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            if (out[0] == null) {
+                throw ex;
+            }
+            JSONObject error = new JSONObject();
+            error.put("message", String.valueOf(ex.getMessage()));
+            error.put("code", ex instanceof LlmException ? ((LlmException) ex).getStatusCode() : 500);
+            JSONObject event = new JSONObject();
+            event.put("error", error);
+            writeEvent(out[0], event.toJSONString());
+            return;
+        }
+        if (out[0] == null) {
+            out[0] = startEvents(exchange);
+        }
+        writeEvent(out[0], "[DONE]");
+    }
+
+    private void streamChunks(HttpExchange exchange, LlmRequest request, OutputStream[] out) throws Exception {
+        client.stream(request, chunk -> {
+            try {
+                if (out[0] == null) {
+                    out[0] = startEvents(exchange);
+                }
+                writeEvent(out[0], JSON.toJSONString(toChunk(chunk)));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    private static OutputStream startEvents(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        return exchange.getResponseBody();
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static LlmRequest toRequest(JSONObject body) {
+        LlmRequest request = new LlmRequest();
+        request.setRequestId(body.getString("id"));
+        JSONArray messages = body.getJSONArray("messages");
+        StringBuilder system = new StringBuilder();
+        StringBuilder user = new StringBuilder();
+        if (messages != null) {
+            for (int i = 0; i < messages.size(); i++) {
+                JSONObject message = messages.getJSONObject(i);
+                StringBuilder target = "system".equals(message.getString("role")) ? system : user;
+                if (target.length() > 0) {
+                    target.append('\n');
+                }
+                target.append(message.getString("content"));
+            }
+        }
+        request.setSystemPrompt(system.length() == 0 ? null : system.toString());
+        request.setUserPrompt(user.toString());
+        request.setMaxTokens(body.getInteger("max_tokens"));
+        request.setTemperature(body.getDouble("temperature"));
+        request.setTopP(body.getDouble("top_p"));
+        Object stop = body.get("stop");
+        if (stop instanceof String) {
+            request.setStopSequences(List.of((String) stop));
+        } else if (stop instanceof JSONArray) {
+            request.setStopSequences(((JSONArray) stop).toJavaList(String.class));
+        }
+        return request;
+    }
+
+    private static JSONObject toCompletion(LlmResponse response) {
+        JSONObject message = new JSONObject();
+        message.put("role", "assistant");
+        message.put("content", response.getContent());
+        JSONObject choice = new JSONObject();
+        choice.put("index", 0);
+        choice.put("message", message);
+        choice.put("finish_reason", response.getFinishReason());
+        JSONObject completion = new JSONObject();
+        completion.put("id", response.getRequestId());
+        completion.put("object", "chat.completion");
+        completion.put("choices", new JSONArray().fluentAdd(choice));
+        completion.put("usage", toUsage(response.getUsage()));
+        return completion;
+    }
+
+    private static JSONObject toChunk(LlmChunk chunk) {
+        JSONObject delta = new JSONObject();
+        delta.put("content", chunk.getDelta());
+        JSONObject choice = new JSONObject();
+        choice.put("index", 0);
+        choice.put("delta", delta);
+        choice.put("finish_reason", chunk.getFinishReason());
+        JSONObject event = new JSONObject();
+        event.put("id", chunk.getRequestId());
+        event.put("object", "chat.completion.chunk");
+        event.put("choices", new JSONArray().fluentAdd(choice));
+        if (chunk.getUsage() != null) {
+            event.put("usage", toUsage(chunk.getUsage()));
+        }
+        return event;
+    }
+
+    private static JSONObject toUsage(LlmResponse.Usage usage) {
+        if (usage == null) {
+            return null;
+        }
+        JSONObject json = new JSONObject();
+        json.put("prompt_tokens", usage.getPromptTokens());
+        json.put("completion_tokens", usage.getCompletionTokens());
+        json.put("total_tokens", usage.getTotalTokens());
+        return json;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message, LlmException cause)
+            throws IOException {
+        if (cause != null && cause.getRetryAfter() != null) {
+            exchange.getResponseHeaders().add("Retry-After",
+                    String.valueOf(Math.max(1, (cause.getRetryAfter().toMillis() + 999) / 1000)));
+        }
+        JSONObject error = new JSONObject();
+        error.put("message", message);
+        error.put("code", status);
+        JSONObject body = new JSONObject();
+        body.put("error", error);
+        sendJson(exchange, status, body);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, JSONObject json) throws IOException {
+        byte[] body = json.toJSONString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
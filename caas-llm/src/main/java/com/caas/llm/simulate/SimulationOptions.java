@@ -0,0 +1,146 @@
+package com.caas.llm.simulate;
+
+import java.time.Duration;
+
+/**
+ * {@link SimulatedLlmClient} 的可选参数，均有默认值，默认值大致对应一个中等负载的在线模型服务。
+ * <p>
+ * 首字延迟服从对数正态分布：中位数为 {@link #getFirstTokenLatency()}，离散程度为 {@link #getLatencySigma()}；
+ * 另有 {@link #getTailProbability()} 的概率再乘以 {@link #getTailMultiplier()}，模拟排队或冷启动造成的长尾。
+ * 首字之后按 {@link #getTokensPerSecond()} 匀速输出。
+ */
+public class SimulationOptions {
+
+    private long seed = 1L;
+    private Duration firstTokenLatency = Duration.ofMillis(500);
+    private double latencySigma = 0.5;
+    private double tailProbability = 0.02;
+    private double tailMultiplier = 8;
+    private double tokensPerSecond = 40;
+    private int tokensPerChunk = 4;
+    private int completionTokens = 300;
+    private double errorRate;
+    private double rateLimitRate;
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    /**
+     * 随机种子。相同种子下，相同 Prompt 的输出相同，按调用顺序抽取的延迟与错误序列也相同。
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 首字延迟的中位数。
+     */
+    public Duration getFirstTokenLatency() {
+        return firstTokenLatency;
+    }
+
+    public void setFirstTokenLatency(Duration firstTokenLatency) {
+        this.firstTokenLatency = firstTokenLatency;
+    }
+
+    /**
+     * 首字延迟取对数后的标准差，0 表示固定延迟；0.5 时 p95 约为中位数的 2.3 倍。
+     */
+    public double getLatencySigma() {
+        return latencySigma;
+    }
+
+    public void setLatencySigma(double latencySigma) {
+        this.latencySigma = latencySigma;
+    }
+
+    /**
+     * 落入长尾的概率。
+     */
+    public double getTailProbability() {
+        return tailProbability;
+    }
+
+    public void setTailProbability(double tailProbability) {
+        this.tailProbability = tailProbability;
+    }
+
+    /**
+     * 长尾请求的首字延迟倍数。
+     */
+    public double getTailMultiplier() {
+        return tailMultiplier;
+    }
+
+    public void setTailMultiplier(double tailMultiplier) {
+        this.tailMultiplier = tailMultiplier;
+    }
+
+    /**
+     * 首字之后每秒输出的 Token 数。
+     */
+    public double getTokensPerSecond() {
+        return tokensPerSecond;
+    }
+
+    public void setTokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+    /**
+     * 流式输出时每个片段包含的 Token 数。
+     */
+    public int getTokensPerChunk() {
+        return tokensPerChunk;
+    }
+
+    public void setTokensPerChunk(int tokensPerChunk) {
+        this.tokensPerChunk = tokensPerChunk;
+    }
+
+    /**
+     * 未指定输出内容时生成文本长度的中位数（Token），实际长度在其上下浮动，并受请求的 maxTokens 限制。
+     */
+    public int getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public void setCompletionTokens(int completionTokens) {
+        this.completionTokens = completionTokens;
+    }
+
+    /**
+     * 返回服务端错误（500）的概率。
+     */
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * 返回限流错误（429）的概率。
+     */
+    public double getRateLimitRate() {
+        return rateLimitRate;
+    }
+
+    public void setRateLimitRate(double rateLimitRate) {
+        this.rateLimitRate = rateLimitRate;
+    }
+
+    /**
+     * 限流错误携带的 Retry-After。
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,97 @@
+package com.caas.llm.token;
+
+/**
+ * 不依赖分词器的 Token 估算，按字符类别折算，对中文内容偏保守。
+ * <p>
+ * <ul>
+ *     <li>汉字、假名与谚文：每字计 1 个 Token。</li>
+ *     <li>ASCII 字符：约每 4 个计 1 个 Token。</li>
+ *     <li>其余字符（全角标点、其他文字、表情等）：按 UTF-8 字节数约每 3 字节计 1 个 Token。</li>
+ * </ul>
+ * 只做一次线性扫描，适合在每次调用前估算。
+ */
+public final class HeuristicTokenCounter implements TokenCounter {
+
+    public static final HeuristicTokenCounter INSTANCE = new HeuristicTokenCounter();
+
+    private static final int ASCII_CHARS_PER_TOKEN = 4;
+    private static final int OTHER_BYTES_PER_TOKEN = 3;
+
+    private HeuristicTokenCounter() {
+    }
+
+    @Override
+    public int count(String text) {
+        if (text == null) {
+            return 0;
+        }
+        Tally tally = new Tally();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            tally.add(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return tally.tokens();
+    }
+
+    /**
+     * 单次扫描找到超出预算的位置，不需要反复计数。
+     */
+    @Override
+    public String truncate(String text, int maxTokens) {
+        if (text == null || maxTokens <= 0) {
+            return "";
+        }
+        Tally tally = new Tally();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            tally.add(codePoint);
+            if (tally.tokens() > maxTokens) {
+                return text.substring(0, i);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return text;
+    }
+
+    private static boolean isDense(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x800) {
+            return 2;
+        }
+        return codePoint < 0x10000 ? 3 : 4;
+    }
+
+    /**
+     * 扫描过程中各类字符的累计量。
+     */
+    private static final class Tally {
+
+        private int dense;
+        private int ascii;
+        private int otherBytes;
+
+        void add(int codePoint) {
+            if (codePoint < 0x80) {
+                ascii++;
+            } else if (isDense(codePoint)) {
+                dense++;
+            } else {
+                otherBytes += utf8Length(codePoint);
+            }
+        }
+
+        int tokens() {
+            return dense
+                    + (ascii + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN
+                    + (otherBytes + OTHER_BYTES_PER_TOKEN - 1) / OTHER_BYTES_PER_TOKEN;
+        }
+    }
+}
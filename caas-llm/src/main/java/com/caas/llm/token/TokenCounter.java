@@ -0,0 +1,70 @@
+package com.caas.llm.token;
+
+import com.caas.llm.LlmRequest;
+
+/**
+ * 文本 Token 计数器。
+ * <p>
+ * 默认实现为 {@link HeuristicTokenCounter}；接入了模型分词器时可替换为精确计数，
+ * 预算与限速逻辑只依赖本接口。实现必须线程安全，且对前缀单调：前缀的计数不大于全文的计数。
+ */
+@FunctionalInterface
+public interface TokenCounter {
+
+    /**
+     * 未指定 maxTokens 时为输出预留的 Token 数。
+     */
+    int DEFAULT_COMPLETION_TOKENS = 512;
+
+    /**
+     * 计算文本的 Token 数，null 计为 0。
+     */
+    int count(String text);
+
+    /**
+     * 截取不超过 maxTokens 的最长前缀，不会拆开代理对。
+     * <p>
+     * 默认实现对前缀长度二分查找，共调用 O(log n) 次 {@link #count}。
+     */
+    default String truncate(String text, int maxTokens) {
+        if (text == null || maxTokens <= 0) {
+            return "";
+        }
+        if (count(text) <= maxTokens) {
+            return text;
+        }
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (count(prefix(text, middle)) <= maxTokens) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return prefix(text, low);
+    }
+
+    /**
+     * 请求中 systemPrompt 与 userPrompt 的 Token 数。
+     */
+    default int countPrompt(LlmRequest request) {
+        return count(request.getSystemPrompt()) + count(request.getUserPrompt());
+    }
+
+    /**
+     * 一次调用预计占用的 Token 数：Prompt 加上 maxTokens（未指定时按 {@link #DEFAULT_COMPLETION_TOKENS}）。
+     */
+    default int countRequest(LlmRequest request) {
+        Integer maxTokens = request.getMaxTokens();
+        return countPrompt(request) + (maxTokens == null ? DEFAULT_COMPLETION_TOKENS : maxTokens);
+    }
+
+    private static String prefix(String text, int length) {
+        if (length > 0 && length < text.length() && Character.isHighSurrogate(text.charAt(length - 1))) {
+            length--;
+        }
+        return text.substring(0, length);
+    }
+}
@@ -0,0 +1,1082 @@
+package com.caas.llm;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.caas.domain.content.ArticleDraft;
+import com.caas.domain.content.VideoScript;
+import com.caas.llm.batch.FileBatchLlmClient;
+import com.caas.llm.cache.CachingLlmClient;
+import com.caas.llm.cache.CoalescingLlmClient;
+import com.caas.llm.cache.DiskResponseStore;
+import com.caas.llm.cache.LlmRequestKey;
+import com.caas.llm.processor.ArticleToVideoScriptProcessor;
+import com.caas.llm.processor.VideoScriptJsonParser;
+import com.caas.llm.prompt.PromptTemplate;
+import com.caas.llm.ratelimit.RateLimitedLlmClient;
+import com.caas.llm.routing.RoutingLlmClient;
+import com.caas.llm.routing.RoutingOptions;
+import com.caas.llm.simulate.SimulatedLlmClient;
+import com.caas.llm.simulate.SimulatedLlmServer;
+import com.caas.llm.simulate.SimulationOptions;
+import com.caas.llm.token.HeuristicTokenCounter;
+import com.caas.llm.token.TokenCounter;
+import com.caas.pipeline.Pipeline;
+import com.caas.pipeline.failure.DeadLetter;
+import com.caas.pipeline.failure.RetryPolicy;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+
+/**
+ * caas-llm 模块的自检入口，不依赖真实模型服务。
+ */
+public class LlmSelfTest {
+
+    public static void main(String[] args) throws Exception {
+        checkRequestKey();
+        checkCaching();
+        checkCoalescing();
+        checkStreaming();
+        checkRateLimiting();
+        checkRouting();
+        checkVideoScriptParser();
+        checkPromptTemplate();
+        checkBatch();
+        checkTokenBudget();
+        checkSimulation();
+    }
+
+    private static void checkRequestKey() {
+        LlmRequest first = request("r-1", "你好", "v1");
+        LlmRequest second = request("r-2", "你好", "v1");
+        if (!LlmRequestKey.of(first).equals(LlmRequestKey.of(second))) {
+            throw new IllegalStateException("requestId must not affect the cache key");
+        }
+        if (LlmRequestKey.of(first).equals(LlmRequestKey.of(request("r-1", "你好", "v2")))) {
+            throw new IllegalStateException("promptVariantId must affect the cache key");
+        }
+        LlmRequest shifted = request("r-1", "你好", "v1");
+        shifted.setSystemPrompt("system你");
+        shifted.setUserPrompt("好");
+        if (LlmRequestKey.of(first).equals(LlmRequestKey.of(shifted))) {
+            throw new IllegalStateException("Field boundaries must affect the cache key");
+        }
+        LlmRequest stopped = request("r-1", "你好", "v1");
+        stopped.setStopSequences(List.of());
+        if (LlmRequestKey.of(first).equals(LlmRequestKey.of(stopped))) {
+            throw new IllegalStateException("Empty stop sequences must differ from absent ones");
+        }
+    }
+
+    private static void checkCaching() throws Exception {
+        CountingClient backend = new CountingClient();
+        CachingLlmClient memoryOnly = new CachingLlmClient(backend, 2, Duration.ofMinutes(1));
+        memoryOnly.generate(request("a", "p1", "v1"));
+        LlmResponse hit = memoryOnly.generate(request("b", "p1", "v1"));
+        if (backend.calls.get() != 1 || !"b".equals(hit.getRequestId()) || !"echo:p1".equals(hit.getContent())) {
+            throw new IllegalStateException("Memory cache did not serve the repeated prompt");
+        }
+        hit.setContent("mutated");
+        if (!"echo:p1".equals(memoryOnly.generateAsync(request("c", "p1", "v1")).toCompletableFuture().get()
+                .getContent())) {
+            throw new IllegalStateException("Cached response was mutated by the caller");
+        }
+        // 容量为 2：p1 最近被访问过，写入 p3 时应淘汰 p2。
+        memoryOnly.generate(request("d", "p2", "v1"));
+        memoryOnly.generate(request("e", "p1", "v1"));
+        memoryOnly.generate(request("f", "p3", "v1"));
+        memoryOnly.generate(request("g", "p1", "v1"));
+        memoryOnly.generate(request("h", "p2", "v1"));
+        if (backend.calls.get() != 4 || memoryOnly.size() != 2) {
+            throw new IllegalStateException("Unexpected LRU behaviour, backend calls: " + backend.calls.get());
+        }
+        if (memoryOnly.getHits() != 4 || memoryOnly.getMisses() != 4) {
+            throw new IllegalStateException("Unexpected hit/miss counts: " + memoryOnly.getHits() + "/"
+                    + memoryOnly.getMisses());
+        }
+
+        Path directory = Files.createTempDirectory("caas-llm-cache");
+        try {
+            CountingClient diskBackend = new CountingClient();
+            new CachingLlmClient(diskBackend, 16, Duration.ofMinutes(1), new DiskResponseStore(directory))
+                    .generate(request("a", "persisted", "v1"));
+            // 新实例模拟进程重启：内存为空，应从磁盘层命中。
+            CachingLlmClient restarted = new CachingLlmClient(diskBackend, 16, Duration.ofMinutes(1),
+                    new DiskResponseStore(directory));
+            LlmResponse restored = restarted.generate(request("b", "persisted", "v1"));
+            if (diskBackend.calls.get() != 1 || restarted.getDiskHits() != 1
+                    || !"echo:persisted".equals(restored.getContent())
+                    || restored.getUsage() == null || restored.getUsage().getTotalTokens() != 3) {
+                throw new IllegalStateException("Disk cache did not survive a restart");
+            }
+            restarted.generate(request("c", "persisted", "v1"));
+            if (restarted.getMemoryHits() != 1) {
+                throw new IllegalStateException("Disk hit was not promoted to memory");
+            }
+
+            CachingLlmClient expiring = new CachingLlmClient(diskBackend, 16, Duration.ofMillis(20),
+                    new DiskResponseStore(directory));
+            expiring.generate(request("a", "short", "v1"));
+            Thread.sleep(40);
+            expiring.generate(request("b", "short", "v1"));
+            if (diskBackend.calls.get() != 3) {
+                throw new IllegalStateException("Expired entries were served from cache");
+            }
+
+            // 磁盘命中回填内存时沿用原过期时间，而不是从读取时刻重新计算 TTL。
+            new CachingLlmClient(diskBackend, 16, Duration.ofMillis(300), new DiskResponseStore(directory))
+                    .generate(request("a", "aging", "v1"));
+            Thread.sleep(200);
+            CachingLlmClient promoted = new CachingLlmClient(diskBackend, 16, Duration.ofMillis(300),
+                    new DiskResponseStore(directory));
+            promoted.generate(request("b", "aging", "v1"));
+            Thread.sleep(150);
+            promoted.generate(request("c", "aging", "v1"));
+            if (promoted.getDiskHits() != 1 || diskBackend.calls.get() != 5) {
+                throw new IllegalStateException("Disk hit extended the entry's lifetime");
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void checkCoalescing() throws Exception {
+        AtomicReference<CountDownLatch> gate = new AtomicReference<>(new CountDownLatch(1));
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean failing = new AtomicBoolean(true);
+        LlmClient slow = request -> {
+            calls.incrementAndGet();
+            gate.get().await();
+            if (failing.get()) {
+                throw new IllegalStateException("provider unavailable");
+            }
+            return new CountingClient().generate(request);
+        };
+        CoalescingLlmClient client = new CoalescingLlmClient(slow);
+
+        // 首轮调用失败：所有等待方都应收到同一异常。
+        int callers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<LlmResponse>> failed = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                String requestId = "fail-" + i;
+                failed.add(executor.submit(() -> client.generate(request(requestId, "same", "v1"))));
+            }
+            awaitCoalesced(client, callers - 1);
+            gate.get().countDown();
+            for (Future<LlmResponse> future : failed) {
+                try {
+                    future.get();
+                    throw new IllegalStateException("Coalesced failure was not propagated");
+                } catch (ExecutionException ex) {
+                    if (!(ex.getCause() instanceof IllegalStateException)
+                            || !"provider unavailable".equals(ex.getCause().getMessage())) {
+                        throw ex;
+                    }
+                }
+            }
+            if (calls.get() != 1 || client.getInFlight() != 0) {
+                throw new IllegalStateException("Failed call was not shared or not cleared: " + calls.get());
+            }
+
+            // 失败后重新发起，异步调用同样共享一次调用，并各自拿到自己的 requestId。
+            failing.set(false);
+            gate.set(new CountDownLatch(1));
+            List<CompletableFuture<LlmResponse>> succeeded = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                succeeded.add(client.generateAsync(request("ok-" + i, "same", "v1")).toCompletableFuture());
+            }
+            gate.get().countDown();
+            for (int i = 0; i < callers; i++) {
+                LlmResponse response = succeeded.get(i).get();
+                if (!("ok-" + i).equals(response.getRequestId()) || !"echo:same".equals(response.getContent())) {
+                    throw new IllegalStateException("Unexpected coalesced response: " + response.getRequestId());
+                }
+            }
+            if (calls.get() != 2 || client.getCalls() != 2) {
+                throw new IllegalStateException("Async calls were not coalesced: " + calls.get());
+            }
+
+            // 发起方自己的消费者抛出异常：只抛给发起方，等待方照常拿到下游结果。
+            gate.set(new CountDownLatch(1));
+            Future<LlmResponse> leader = executor.submit(() -> client.stream(request("lead", "local", "v1"), chunk -> {
+                throw new IllegalArgumentException("consumer broke");
+            }));
+            awaitCalls(calls, 3);
+            long coalescedBefore = client.getCoalesced();
+            Future<LlmResponse> follower = executor.submit(() -> client.generate(request("follow", "local", "v1")));
+            awaitCoalesced(client, coalescedBefore + 1);
+            gate.get().countDown();
+            try {
+                leader.get(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("Leader consumer failure was swallowed");
+            } catch (ExecutionException ex) {
+                if (!(ex.getCause() instanceof IllegalArgumentException)) {
+                    throw ex;
+                }
+            }
+            if (!"echo:local".equals(follower.get(5, TimeUnit.SECONDS).getContent())) {
+                throw new IllegalStateException("Leader consumer failure reached the follower");
+            }
+
+            // 发起方被中断：等待方不收到中断，而是自己重新发起调用。
+            gate.set(new CountDownLatch(1));
+            Future<LlmResponse> interrupted = executor.submit(() -> client.generate(request("lead", "cut", "v1")));
+            awaitCalls(calls, 4);
+            coalescedBefore = client.getCoalesced();
+            Future<LlmResponse> survivor = executor.submit(() -> client.generate(request("follow", "cut", "v1")));
+            awaitCoalesced(client, coalescedBefore + 1);
+            interrupted.cancel(true);
+            awaitCalls(calls, 5);
+            gate.get().countDown();
+            LlmResponse survived = survivor.get(5, TimeUnit.SECONDS);
+            if (!"follow".equals(survived.getRequestId()) || !"echo:cut".equals(survived.getContent())) {
+                throw new IllegalStateException("Follower did not take over after the leader was interrupted");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitCalls(AtomicInteger calls, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls.get() < expected) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Call was not started: " + calls.get());
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitCoalesced(CoalescingLlmClient client, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (client.getCoalesced() < expected) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Callers were not coalesced: " + client.getCoalesced());
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void checkStreaming() throws Exception {
+        // 默认实现：完整响应作为单个结束片段回调。
+        List<LlmChunk> fallback = new ArrayList<>();
+        LlmResponse whole = new CountingClient().stream(request("a", "p", "v1"), fallback::add);
+        if (fallback.size() != 1 || !fallback.get(0).isLast() || !"echo:p".equals(fallback.get(0).getDelta())
+                || !"stop".equals(whole.getFinishReason())) {
+            throw new IllegalStateException("Default stream fallback is broken");
+        }
+
+        StubStreamingClient stub = new StubStreamingClient(List.of("第一段", "，第二段", "，第三段。"));
+        CollectingProcessor processor = new CollectingProcessor(new CachingLlmClient(stub, 16, Duration.ofMinutes(1)));
+        String result = processor.process("topic");
+        if (!"第一段，第二段，第三段。".equals(result) || processor.chunks.size() != 3) {
+            throw new IllegalStateException("Streaming processor did not receive every chunk: " + processor.chunks);
+        }
+        if (processor.firstChunkAt >= stub.finishedAt) {
+            throw new IllegalStateException("First chunk was not delivered before the stream finished");
+        }
+        LlmChunk last = processor.chunks.get(processor.chunks.size() - 1);
+        if (!last.isLast() || !"stop".equals(last.getFinishReason()) || last.getUsage() == null
+                || last.getUsage().getCompletionTokens() != 3) {
+            throw new IllegalStateException("Final chunk must carry finishReason and usage");
+        }
+        for (int i = 0; i < processor.chunks.size() - 1; i++) {
+            if (processor.chunks.get(i).isLast() || processor.chunks.get(i).getUsage() != null) {
+                throw new IllegalStateException("Only the final chunk may carry usage");
+            }
+        }
+
+        // 缓存命中后不再调用模型，完整响应作为单个结束片段回调；异步流式路径同样生效。
+        processor.chunks.clear();
+        String cached = processor.processAsync("topic").toCompletableFuture().get();
+        if (!result.equals(cached) || stub.calls.get() != 1 || processor.chunks.size() != 1) {
+            throw new IllegalStateException("Cached stream was not replayed as a single chunk");
+        }
+    }
+
+    private static void checkRateLimiting() throws Exception {
+        // RPM=600：突发容量 60，之后每秒补充 10 个，第 61、62 个请求需要等待。
+        RateLimitedLlmClient perMinute = new RateLimitedLlmClient(new CountingClient(), 600, 1_000_000, 64);
+        long start = System.nanoTime();
+        for (int i = 0; i < 62; i++) {
+            perMinute.generate(request("r-" + i, "p" + i, "v1"));
+        }
+        if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(150)) {
+            throw new IllegalStateException("RPM budget was not enforced");
+        }
+
+        // RPM=1：桶容量取 1，补充速率仍按完整配额计算，第二次调用约 60 秒后放行而不是永远等待。
+        RateLimitedLlmClient perMinuteOne = new RateLimitedLlmClient(new CountingClient(), 1, 1_000_000, 4);
+        perMinuteOne.generate(request("m-0", "m-0", "v1"));
+        CompletableFuture<LlmResponse> second = perMinuteOne.generateAsync(request("m-1", "m-1", "v1"))
+                .toCompletableFuture();
+        awaitQueued(perMinuteOne, 0);
+        Duration delay = perMinuteOne.getAdmissionDelay();
+        if (delay.compareTo(Duration.ofSeconds(50)) < 0 || delay.compareTo(Duration.ofSeconds(60)) > 0) {
+            throw new IllegalStateException("Unexpected admission delay at RPM=1: " + delay);
+        }
+        second.cancel(true);
+
+        // TPM=6000：突发容量 600。每次预留约 500 Token，按实际用量（3）退回后第二次调用无需等待。
+        RateLimitedLlmClient perToken = new RateLimitedLlmClient(new CountingClient(), 1000, 6000, 4);
+        start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            LlmRequest request = request("t-" + i, "p" + i, "v1");
+            request.setMaxTokens(500);
+            perToken.generate(request);
+        }
+        if (System.nanoTime() - start > TimeUnit.SECONDS.toNanos(2)) {
+            throw new IllegalStateException("Token reservations were not reconciled against usage");
+        }
+
+        // 限流错误：并发上限减半，并按 Retry-After 暂停放行。
+        AtomicBoolean throttle = new AtomicBoolean(true);
+        LlmClient limited = request -> {
+            if (throttle.getAndSet(false)) {
+                throw new LlmException("rate limited", LlmException.TOO_MANY_REQUESTS, Duration.ofMillis(80), null);
+            }
+            return new CountingClient().generate(request);
+        };
+        RateLimitedLlmClient adaptive = new RateLimitedLlmClient(limited, 1000, 1_000_000, 8);
+        int before = adaptive.getConcurrencyLimit();
+        try {
+            adaptive.generate(request("x", "p", "v1"));
+            throw new IllegalStateException("Rate limit error was swallowed");
+        } catch (LlmException expected) {
+            // 预期
+        }
+        start = System.nanoTime();
+        adaptive.generate(request("y", "p", "v1"));
+        if (adaptive.getConcurrencyLimit() >= before || adaptive.getThrottled() != 1
+                || System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(60)) {
+            throw new IllegalStateException("429 did not shrink concurrency or pause admission");
+        }
+
+        // 同一批并发请求同时收到 429：只收缩一次。
+        CountDownLatch burst = new CountDownLatch(4);
+        LlmClient burstLimited = request -> {
+            burst.countDown();
+            burst.await();
+            throw new LlmException("rate limited", LlmException.TOO_MANY_REQUESTS, Duration.ofMillis(1), null);
+        };
+        RateLimitedLlmClient windowed = new RateLimitedLlmClient(burstLimited, 1000, 1_000_000, 8);
+        int initial = windowed.getConcurrencyLimit();
+        ExecutorService burstExecutor = Executors.newCachedThreadPool();
+        try {
+            List<Future<LlmResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String requestId = "b-" + i;
+                futures.add(burstExecutor.submit(() -> windowed.generate(request(requestId, requestId, "v1"))));
+            }
+            for (Future<LlmResponse> future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    throw new IllegalStateException("Rate limit error was swallowed");
+                } catch (ExecutionException expected) {
+                    // 预期
+                }
+            }
+        } finally {
+            burstExecutor.shutdownNow();
+        }
+        if (windowed.getThrottled() != 4 || windowed.getConcurrencyLimit() != initial / 2) {
+            throw new IllegalStateException("Concurrent 429s shrank the limit more than once: "
+                    + windowed.getConcurrencyLimit());
+        }
+
+        // 预留使用注入的 TokenCounter。
+        AtomicInteger counted = new AtomicInteger();
+        TokenCounter countingCounter = text -> {
+            counted.incrementAndGet();
+            return HeuristicTokenCounter.INSTANCE.count(text);
+        };
+        new RateLimitedLlmClient(new CountingClient(), 1000, 1_000_000, 4, Duration.ofSeconds(30), countingCounter)
+                .generate(request("c", "p", "v1"));
+        if (counted.get() == 0) {
+            throw new IllegalStateException("Injected TokenCounter was not used for reservations");
+        }
+
+        // 公平排队：并发上限为 1 时按到达顺序放行。
+        CountDownLatch gate = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        LlmClient gated = request -> {
+            gate.await();
+            order.add(request.getRequestId());
+            return new CountingClient().generate(request);
+        };
+        RateLimitedLlmClient fair = new RateLimitedLlmClient(gated, 1000, 1_000_000, 1);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            List<Future<LlmResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                String requestId = "q-" + i;
+                futures.add(executor.submit(() -> fair.generate(request(requestId, requestId, "v1"))));
+                awaitQueued(fair, i);
+            }
+            gate.countDown();
+            for (Future<LlmResponse> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!List.of("q-0", "q-1", "q-2", "q-3", "q-4").equals(order)) {
+            throw new IllegalStateException("Callers were not admitted in arrival order: " + order);
+        }
+
+        // 排队中的异步调用被取消：立即离开队列，不会再调用被装饰的客户端。
+        CountDownLatch held = new CountDownLatch(1);
+        AtomicInteger admitted = new AtomicInteger();
+        RateLimitedLlmClient single = new RateLimitedLlmClient(request -> {
+            admitted.incrementAndGet();
+            held.await();
+            return new CountingClient().generate(request);
+        }, 1000, 1_000_000, 1);
+        CompletableFuture<LlmResponse> running = single.generateAsync(request("h-0", "h-0", "v1"))
+                .toCompletableFuture();
+        awaitQueued(single, 0);
+        CompletableFuture<LlmResponse> queued = single.generateAsync(request("h-1", "h-1", "v1"))
+                .toCompletableFuture();
+        awaitQueued(single, 1);
+        queued.cancel(true);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (single.getQueued() != 0) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Cancelled caller stayed in the queue");
+            }
+            Thread.sleep(1);
+        }
+        held.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        Thread.sleep(20);
+        if (admitted.get() != 1 || single.getInFlight() != 0) {
+            throw new IllegalStateException("Cancelled caller was admitted");
+        }
+    }
+
+    private static void awaitQueued(RateLimitedLlmClient client, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (client.getQueued() + client.getInFlight() < expected + 1) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Caller was not queued");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void checkRouting() throws Exception {
+        RoutingOptions options = new RoutingOptions();
+        options.setInitialHedgeDelay(Duration.ofMillis(30));
+        options.setFailureThreshold(1);
+        options.setOpenDuration(Duration.ofMinutes(1));
+
+        // 对冲：主后端固定 500ms，30ms 后向快后端发对冲请求，快后端胜出，慢后端被取消。
+        StubBackend slow = new StubBackend("slow", () -> 500, null);
+        StubBackend fast = new StubBackend("fast", () -> 5, null);
+        RoutingLlmClient hedged = new RoutingLlmClient(List.of(slow, fast), options);
+        long start = System.nanoTime();
+        LlmResponse response = hedged.generate(request("h-1", "p", "v1"));
+        long elapsed = System.nanoTime() - start;
+        if (!"fast".equals(response.getContent()) || elapsed > TimeUnit.MILLISECONDS.toNanos(300)
+                || hedged.getHedges() != 1 || hedged.getHedgeWins() != 1) {
+            throw new IllegalStateException("Hedged request did not win: " + response.getContent());
+        }
+        awaitCount(slow.interrupted, 1);
+        // 之后按观测延迟直接选择快后端，请求不再落到慢后端。
+        for (int i = 0; i < 5; i++) {
+            hedged.generate(request("h-" + i, "p", "v1"));
+        }
+        if (slow.calls.get() != 1 || hedged.getSelections(1) != 6) {
+            throw new IllegalStateException("Router kept choosing the slow backend: " + slow.calls.get());
+        }
+
+        // 故障转移 + 熔断：失败的后端熔断后不再被选择。
+        StubBackend broken = new StubBackend("broken", () -> 1, new LlmException("unavailable", 503));
+        StubBackend healthy = new StubBackend("healthy", () -> 1, null);
+        RoutingLlmClient failover = new RoutingLlmClient(List.of(broken, healthy), options);
+        for (int i = 0; i < 5; i++) {
+            if (!"healthy".equals(failover.generate(request("f-" + i, "p", "v1")).getContent())) {
+                throw new IllegalStateException("Failover did not reach the healthy backend");
+            }
+        }
+        if (broken.calls.get() != 1 || !failover.isCircuitOpen(0) || failover.isCircuitOpen(1)) {
+            throw new IllegalStateException("Circuit did not open for the broken backend");
+        }
+        List<LlmChunk> chunks = new ArrayList<>();
+        failover.stream(request("s", "p", "v1"), chunks::add);
+        if (chunks.size() != 1 || broken.calls.get() != 1) {
+            throw new IllegalStateException("Streaming call was routed to an open circuit");
+        }
+
+        // 不可重试的错误直接抛出，不故障转移。
+        StubBackend rejecting = new StubBackend("rejecting", () -> 1, new LlmException("bad request", 400));
+        StubBackend unused = new StubBackend("unused", () -> 1, null);
+        try {
+            new RoutingLlmClient(List.of(rejecting, unused), options).generate(request("b", "p", "v1"));
+            throw new IllegalStateException("Non-retryable error was not propagated");
+        } catch (LlmException expected) {
+            if (expected.getStatusCode() != 400 || unused.calls.get() != 0) {
+                throw expected;
+            }
+        }
+
+        // 长尾分布：10% 的请求 400ms，其余 5ms；对冲后整体延迟远低于长尾。
+        AtomicInteger sequence = new AtomicInteger();
+        StubBackend tailA = new StubBackend("tailA", () -> sequence.incrementAndGet() % 10 == 0 ? 400 : 5, null);
+        StubBackend tailB = new StubBackend("tailB", () -> sequence.incrementAndGet() % 10 == 0 ? 400 : 5, null);
+        RoutingOptions tailOptions = new RoutingOptions();
+        tailOptions.setInitialHedgeDelay(Duration.ofMillis(50));
+        RoutingLlmClient tail = new RoutingLlmClient(List.of(tailA, tailB), tailOptions);
+        long worst = 0;
+        for (int i = 0; i < 40; i++) {
+            long callStart = System.nanoTime();
+            tail.generate(request("t-" + i, "p", "v1"));
+            worst = Math.max(worst, System.nanoTime() - callStart);
+        }
+        if (worst > TimeUnit.MILLISECONDS.toNanos(300) || tail.getHedges() == 0) {
+            throw new IllegalStateException("Hedging did not cut tail latency: " + worst / 1_000_000 + "ms");
+        }
+    }
+
+    private static void awaitCount(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (counter.get() < expected) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Counter did not reach " + expected);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void checkVideoScriptParser() throws Exception {
+        String json = """
+                {"title": "热点速览", "style": "news", "target_duration_seconds": "120", "language": "zh-CN",
+                 "narration": "旁白\\u4e2d\\"引号\\"\\n换行", "extra": {"nested": [1, {"x": null}], "flag": true},
+                 "segments": [
+                   {"order_index": 1, "type": "intro", "text": "开场", "visual_notes": "全景",
+                    "duration_seconds": 8.5, "asset_urls": ["https://a", "https://b"], "start_offset_seconds": 0},
+                   {"order_index": 2, "type": "outro", "text": "结尾", "asset_urls": "https://c", "unknown": [[]]}
+                 ]}""";
+        String wrapped = "好的，以下是脚本 {注意格式}：\n```json\n" + json + "\n```\n以上 {完}。";
+
+        VideoScript whole = VideoScriptJsonParser.parse(wrapped);
+        JSONObject root = JSON.parseObject(json);
+        if (!root.getString("narration").equals(whole.getNarration()) || whole.getTargetDurationSeconds() != 120
+                || !"热点速览".equals(whole.getTitle()) || whole.getSegments().size() != 2) {
+            throw new IllegalStateException("Parser disagrees with fastjson on root fields");
+        }
+        VideoScript.Segment first = whole.getSegments().get(0);
+        VideoScript.Segment second = whole.getSegments().get(1);
+        if (first.getDurationSeconds() != 8 || !List.of("https://a", "https://b").equals(first.getAssetUrls())
+                || first.getStartOffsetSeconds() != 0 || !"全景".equals(first.getVisualNotes())
+                || !List.of("https://c").equals(second.getAssetUrls()) || second.getDurationSeconds() != null) {
+            throw new IllegalStateException("Unexpected segment fields");
+        }
+
+        // 逐字符推入（字符串、转义与数字都会被切开）结果一致，且分段完成即回调。
+        List<Integer> seen = new ArrayList<>();
+        VideoScriptJsonParser parser = new VideoScriptJsonParser(segment -> seen.add(segment.getOrderIndex()));
+        for (int i = 0; i < wrapped.length(); i++) {
+            parser.feed(wrapped.subSequence(i, i + 1));
+            if (i == wrapped.indexOf("\"outro\"") && !seen.equals(List.of(1))) {
+                throw new IllegalStateException("First segment was not delivered before the second one arrived");
+            }
+        }
+        VideoScript chunked = parser.finish();
+        if (!whole.getNarration().equals(chunked.getNarration()) || !seen.equals(List.of(1, 2))) {
+            throw new IllegalStateException("Chunked parse differs from one-shot parse");
+        }
+
+        try {
+            VideoScriptJsonParser.parse(json.substring(0, json.length() / 2));
+            throw new IllegalStateException("Truncated JSON was accepted");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+
+        // 流式处理器：分段在整个响应结束前就已交给 onSegment。
+        List<String> deltas = new ArrayList<>();
+        for (int i = 0; i < wrapped.length(); i += 16) {
+            deltas.add(wrapped.substring(i, Math.min(wrapped.length(), i + 16)));
+        }
+        StubStreamingClient stub = new StubStreamingClient(deltas);
+        List<Long> segmentTimes = new CopyOnWriteArrayList<>();
+        ArticleToVideoScriptProcessor processor = new ArticleToVideoScriptProcessor(stub, null, null, true) {
+            @Override
+            protected void onSegment(ArticleDraft input, VideoScript.Segment segment) {
+                segmentTimes.add(System.nanoTime());
+            }
+        };
+        ArticleDraft draft = new ArticleDraft();
+        draft.setHotTopicId("topic-1");
+        VideoScript streamed = processor.process(draft);
+        if (segmentTimes.size() != 2 || segmentTimes.get(0) >= stub.finishedAt
+                || !"topic-1".equals(streamed.getHotTopicId()) || streamed.getSegments().size() != 2) {
+            throw new IllegalStateException("Streaming processor did not parse incrementally");
+        }
+    }
+
+    private static void checkPromptTemplate() throws Exception {
+        PromptTemplate template = PromptTemplate.compile("固定说明。\n- 名称：{{name}}\n- 数量：{{ count }}\n再次：{{name}}");
+        if (!List.of("name", "count").equals(template.getVariables())
+                || !"固定说明。\n- 名称：".equals(template.getStaticPrefix())) {
+            throw new IllegalStateException("Unexpected template structure: " + template.getVariables());
+        }
+        String rendered = template.render("热点", null);
+        if (!"固定说明。\n- 名称：热点\n- 数量：\n再次：热点".equals(rendered)) {
+            throw new IllegalStateException("Unexpected rendering: " + rendered);
+        }
+        try {
+            template.render("only-one");
+            throw new IllegalStateException("Wrong argument count was accepted");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+
+        // 处理器请求：两条不同的数据共享同一段静态前缀，并在请求上标注其长度。
+        List<LlmRequest> requests = new CopyOnWriteArrayList<>();
+        LlmClient recording = request -> {
+            requests.add(request);
+            LlmResponse response = new CountingClient().generate(request);
+            response.setContent("{\"title\": \"t\", \"segments\": []}");
+            return response;
+        };
+        ArticleToVideoScriptProcessor processor = new ArticleToVideoScriptProcessor(recording);
+        for (String title : List.of("第一篇", "第二篇")) {
+            ArticleDraft draft = new ArticleDraft();
+            draft.setTitle(title);
+            draft.setBody("正文 " + title);
+            processor.process(draft);
+        }
+        LlmRequest first = requests.get(0);
+        LlmRequest second = requests.get(1);
+        int prefix = first.getCacheablePrefixLength();
+        if (prefix < 200 || !first.getUserPrompt().regionMatches(0, second.getUserPrompt(), 0, prefix)
+                || !first.getUserPrompt().contains("第一篇") || first.getUserPrompt().indexOf("第一篇") < prefix
+                || !"article-to-video-v2".equals(first.getAttributes().get("promptVariantId"))) {
+            throw new IllegalStateException("Static prompt prefix was not marked correctly: " + prefix);
+        }
+    }
+
+    private static void checkBatch() throws Exception {
+        Path directory = Files.createTempDirectory("caas-llm-batch");
+        try {
+            AtomicInteger workerCalls = new AtomicInteger();
+            LlmClient worker = request -> {
+                workerCalls.incrementAndGet();
+                if ("bad".equals(request.getUserPrompt())) {
+                    throw new LlmException("invalid prompt", 400);
+                }
+                return new CountingClient().generate(request);
+            };
+            FileBatchLlmClient client = new FileBatchLlmClient(directory, worker, Duration.ofMillis(30));
+
+            // 提交后未到完成时间前保持 SUBMITTED，之后一次轮询完成全部请求。
+            FileBatchLlmClient slow = new FileBatchLlmClient(directory, worker, Duration.ofMinutes(1));
+            LlmBatchJob job = slow.submitBatch(List.of(request("r-1", "x", "v1")));
+            if (slow.pollBatch(job.getJobId()).isTerminal() || workerCalls.get() != 0) {
+                throw new IllegalStateException("Batch job completed before its delay");
+            }
+            List<LlmBatchResult> results = client.generateBatch(
+                    List.of(request("r-2", "y", "v1"), request("r-3", "bad", "v1"), request("r-4", "z", "v1")),
+                    Duration.ofMillis(10));
+            if (results.size() != 3 || !"r-2".equals(results.get(0).getRequestId())
+                    || !"echo:y".equals(results.get(0).getResponse().getContent())
+                    || results.get(1).isSuccess() || results.get(1).getStatusCode() != 400
+                    || !"echo:z".equals(results.get(2).getResponse().getContent())) {
+                throw new IllegalStateException("Unexpected batch results");
+            }
+
+            // 流水线批量模式：一批输入只提交一个批量任务；失败项经死信隔离，其余正常输出。
+            int jobsBefore = countJobs(directory);
+            Iterator<String> inputs = List.of("a", "b", "bad", "c").iterator();
+            List<String> outputs = new ArrayList<>();
+            List<DeadLetter> deadLetters = new ArrayList<>();
+            CollectingProcessor processor = new CollectingProcessor(client);
+            Pipeline.from(() -> inputs.hasNext() ? inputs.next() : null)
+                    .then(processor.asBatch(Duration.ofMillis(10)))
+                    .batchSize(4)
+                    .deadLetter(deadLetters::add)
+                    .to(outputs::add)
+                    .run();
+            if (!List.of("echo:a", "echo:b", "echo:c").equals(outputs) || deadLetters.size() != 1
+                    || !"bad".equals(deadLetters.get(0).getSourceItem())) {
+                throw new IllegalStateException("Unexpected batch pipeline output: " + outputs);
+            }
+            // 整批任务 1 个；逐条隔离时已成功的 3 项取回暂存结果，只为失败项再提交 1 个。
+            long jobs = countJobs(directory) - jobsBefore;
+            if (jobs != 2) {
+                throw new IllegalStateException("Unexpected number of batch jobs: " + jobs);
+            }
+
+            // 可重试的失败：整批重试与逐条隔离都只重新提交失败项，其余各项只提交一次。
+            Map<String, AtomicInteger> submissions = new ConcurrentHashMap<>();
+            LlmClient flakyWorker = request -> {
+                submissions.computeIfAbsent(request.getUserPrompt(), key -> new AtomicInteger()).incrementAndGet();
+                if ("flaky".equals(request.getUserPrompt())) {
+                    throw new LlmException("upstream error", 500);
+                }
+                return new CountingClient().generate(request);
+            };
+            FileBatchLlmClient flakyClient = new FileBatchLlmClient(directory, flakyWorker, Duration.ZERO);
+            Iterator<String> retried = List.of("d", "flaky", "e").iterator();
+            List<String> retriedOutputs = new ArrayList<>();
+            List<DeadLetter> retriedDeadLetters = new ArrayList<>();
+            Pipeline.from(() -> retried.hasNext() ? retried.next() : null)
+                    .then(new CollectingProcessor(flakyClient).asBatch(Duration.ofMillis(1)))
+                    .batchSize(3)
+                    .retry(RetryPolicy.exponential(3, Duration.ZERO, Duration.ZERO))
+                    .deadLetter(retriedDeadLetters::add)
+                    .to(retriedOutputs::add)
+                    .run();
+            if (!List.of("echo:d", "echo:e").equals(retriedOutputs) || retriedDeadLetters.size() != 1
+                    || submissions.get("d").get() != 1 || submissions.get("e").get() != 1
+                    || submissions.get("flaky").get() != 6) {
+                throw new IllegalStateException("Succeeded batch items were resubmitted: " + submissions);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void checkTokenBudget() throws Exception {
+        TokenCounter heuristic = HeuristicTokenCounter.INSTANCE;
+        if (heuristic.count("你好，世界") != 5 || heuristic.count("abcde") != 2 || heuristic.count(null) != 0
+                || heuristic.count("中文 text") != 4) {
+            throw new IllegalStateException("Unexpected heuristic estimate: " + heuristic.count("中文 text"));
+        }
+        if (!"你好".equals(heuristic.truncate("你好世界", 2)) || !"a😀".equals(heuristic.truncate("a😀😀", 3))) {
+            throw new IllegalStateException("Unexpected heuristic truncation");
+        }
+        // 精确计数器只需实现 count，截断由默认实现二分得到，且不拆开代理对。
+        TokenCounter exact = text -> text == null ? 0 : text.length();
+        if (!"abc".equals(exact.truncate("abcdef", 3)) || !"a".equals(exact.truncate("a😀", 2))) {
+            throw new IllegalStateException("Unexpected default truncation");
+        }
+
+        List<LlmRequest> requests = new CopyOnWriteArrayList<>();
+        LlmClient recording = request -> {
+            requests.add(request);
+            LlmResponse response = new CountingClient().generate(request);
+            response.setContent("{\"title\": \"t\", \"segments\": []}");
+            return response;
+        };
+        ArticleToVideoScriptProcessor processor = new ArticleToVideoScriptProcessor(recording, null, 200);
+        processor.setContextWindow(800);
+        ArticleDraft draft = new ArticleDraft();
+        draft.setTitle("长文标题");
+        draft.setSummary("一句话摘要");
+        draft.setBody("正文内容。".repeat(2000));
+        processor.process(draft);
+        LlmRequest trimmed = requests.get(0);
+        String prompt = trimmed.getUserPrompt();
+        if (heuristic.countRequest(trimmed) > 800 || heuristic.countRequest(trimmed) < 700
+                || !prompt.contains("长文标题") || !prompt.contains("一句话摘要")
+                || !prompt.contains(PromptTemplate.TRUNCATION_MARK)) {
+            throw new IllegalStateException("Body was not trimmed to the budget: " + heuristic.countRequest(trimmed));
+        }
+
+        // 正文与摘要截空后仍放不下时直接失败，不调用模型。
+        processor.setContextWindow(null);
+        processor.setMaxInputTokens(100);
+        try {
+            processor.process(draft);
+            throw new IllegalStateException("Oversized prompt was sent");
+        } catch (LlmException expected) {
+            if (expected.getStatusCode() != 400 || requests.size() != 1) {
+                throw new IllegalStateException("Unexpected budget failure", expected);
+            }
+        }
+    }
+
+    private static void checkSimulation() throws Exception {
+        SimulationOptions options = new SimulationOptions();
+        options.setSeed(7);
+        options.setFirstTokenLatency(Duration.ofMillis(20));
+        options.setLatencySigma(0);
+        options.setTailProbability(0);
+        options.setTokensPerSecond(5000);
+        options.setTokensPerChunk(5);
+        options.setCompletionTokens(60);
+        SimulatedLlmClient client = new SimulatedLlmClient(options);
+
+        // 输出只取决于种子与 Prompt；用量按估算填写，超出 maxTokens 时截断并标记 length。
+        long started = System.nanoTime();
+        LlmResponse first = client.generate(request("a", "同一个问题", "v1"));
+        long elapsed = System.nanoTime() - started;
+        LlmResponse again = new SimulatedLlmClient(options).generate(request("b", "同一个问题", "v1"));
+        LlmResponse.Usage usage = first.getUsage();
+        if (!first.getContent().equals(again.getContent()) || first.getContent().isEmpty()
+                || usage.getCompletionTokens() != HeuristicTokenCounter.INSTANCE.count(first.getContent())
+                || usage.getPromptTokens() != HeuristicTokenCounter.INSTANCE.countPrompt(request("a", "同一个问题", "v1"))
+                || usage.getTotalTokens() != usage.getPromptTokens() + usage.getCompletionTokens()
+                || elapsed < TimeUnit.MILLISECONDS.toNanos(20)) {
+            throw new IllegalStateException("Unexpected simulated response: " + first.getContent());
+        }
+        LlmRequest capped = request("c", "另一个问题", "v1");
+        capped.setMaxTokens(10);
+        LlmResponse truncated = client.generate(capped);
+        if (truncated.getUsage().getCompletionTokens() > 10 || !"length".equals(truncated.getFinishReason())) {
+            throw new IllegalStateException("maxTokens was not applied: " + truncated.getUsage().getCompletionTokens());
+        }
+
+        List<LlmChunk> chunks = new ArrayList<>();
+        LlmResponse streamed = client.stream(request("d", "同一个问题", "v1"), chunks::add);
+        LlmChunk last = chunks.get(chunks.size() - 1);
+        if (chunks.size() < 5 || !streamed.getContent().equals(first.getContent()) || !last.isLast()
+                || last.getUsage().getCompletionTokens().intValue() != usage.getCompletionTokens()) {
+            throw new IllegalStateException("Unexpected simulated stream: " + chunks.size() + " chunks");
+        }
+
+        SimulationOptions limitedOptions = new SimulationOptions();
+        limitedOptions.setRateLimitRate(1);
+        limitedOptions.setRetryAfter(Duration.ofSeconds(2));
+        SimulatedLlmClient limited = new SimulatedLlmClient(limitedOptions);
+        try {
+            limited.generate(request("e", "x", "v1"));
+            throw new IllegalStateException("Rate limit was not injected");
+        } catch (LlmException expected) {
+            if (!expected.isRateLimited() || limited.getRateLimited() != 1) {
+                throw new IllegalStateException("Unexpected injected error", expected);
+            }
+        }
+
+        // 流式调用可能不产生任何片段。
+        LlmClient silent = new LlmClient() {
+            @Override
+            public LlmResponse generate(LlmRequest request) {
+                return new LlmResponse();
+            }
+
+            @Override
+            public LlmResponse stream(LlmRequest request, Consumer<? super LlmChunk> consumer) {
+                return new LlmResponse();
+            }
+        };
+
+        // HTTP 接口：非流式返回完整 JSON，流式以 SSE 返回并以 [DONE] 结束，限流返回 429 与 Retry-After。
+        HttpClient http = HttpClient.newHttpClient();
+        try (SimulatedLlmServer server = SimulatedLlmServer.start(client, 0);
+             SimulatedLlmServer limitedServer = SimulatedLlmServer.start(limited, 0);
+             SimulatedLlmServer silentServer = SimulatedLlmServer.start(silent, 0)) {
+            String body = "{\"messages\": [{\"role\": \"system\", \"content\": \"system\"},"
+                    + " {\"role\": \"user\", \"content\": \"同一个问题\"}], \"max_tokens\": 256}";
+            HttpResponse<String> plain = http.send(post(server, body), HttpResponse.BodyHandlers.ofString());
+            JSONObject completion = JSON.parseObject(plain.body());
+            if (plain.statusCode() != 200 || !first.getContent().equals(completion.getJSONArray("choices")
+                    .getJSONObject(0).getJSONObject("message").getString("content"))
+                    || completion.getJSONObject("usage").getIntValue("total_tokens") != usage.getTotalTokens()) {
+                throw new IllegalStateException("Unexpected HTTP completion: " + plain.body());
+            }
+            String streamBody = body.substring(0, body.length() - 1) + ", \"stream\": true}";
+            HttpResponse<String> sse = http.send(post(server, streamBody), HttpResponse.BodyHandlers.ofString());
+            if (sse.statusCode() != 200 || !sse.body().startsWith("data: {")
+                    || !sse.body().endsWith("data: [DONE]\n\n")) {
+                throw new IllegalStateException("Unexpected SSE response: " + sse.body());
+            }
+            HttpResponse<String> rejected = http.send(post(limitedServer, body), HttpResponse.BodyHandlers.ofString());
+            String retryAfter = rejected.headers().firstValue("Retry-After").orElse(null);
+            if (rejected.statusCode() != 429 || !"2".equals(retryAfter)) {
+                throw new IllegalStateException("Unexpected rate-limited response: " + rejected.statusCode());
+            }
+            HttpResponse<String> malformed = http.send(post(server, "{\"messages\": [\"同一个问题\"]}"),
+                    HttpResponse.BodyHandlers.ofString());
+            if (malformed.statusCode() != 400) {
+                throw new IllegalStateException("Unexpected malformed-message response: " + malformed.statusCode());
+            }
+            HttpResponse<String> empty = http.send(post(silentServer, streamBody),
+                    HttpResponse.BodyHandlers.ofString());
+            if (empty.statusCode() != 200 || !"data: [DONE]\n\n".equals(empty.body())) {
+                throw new IllegalStateException("Unexpected empty SSE response: " + empty.body());
+            }
+        }
+    }
+
+    private static HttpRequest post(SimulatedLlmServer server, String body) {
+        return HttpRequest.newBuilder(server.getEndpoint())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static int countJobs(Path directory) throws Exception {
+        try (Stream<Path> jobs = Files.list(directory)) {
+            return (int) jobs.count();
+        }
+    }
+
+    private static LlmRequest request(String requestId, String userPrompt, String variantId) {
+        LlmRequest request = new LlmRequest();
+        request.setRequestId(requestId);
+        request.setSystemPrompt("system");
+        request.setUserPrompt(userPrompt);
+        request.setTemperature(0.7);
+        request.setMaxTokens(256);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("promptVariantId", variantId);
+        request.setAttributes(attributes);
+        return request;
+    }
+
+    private static final class CountingClient implements LlmClient {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public LlmResponse generate(LlmRequest request) {
+            calls.incrementAndGet();
+            LlmResponse response = new LlmResponse();
+            response.setRequestId(request.getRequestId());
+            response.setContent("echo:" + request.getUserPrompt());
+            response.setFinishReason("stop");
+            LlmResponse.Usage usage = new LlmResponse.Usage();
+            usage.setPromptTokens(2);
+            usage.setCompletionTokens(1);
+            usage.setTotalTokens(3);
+            response.setUsage(usage);
+            return response;
+        }
+    }
+
+    /**
+     * 逐段输出预设文本的流式桩客户端。
+     */
+    private static final class StubStreamingClient implements LlmClient {
+
+        private final List<String> deltas;
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile long finishedAt;
+
+        private StubStreamingClient(List<String> deltas) {
+            this.deltas = deltas;
+        }
+
+        @Override
+        public LlmResponse generate(LlmRequest request) throws Exception {
+            return stream(request, chunk -> {
+            });
+        }
+
+        @Override
+        public LlmResponse stream(LlmRequest request, Consumer<? super LlmChunk> consumer) throws Exception {
+            calls.incrementAndGet();
+            LlmChunkAccumulator accumulator = new LlmChunkAccumulator(consumer);
+            for (int i = 0; i < deltas.size(); i++) {
+                Thread.sleep(5);
+                LlmChunk chunk = new LlmChunk();
+                chunk.setRequestId(request.getRequestId());
+                chunk.setIndex(i);
+                chunk.setDelta(deltas.get(i));
+                if (i == deltas.size() - 1) {
+                    LlmResponse.Usage usage = new LlmResponse.Usage();
+                    usage.setPromptTokens(5);
+                    usage.setCompletionTokens(deltas.size());
+                    usage.setTotalTokens(5 + deltas.size());
+                    chunk.setLast(true);
+                    chunk.setFinishReason("stop");
+                    chunk.setUsage(usage);
+                }
+                accumulator.accept(chunk);
+            }
+            finishedAt = System.nanoTime();
+            return accumulator.toResponse();
+        }
+    }
+
+    /**
+     * 以流式模式调用模型并记录收到的片段。
+     */
+    private static final class CollectingProcessor extends LlmProcessor<String, String> {
+
+        private final List<LlmChunk> chunks = new CopyOnWriteArrayList<>();
+        private volatile long firstChunkAt;
+
+        private CollectingProcessor(LlmClient llmClient) {
+            super(llmClient, null, null, true);
+        }
+
+        @Override
+        protected PromptVariant buildPromptVariant(String input) {
+            return new PromptVariant("collect-v1", "system", input);
+        }
+
+        @Override
+        protected void onChunk(String input, PromptVariant variant, LlmChunk chunk) {
+            if (chunks.isEmpty()) {
+                firstChunkAt = System.nanoTime();
+            }
+            chunks.add(chunk);
+        }
+
+        @Override
+        protected String parseResponse(LlmResponse response, String input, PromptVariant variant) {
+            return response.getContent();
+        }
+    }
+
+    /**
+     * 按给定延迟分布返回的桩后端，可注入固定错误；响应内容为后端名。
+     */
+    private static final class StubBackend implements LlmClient {
+
+        private final String name;
+        private final IntSupplier latencyMillis;
+        private final Exception failure;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger interrupted = new AtomicInteger();
+
+        private StubBackend(String name, IntSupplier latencyMillis, Exception failure) {
+            this.name = name;
+            this.latencyMillis = latencyMillis;
+            this.failure = failure;
+        }
+
+        @Override
+        public LlmResponse generate(LlmRequest request) throws Exception {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(latencyMillis.getAsInt());
+            } catch (InterruptedException ex) {
+                interrupted.incrementAndGet();
+                throw ex;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            LlmResponse response = new CountingClient().generate(request);
+            response.setContent(name);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.caas.pipeline;
+
+import com.caas.pipeline.failure.RetryPolicy;
+import com.caas.pipeline.metrics.StageRecorder;
+import com.caas.pipeline.spi.AsyncProcessor;
+import com.caas.pipeline.spi.BatchOutput;
+import com.caas.pipeline.spi.Processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步执行：每个数据项沿 AsyncProcessor 链以 CompletionStage 串联，按 Source 顺序输出。
+ * <p>
+ * 拉取与输出在调用线程上完成；同时处理的数据项由信号量限制，许可不足时拉取方阻塞等待。
+ * 链路中含 {@link com.caas.pipeline.spi.BatchProcessor} 时，直到最后一个 BatchProcessor 为止按阶段推进：
+ * BatchProcessor 在调用线程上接收整批，其间的普通阶段仍逐项异步执行，所有数据项完成一个阶段后才进入下一个。
+ */
+final class AsyncExecution extends ExecutionMode {
+
+    private final int maxInFlight;
+
+    AsyncExecution(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    <I, O> void execute(Pipeline<I, O> pipeline) throws Exception {
+        List<AsyncProcessor<Object, Object>> chain = adapt(pipeline.processors());
+        Semaphore permits = new Semaphore(maxInFlight);
+        while (true) {
+            List<I> batch = pipeline.fetch();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<PipelineItem> items = pipeline.wrap(batch);
+            int streamFrom = pipeline.lastBatchStage() + 1;
+            processGrouped(pipeline, chain, items, streamFrom, permits);
+            List<CompletableFuture<Void>> pending = new ArrayList<>(items.size());
+            try {
+                for (PipelineItem item : items) {
+                    pending.add(start(pipeline, chain, item, streamFrom, chain.size(), permits));
+                }
+                if (pipeline.output() instanceof BatchOutput) {
+                    for (CompletableFuture<Void> future : pending) {
+                        await(future);
+                    }
+                    pipeline.emit(items);
+                } else {
+                    for (int i = 0; i < items.size(); i++) {
+                        await(pending.get(i));
+                        pipeline.emit(items.get(i));
+                    }
+                }
+                pipeline.commitCheckpoint(items);
+            } catch (Exception ex) {
+                for (CompletableFuture<Void> future : pending) {
+                    future.cancel(true);
+                }
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * 按阶段推进前 {@code end} 个 Processor：BatchProcessor 整批调用，相邻的普通阶段逐项异步执行后再进入下一阶段。
+     */
+    private static void processGrouped(Pipeline<?, ?> pipeline, List<AsyncProcessor<Object, Object>> chain,
+                                       List<PipelineItem> items, int end, Semaphore permits) throws Exception {
+        int stage = 0;
+        while (stage < end) {
+            if (pipeline.isBatchStage(stage)) {
+                pipeline.processStage(stage, items);
+                stage++;
+                continue;
+            }
+            int from = stage;
+            while (stage < end && !pipeline.isBatchStage(stage)) {
+                stage++;
+            }
+            List<CompletableFuture<Void>> pending = new ArrayList<>(items.size());
+            try {
+                for (PipelineItem item : items) {
+                    pending.add(start(pipeline, chain, item, from, stage, permits));
+                }
+                for (CompletableFuture<Void> future : pending) {
+                    await(future);
+                }
+            } catch (Exception ex) {
+                for (CompletableFuture<Void> future : pending) {
+                    future.cancel(true);
+                }
+                throw ex;
+            }
+        }
+    }
+
+    private static CompletableFuture<Void> start(Pipeline<?, ?> pipeline, List<AsyncProcessor<Object, Object>> chain,
+                                                 PipelineItem item, int from, int to, Semaphore permits)
+            throws InterruptedException {
+        permits.acquire();
+        CompletableFuture<Void> result = chain(pipeline, chain, item, from, to);
+        result.whenComplete((value, error) -> permits.release());
+        return result;
+    }
+
+    private static CompletableFuture<Void> chain(Pipeline<?, ?> pipeline, List<AsyncProcessor<Object, Object>> chain,
+                                                 PipelineItem item, int from, int to) {
+        CompletableFuture<Void> current = CompletableFuture.completedFuture(null);
+        for (int i = from; i < to; i++) {
+            int index = i;
+            current = current.thenCompose(ignored -> item.dropped
+                    ? CompletableFuture.completedFuture(null)
+                    : invoke(pipeline, chain.get(index), index, item, 1));
+        }
+        return current;
+    }
+
+    /**
+     * 调用一次异步 Processor；失败时按重试策略延迟重试，重试耗尽后转入死信或以异常完成。
+     */
+    private static CompletableFuture<Void> invoke(Pipeline<?, ?> pipeline, AsyncProcessor<Object, Object> processor,
+                                                  int index, PipelineItem item, int attempt) {
+        StageRecorder recorder = pipeline.stageRecorder(index);
+        long start = System.nanoTime();
+        CompletableFuture<Object> result;
+        try {
+            result = processor.processAsync(item.value).toCompletableFuture();
+        } catch (Throwable ex) {
+            result = CompletableFuture.failedFuture(ex);
+        }
+        return result.handle((output, error) -> {
+            recorder.record(System.nanoTime() - start, 1, error == null);
+            if (error == null) {
+                item.value = output;
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            Throwable cause = unwrap(error);
+            RetryPolicy retryPolicy = pipeline.retryPolicy();
+            if (retryPolicy.shouldRetry(cause, attempt)) {
+                Executor delayed = CompletableFuture.delayedExecutor(
+                        retryPolicy.backoffMillis(attempt), TimeUnit.MILLISECONDS);
+                return CompletableFuture.runAsync(() -> {
+                }, delayed).thenCompose(ignored -> invoke(pipeline, processor, index, item, attempt + 1));
+            }
+            if (cause instanceof InterruptedException) {
+                return CompletableFuture.<Void>failedFuture(cause);
+            }
+            try {
+                if (pipeline.deadLetterIfConfigured(item, index, cause, attempt)) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+            } catch (Exception ex) {
+                return CompletableFuture.<Void>failedFuture(ex);
+            }
+            return CompletableFuture.<Void>failedFuture(cause);
+        }).thenCompose(next -> next);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AsyncProcessor<Object, Object>> adapt(List<Processor<?, ?>> processors) {
+        List<AsyncProcessor<Object, Object>> chain = new ArrayList<>(processors.size());
+        for (Processor<?, ?> processor : processors) {
+            chain.add(AsyncProcessors.fromBlocking((Processor<Object, Object>) processor));
+        }
+        return chain;
+    }
+
+    private static void await(CompletableFuture<Void> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = unwrap(ex);
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,156 @@
+package com.caas.pipeline;
+
+import com.caas.pipeline.spi.AsyncProcessor;
+import com.caas.pipeline.spi.Processor;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link AsyncProcessor} 的适配与组合工具。
+ */
+public final class AsyncProcessors {
+
+    private static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual()
+            .name("caas-pipeline-async")
+            .start(task);
+
+    /**
+     * 当前线程上正在放行的调用之后排队的待放行调用；为 null 表示当前线程没有在放行。
+     */
+    private static final ThreadLocal<Deque<Runnable>> PENDING_STARTS = new ThreadLocal<>();
+
+    private AsyncProcessors() {
+    }
+
+    /**
+     * 将阻塞式 Processor 适配为异步 Processor，每次调用在新的虚拟线程上执行。
+     */
+    public static <I, O> AsyncProcessor<I, O> fromBlocking(Processor<I, O> processor) {
+        return fromBlocking(processor, VIRTUAL_THREADS);
+    }
+
+    /**
+     * 将阻塞式 Processor 适配为异步 Processor，在指定的 Executor 上执行。
+     */
+    public static <I, O> AsyncProcessor<I, O> fromBlocking(Processor<I, O> processor, Executor executor) {
+        Objects.requireNonNull(processor, "processor");
+        Objects.requireNonNull(executor, "executor");
+        if (processor instanceof AsyncProcessor) {
+            return (AsyncProcessor<I, O>) processor;
+        }
+        return input -> {
+            CompletableFuture<O> result = new CompletableFuture<>();
+            executor.execute(() -> {
+                try {
+                    result.complete(processor.process(input));
+                } catch (Throwable ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+            return result;
+        };
+    }
+
+    /**
+     * 限制异步 Processor 的同时处理数；超出上限的调用排队等待，不阻塞调用线程。
+     *
+     * @param processor      被限制的 Processor
+     * @param maxConcurrency 同时处理中的调用上限
+     */
+    public static <I, O> AsyncProcessor<I, O> limit(AsyncProcessor<I, O> processor, int maxConcurrency) {
+        return new ConcurrencyLimitedProcessor<>(processor, maxConcurrency);
+    }
+
+    /**
+     * 以 FIFO 顺序放行等待中的调用，许可在上一调用完成时转交给队首。
+     * <p>
+     * 被放行的调用同步完成时会在同一线程上继续放行下一个；这些放行在最外层循环执行，不会逐层嵌套，
+     * 大量同步完成的调用排队时也不会耗尽调用栈。
+     */
+    private static final class ConcurrencyLimitedProcessor<I, O> implements AsyncProcessor<I, O> {
+
+        private final AsyncProcessor<I, O> delegate;
+        private final int maxConcurrency;
+        private final Deque<Runnable> waiting = new ArrayDeque<>();
+        private int running;
+
+        private ConcurrencyLimitedProcessor(AsyncProcessor<I, O> delegate, int maxConcurrency) {
+            this.delegate = Objects.requireNonNull(delegate, "processor");
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("maxConcurrency must be positive");
+            }
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public CompletionStage<O> processAsync(I input) {
+            CompletableFuture<O> result = new CompletableFuture<>();
+            Runnable start = () -> invoke(input, result);
+            boolean startNow;
+            synchronized (waiting) {
+                startNow = running < maxConcurrency;
+                if (startNow) {
+                    running++;
+                } else {
+                    waiting.addLast(start);
+                }
+            }
+            if (startNow) {
+                start.run();
+            }
+            return result;
+        }
+
+        private void invoke(I input, CompletableFuture<O> result) {
+            CompletionStage<O> stage;
+            try {
+                stage = delegate.processAsync(input);
+            } catch (Throwable ex) {
+                stage = CompletableFuture.failedFuture(ex);
+            }
+            stage.whenComplete((value, error) -> {
+                releaseAndStartNext();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+
+        private void releaseAndStartNext() {
+            Runnable next;
+            synchronized (waiting) {
+                next = waiting.pollFirst();
+                if (next == null) {
+                    running--;
+                }
+            }
+            if (next != null) {
+                startInLoop(next);
+            }
+        }
+
+        private static void startInLoop(Runnable start) {
+            Deque<Runnable> pending = PENDING_STARTS.get();
+            if (pending != null) {
+                pending.addLast(start);
+                return;
+            }
+            pending = new ArrayDeque<>();
+            PENDING_STARTS.set(pending);
+            try {
+                for (Runnable next = start; next != null; next = pending.pollFirst()) {
+                    next.run();
+                }
+            } finally {
+                PENDING_STARTS.remove();
+            }
+        }
+    }
+}
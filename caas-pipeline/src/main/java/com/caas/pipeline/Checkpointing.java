@@ -0,0 +1,57 @@
+package com.caas.pipeline;
+
+import com.caas.pipeline.checkpoint.CheckpointStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 流水线的断点配置：按键跳过已完成的数据项，并在每批输出后提交断点。
+ */
+final class Checkpointing<I> {
+
+    private final CheckpointStore store;
+    private final Function<? super I, String> keyFunction;
+    private final AtomicLong nextBatchIndex;
+
+    Checkpointing(CheckpointStore store, Function<? super I, String> keyFunction) {
+        this.store = Objects.requireNonNull(store, "store");
+        this.keyFunction = Objects.requireNonNull(keyFunction, "keyFunction");
+        this.nextBatchIndex = new AtomicLong(store.lastCommittedBatch() + 1);
+    }
+
+    /**
+     * 返回数据项的断点键；键为 {@code null} 的数据项不参与断点。
+     */
+    String keyOf(I item) {
+        return keyFunction.apply(item);
+    }
+
+    /**
+     * 剔除此前已完成的数据项。
+     */
+    List<I> skipCompleted(List<I> batch) {
+        List<I> pending = new ArrayList<>(batch.size());
+        for (I item : batch) {
+            if (!store.isCompleted(keyOf(item))) {
+                pending.add(item);
+            }
+        }
+        return pending;
+    }
+
+    void commit(List<String> keys) throws Exception {
+        List<String> nonNull = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (key != null) {
+                nonNull.add(key);
+            }
+        }
+        if (!nonNull.isEmpty()) {
+            store.commit(nextBatchIndex.getAndIncrement(), nonNull);
+        }
+    }
+}
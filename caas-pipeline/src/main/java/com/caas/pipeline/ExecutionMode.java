@@ -0,0 +1,61 @@
+package com.caas.pipeline;
+
+/**
+ * 流水线执行模式，决定 Source、Processor 链与 Output 之间如何调度。
+ * <p>
+ * 通过静态工厂方法获取内置实现；默认使用 {@link #synchronous()}。
+ */
+public abstract class ExecutionMode {
+
+    ExecutionMode() {
+    }
+
+    /**
+     * 同步模式：拉取、处理、输出全部在调用线程上依次执行。
+     */
+    public static ExecutionMode synchronous() {
+        return SynchronousExecution.INSTANCE;
+    }
+
+    /**
+     * 分阶段并行模式：每个 Processor 作为独立阶段运行，阶段之间通过有界队列交接。
+     * <p>
+     * Source 在独立线程上拉取，Output 在调用线程上串行输出；
+     * 当 {@code workersPerStage > 1} 时不保证输出顺序与输入一致。
+     *
+     * @param workersPerStage 每个 Processor 阶段的工作线程数
+     * @param queueCapacity   阶段之间交接队列的容量
+     */
+    public static ExecutionMode staged(int workersPerStage, int queueCapacity) {
+        return new StagedExecution(workersPerStage, queueCapacity);
+    }
+
+    /**
+     * 虚拟线程模式：每个数据项在独立的虚拟线程上走完整条 Processor 链。
+     * <p>
+     * 适用于以阻塞 I/O（如 LLM 调用、HTTP 请求）为主的处理链；
+     * 全局同时处理的数据项不超过 {@code maxInFlight}，输出顺序与 Source 顺序一致。
+     *
+     * @param maxInFlight 同时处理中的数据项上限
+     */
+    public static ExecutionMode virtualThreads(int maxInFlight) {
+        return new VirtualThreadExecution(maxInFlight);
+    }
+
+    /**
+     * 异步模式：按 {@link com.caas.pipeline.spi.AsyncProcessor} 串联处理链，等待期间不占用线程。
+     * <p>
+     * 阻塞式 Processor 会通过 {@link AsyncProcessors#fromBlocking(com.caas.pipeline.spi.Processor)}
+     * 在虚拟线程上执行；全局同时处理的数据项不超过 {@code maxInFlight}，输出顺序与 Source 顺序一致。
+     *
+     * @param maxInFlight 同时处理中的数据项上限
+     */
+    public static ExecutionMode async(int maxInFlight) {
+        return new AsyncExecution(maxInFlight);
+    }
+
+    /**
+     * 执行给定的流水线，直到 Source 耗尽或出现异常。
+     */
+    abstract <I, O> void execute(Pipeline<I, O> pipeline) throws Exception;
+}
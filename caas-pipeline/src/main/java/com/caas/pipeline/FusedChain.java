@@ -0,0 +1,39 @@
+package com.caas.pipeline;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.UndeclaredThrowableException;
+
+/**
+ * {@link FusedProcessor} 的字节码模板，只作为隐藏类定义，不会以普通方式加载。
+ * <p>
+ * 类数据即融合后的链路，保存在静态 final 字段中，JIT 将其视为常量。本类不得包含 lambda 或内部类。
+ */
+final class FusedChain extends FusedProcessor<Object, Object> {
+
+    private static final MethodHandle CHAIN;
+
+    static {
+        try {
+            CHAIN = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        } catch (IllegalAccessException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    FusedChain(String name) {
+        super(name);
+    }
+
+    @Override
+    public Object process(Object input) throws Exception {
+        try {
+            return (Object) CHAIN.invokeExact(input);
+        } catch (Exception | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new UndeclaredThrowableException(ex);
+        }
+    }
+}
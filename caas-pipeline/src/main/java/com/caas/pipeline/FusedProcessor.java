@@ -0,0 +1,94 @@
+package com.caas.pipeline;
+
+import com.caas.pipeline.spi.Processor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * 将一段 Processor 链融合为单个 Processor，由 {@link PipelineBuilder} 在构建时生成。
+ * <p>
+ * 每条链路都以 {@link FusedChain} 为模板定义一个独立的隐藏类，链路本身作为该类的常量 {@link MethodHandle}：
+ * 调用点只属于这一条链路、接收者均为常量，JIT 因而可以把各 Processor 逐个内联进同一个编译单元。
+ * 隐藏类随链路不再可达而卸载，但定义本身有开销，应在构建期完成，不宜每批重新构建。
+ */
+abstract class FusedProcessor<I, O> implements Processor<I, O> {
+
+    private static final MethodHandle PROCESS;
+
+    static {
+        try {
+            PROCESS = MethodHandles.publicLookup().findVirtual(Processor.class, "process",
+                    MethodType.methodType(Object.class, Object.class));
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private final String name;
+
+    FusedProcessor(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 融合给定的 Processor 链，至少包含两个 Processor。
+     */
+    static <I, O> Processor<I, O> fuse(List<Processor<?, ?>> processors) {
+        if (processors.size() < 2) {
+            throw new IllegalArgumentException("at least two processors are required");
+        }
+        MethodHandle chain = null;
+        StringJoiner name = new StringJoiner("+");
+        for (Processor<?, ?> processor : processors) {
+            MethodHandle step = PROCESS.bindTo(processor);
+            chain = chain == null ? step : MethodHandles.filterReturnValue(chain, step);
+            name.add(Pipeline.processorName(processor));
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup()
+                    .defineHiddenClassWithClassData(TemplateHolder.BYTES, chain, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(),
+                    MethodType.methodType(void.class, String.class));
+            @SuppressWarnings("unchecked")
+            Processor<I, O> fused = (Processor<I, O>) constructor.invoke(name.toString());
+            return fused;
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Failed to fuse processors " + name, ex);
+        }
+    }
+
+    /**
+     * 由被融合的各 Processor 名称以 {@code +} 连接而成，用作阶段名。
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * 模板类的字节码，首次融合时读取。
+     */
+    private static final class TemplateHolder {
+
+        private static final byte[] BYTES = read();
+
+        private static byte[] read() {
+            try (InputStream in = FusedProcessor.class.getResourceAsStream("FusedChain.class")) {
+                if (in == null) {
+                    throw new IllegalStateException("FusedChain.class not found");
+                }
+                return in.readAllBytes();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package com.caas.pipeline;
 
+import com.caas.pipeline.failure.DeadLetter;
+import com.caas.pipeline.failure.RetryPolicy;
+import com.caas.pipeline.metrics.PipelineMetrics;
+import com.caas.pipeline.metrics.StageRecorder;
+import com.caas.pipeline.spi.BatchOutput;
+import com.caas.pipeline.spi.BatchProcessor;
 import com.caas.pipeline.spi.Output;
 import com.caas.pipeline.spi.Processor;
 import com.caas.pipeline.spi.Source;
@@ -8,24 +14,49 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * 简单的同步流水线引擎：从 Source 拉取数据，经由 Processor 串联处理后输出到 Output。
+ * 流水线引擎：从 Source 拉取数据，经由 Processor 串联处理后输出到 Output。
+ * <p>
+ * 默认同步执行，可通过 {@link ExecutionMode} 切换为并行调度。
  */
 public final class Pipeline<I, O> {
 
-    private static final int DEFAULT_BATCH_SIZE = 100;
+    static final int DEFAULT_BATCH_SIZE = 100;
 
     private final Source<I> source;
     private final List<Processor<?, ?>> processors;
     private final Output<O> output;
     private final int batchSize;
+    private final ExecutionMode mode;
+    private final PipelineMetrics metrics;
+    private final StageRecorder fetchRecorder;
+    private final StageRecorder emitRecorder;
+    private final List<StageRecorder> stageRecorders;
+    private final List<String> stageNames;
+    private final Checkpointing<I> checkpointing;
+    private final RetryPolicy retryPolicy;
+    private final Output<DeadLetter> deadLetter;
+    private final ReentrantLock deadLetterLock = new ReentrantLock();
 
     public Pipeline(Source<I> source, Output<O> output, List<Processor<?, ?>> processors) {
         this(source, output, processors, DEFAULT_BATCH_SIZE);
     }
 
     public Pipeline(Source<I> source, Output<O> output, List<Processor<?, ?>> processors, int batchSize) {
+        this(source, output, processors, batchSize, ExecutionMode.synchronous());
+    }
+
+    public Pipeline(Source<I> source, Output<O> output, List<Processor<?, ?>> processors, int batchSize,
+                    ExecutionMode mode) {
+        this(source, output, processors, batchSize, mode, PipelineMetrics.NOOP, null, RetryPolicy.none(), null);
+    }
+
+    Pipeline(Source<I> source, Output<O> output, List<Processor<?, ?>> processors, int batchSize,
+             ExecutionMode mode, PipelineMetrics metrics, Checkpointing<I> checkpointing,
+             RetryPolicy retryPolicy, Output<DeadLetter> deadLetter) {
         this.source = Objects.requireNonNull(source, "source");
         this.output = Objects.requireNonNull(output, "output");
         this.processors = Collections.unmodifiableList(new ArrayList<>(
@@ -34,35 +65,55 @@ public final class Pipeline<I, O> {
             throw new IllegalArgumentException("batchSize must be positive");
         }
         this.batchSize = batchSize;
+        this.mode = Objects.requireNonNull(mode, "mode");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+        this.fetchRecorder = metrics.stage("fetch");
+        this.emitRecorder = metrics.stage("emit");
+        List<String> names = new ArrayList<>(this.processors.size());
+        List<StageRecorder> recorders = new ArrayList<>(this.processors.size());
+        for (int i = 0; i < this.processors.size(); i++) {
+            String name = "stage-" + i + ":" + processorName(this.processors.get(i));
+            names.add(name);
+            recorders.add(metrics.stage(name));
+        }
+        this.stageNames = Collections.unmodifiableList(names);
+        this.stageRecorders = Collections.unmodifiableList(recorders);
+        this.checkpointing = checkpointing;
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy");
+        this.deadLetter = deadLetter;
+    }
+
+    /**
+     * 以给定 Source 开始构建类型安全的流水线，例如
+     * {@code Pipeline.from(source).then(p1).then(p2).to(output)}。
+     */
+    public static <I> PipelineBuilder<I, I> from(Source<I> source) {
+        return PipelineBuilder.start(source);
     }
 
     /**
      * 执行流水线，直到 Source 耗尽为止。
      */
     public void run() throws Exception {
-        while (true) {
-            // 1) 从 Source 拉取一批数据。
-            List<I> batch = fetchBatch(source, batchSize);
-            if (batch.isEmpty()) {
-                return;
-            }
-
-            // 2) 逐条经过 Processor 链处理。
-            List<O> processed = processBatch(batch, processors);
+        mode.execute(this);
+    }
 
-            // 3) 输出处理后的结果。
-            for (O item : processed) {
-                output.emit(item);
-            }
+    static String processorName(Processor<?, ?> processor) {
+        if (processor instanceof FusedProcessor) {
+            return ((FusedProcessor<?, ?>) processor).name();
         }
+        return processor.getClass().getSimpleName();
     }
 
     /**
-     * 从 Source 拉取最多 {@code batchSize} 条数据到列表中。
+     * 从 Source 拉取最多 {@code batchSize} 条数据到列表中；{@link Source#isRoundComplete()} 为真时提前结束。
      */
     public static <I> List<I> fetchBatch(Source<I> source, int batchSize) throws Exception {
         List<I> items = new ArrayList<>(batchSize);
         for (int i = 0; i < batchSize; i++) {
+            if (i > 0 && source.isRoundComplete()) {
+                break;
+            }
             I next = source.next();
             if (next == null) {
                 break;
@@ -74,24 +125,385 @@ public final class Pipeline<I, O> {
 
     /**
      * 通过 Processor 链处理一批数据。
+     * <p>
+     * 按阶段推进：{@link BatchProcessor} 一次接收整批，其余 Processor 逐条处理。
      */
     public static <I, O> List<O> processBatch(List<I> items, List<Processor<?, ?>> processors) throws Exception {
-        List<O> results = new ArrayList<>(items.size());
-        for (I item : items) {
-            Object current = item;
-            for (Processor<?, ?> processor : processors) {
-                current = applyProcessor(processor, current);
-            }
-            @SuppressWarnings("unchecked")
-            O output = (O) current;
-            results.add(output);
+        List<Object> current = new ArrayList<>(items);
+        for (Processor<?, ?> processor : processors) {
+            current = applyProcessorToBatch(processor, current);
         }
+        @SuppressWarnings("unchecked")
+        List<O> results = (List<O>) current;
         return results;
     }
 
-    private static Object applyProcessor(Processor<?, ?> processor, Object input) throws Exception {
+    /**
+     * 将一批数据交给 Output；{@link BatchOutput} 一次接收整批，其余 Output 逐条接收。
+     */
+    public static <O> void emitBatch(Output<O> output, List<O> items) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+        if (output instanceof BatchOutput) {
+            ((BatchOutput<O>) output).emitBatch(items);
+            return;
+        }
+        for (O item : items) {
+            output.emit(item);
+        }
+    }
+
+    static List<Object> applyProcessorToBatch(Processor<?, ?> processor, List<Object> inputs) throws Exception {
+        if (processor instanceof BatchProcessor) {
+            @SuppressWarnings("unchecked")
+            BatchProcessor<Object, Object> typed = (BatchProcessor<Object, Object>) processor;
+            List<Object> outputs = typed.processBatch(inputs);
+            if (outputs == null || outputs.size() != inputs.size()) {
+                throw new IllegalStateException("BatchProcessor must return exactly one output per input");
+            }
+            return outputs;
+        }
+        List<Object> outputs = new ArrayList<>(inputs.size());
+        for (Object input : inputs) {
+            outputs.add(applyProcessor(processor, input));
+        }
+        return outputs;
+    }
+
+    static Object applyProcessor(Processor<?, ?> processor, Object input) throws Exception {
         @SuppressWarnings("unchecked")
         Processor<Object, Object> typed = (Processor<Object, Object>) processor;
         return typed.process(input);
     }
+
+    /**
+     * 拉取一批数据并记录耗时与批大小。
+     * <p>
+     * 启用断点时会剔除此前已完成的数据项；整批都已完成时继续拉取下一批，
+     * 只有 Source 耗尽时才返回空列表。
+     */
+    List<I> fetch() throws Exception {
+        while (true) {
+            List<I> batch = fetchRecorded();
+            if (checkpointing == null || batch.isEmpty()) {
+                return batch;
+            }
+            List<I> pending = checkpointing.skipCompleted(batch);
+            if (!pending.isEmpty()) {
+                return pending;
+            }
+        }
+    }
+
+    private List<I> fetchRecorded() throws Exception {
+        long start = System.nanoTime();
+        boolean success = false;
+        int size = 0;
+        try {
+            List<I> batch = fetchBatch(source, batchSize);
+            size = batch.size();
+            success = true;
+            return batch;
+        } finally {
+            fetchRecorder.record(System.nanoTime() - start, size, success);
+            if (size > 0) {
+                metrics.recordBatchSize(size);
+            }
+        }
+    }
+
+    /**
+     * 将 Source 数据项包装为引擎内部流转的数据项。
+     */
+    PipelineItem wrap(I item) {
+        return new PipelineItem(item, checkpointing == null ? null : checkpointing.keyOf(item));
+    }
+
+    List<PipelineItem> wrap(List<I> batch) {
+        List<PipelineItem> items = new ArrayList<>(batch.size());
+        for (I item : batch) {
+            items.add(wrap(item));
+        }
+        return items;
+    }
+
+    /**
+     * 按阶段处理一批数据，已转入死信的数据项不再进入后续阶段。
+     */
+    void process(List<PipelineItem> items) throws Exception {
+        for (int i = 0; i < processors.size(); i++) {
+            processStage(i, items);
+        }
+    }
+
+    /**
+     * 让单个数据项走完整条处理链。
+     */
+    void processItem(PipelineItem item) throws Exception {
+        processItem(item, 0, processors.size());
+    }
+
+    /**
+     * 让单个数据项依次经过第 {@code from}（含）到第 {@code to}（不含）个 Processor。
+     */
+    void processItem(PipelineItem item, int from, int to) throws Exception {
+        for (int i = from; i < to && !item.dropped; i++) {
+            processStage(i, item);
+        }
+    }
+
+    /**
+     * 最后一个 {@link BatchProcessor} 的下标，没有时返回 -1。
+     * <p>
+     * 逐条并发的执行模式在此之前按批推进，使 BatchProcessor 仍能收到整批输入；之后的阶段逐条处理。
+     */
+    int lastBatchStage() {
+        for (int i = processors.size() - 1; i >= 0; i--) {
+            if (processors.get(i) instanceof BatchProcessor) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    boolean isBatchStage(int index) {
+        return processors.get(index) instanceof BatchProcessor;
+    }
+
+    /**
+     * 用第 {@code index} 个 Processor 处理一批数据。
+     * <p>
+     * {@link BatchProcessor} 整批调用并按策略重试；仍失败且配置了死信时，逐条重新处理以隔离失败项。
+     */
+    void processStage(int index, List<PipelineItem> items) throws Exception {
+        List<PipelineItem> live = live(items);
+        if (live.isEmpty()) {
+            return;
+        }
+        Processor<?, ?> processor = processors.get(index);
+        if (!(processor instanceof BatchProcessor) || live.size() == 1) {
+            for (PipelineItem item : live) {
+                processStage(index, item);
+            }
+            return;
+        }
+        List<Object> inputs = new ArrayList<>(live.size());
+        for (PipelineItem item : live) {
+            inputs.add(item.value);
+        }
+        List<Object> outputs;
+        try {
+            outputs = withRetry(stageRecorders.get(index), live.size(),
+                    () -> applyProcessorToBatch(processor, inputs));
+        } catch (StageFailure failure) {
+            if (deadLetter == null) {
+                throw failure.cause();
+            }
+            for (PipelineItem item : live) {
+                processStage(index, item);
+            }
+            return;
+        }
+        for (int i = 0; i < live.size(); i++) {
+            live.get(i).value = outputs.get(i);
+        }
+    }
+
+    /**
+     * 用第 {@code index} 个 Processor 处理单个数据项，失败时按策略重试，仍失败则转入死信或抛出。
+     */
+    void processStage(int index, PipelineItem item) throws Exception {
+        Processor<?, ?> processor = processors.get(index);
+        try {
+            item.value = withRetry(stageRecorders.get(index), 1, () -> applyProcessor(processor, item.value));
+        } catch (StageFailure failure) {
+            deadLetter(item, stageNames.get(index), failure);
+        }
+    }
+
+    /**
+     * 异步处理完成后的失败处理：配置了死信时转入死信并返回 {@code true}，否则返回 {@code false}。
+     */
+    boolean deadLetterIfConfigured(PipelineItem item, int index, Throwable error, int attempts) throws Exception {
+        if (deadLetter == null) {
+            return false;
+        }
+        deadLetter(item, stageNames.get(index), new StageFailure(error, attempts));
+        return true;
+    }
+
+    /**
+     * 输出一批数据中仍然有效的数据项。
+     * <p>
+     * 整批输出按策略重试；仍失败且配置了死信时，逐条重新输出以隔离失败项。
+     */
+    void emit(List<PipelineItem> items) throws Exception {
+        List<PipelineItem> live = live(items);
+        if (live.isEmpty()) {
+            return;
+        }
+        if (!(output instanceof BatchOutput) || live.size() == 1) {
+            for (PipelineItem item : live) {
+                emit(item);
+            }
+            return;
+        }
+        List<O> values = new ArrayList<>(live.size());
+        for (PipelineItem item : live) {
+            @SuppressWarnings("unchecked")
+            O value = (O) item.value;
+            values.add(value);
+        }
+        try {
+            withRetry(emitRecorder, values.size(), () -> {
+                emitBatch(output, values);
+                return null;
+            });
+        } catch (StageFailure failure) {
+            if (deadLetter == null) {
+                throw failure.cause();
+            }
+            for (PipelineItem item : live) {
+                emit(item);
+            }
+        }
+    }
+
+    void emit(PipelineItem item) throws Exception {
+        if (item.dropped) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        O value = (O) item.value;
+        try {
+            withRetry(emitRecorder, 1, () -> {
+                output.emit(value);
+                return null;
+            });
+        } catch (StageFailure failure) {
+            deadLetter(item, "emit", failure);
+        }
+    }
+
+    /**
+     * 在一批数据输出后提交断点；转入死信的数据项不提交，重启后会再次处理。
+     */
+    void commitCheckpoint(List<PipelineItem> items) throws Exception {
+        if (checkpointing == null) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(items.size());
+        for (PipelineItem item : items) {
+            if (!item.dropped) {
+                keys.add(item.key);
+            }
+        }
+        checkpointing.commit(keys);
+    }
+
+    RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    private <R> R withRetry(StageRecorder recorder, int size, Callable<R> call) throws Exception {
+        int attempt = 1;
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                R result = call.call();
+                recorder.record(System.nanoTime() - start, size, true);
+                return result;
+            } catch (InterruptedException ex) {
+                // 中断表示整次运行被取消，不重试也不转入死信。
+                recorder.record(System.nanoTime() - start, size, false);
+                Thread.currentThread().interrupt();
+                throw ex;
+            } catch (Exception ex) {
+                recorder.record(System.nanoTime() - start, size, false);
+                if (!retryPolicy.shouldRetry(ex, attempt)) {
+                    throw new StageFailure(ex, attempt);
+                }
+                Thread.sleep(retryPolicy.backoffMillis(attempt));
+                attempt++;
+            }
+        }
+    }
+
+    private void deadLetter(PipelineItem item, String stage, StageFailure failure) throws Exception {
+        if (deadLetter == null) {
+            throw failure.cause();
+        }
+        item.dropped = true;
+        DeadLetter letter = new DeadLetter(item.source, item.key, stage, item.value, failure.getCause(),
+                failure.attempts);
+        // 死信 Output 可能被多个工作线程同时调用，这里串行化以沿用 Output 的单线程假设；
+        // 用显式锁而不是 synchronized，虚拟线程在 emit 中阻塞时不会占住载体线程。
+        deadLetterLock.lock();
+        try {
+            deadLetter.emit(letter);
+        } finally {
+            deadLetterLock.unlock();
+        }
+    }
+
+    private static List<PipelineItem> live(List<PipelineItem> items) {
+        List<PipelineItem> live = new ArrayList<>(items.size());
+        for (PipelineItem item : items) {
+            if (!item.dropped) {
+                live.add(item);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * 重试耗尽后的阶段失败，携带原始异常与尝试次数。
+     */
+    private static final class StageFailure extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int attempts;
+
+        private StageFailure(Throwable cause, int attempts) {
+            super(cause);
+            this.attempts = attempts;
+        }
+
+        private Exception cause() {
+            Throwable cause = getCause();
+            if (cause instanceof Exception) {
+                return (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            return this;
+        }
+    }
+
+    StageRecorder stageRecorder(int index) {
+        return stageRecorders.get(index);
+    }
+
+    StageRecorder emitRecorder() {
+        return emitRecorder;
+    }
+
+    Source<I> source() {
+        return source;
+    }
+
+    Output<O> output() {
+        return output;
+    }
+
+    List<Processor<?, ?>> processors() {
+        return processors;
+    }
+
+    int batchSize() {
+        return batchSize;
+    }
 }
@@ -0,0 +1,201 @@
+package com.caas.pipeline;
+
+import com.caas.pipeline.checkpoint.CheckpointStore;
+import com.caas.pipeline.failure.DeadLetter;
+import com.caas.pipeline.failure.RetryPolicy;
+import com.caas.pipeline.metrics.PipelineMetrics;
+import com.caas.pipeline.spi.AsyncProcessor;
+import com.caas.pipeline.spi.BatchProcessor;
+import com.caas.pipeline.spi.Output;
+import com.caas.pipeline.spi.Processor;
+import com.caas.pipeline.spi.Source;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 类型安全的流水线构建器，由 {@link Pipeline#from(Source)} 创建。
+ * <p>
+ * 每次 {@link #then(Processor)} 都在编译期校验上下游类型。构建时相邻的普通 Processor 默认融合为一个阶段，
+ * 每段链路生成独立的调用点，短小的 CPU 型 Processor 可被 JIT 内联；设置了度量、重试或死信时，
+ * 每个 Processor 各为一个阶段，分别记录度量、按阶段重试，死信中的阶段名也对应到具体的 Processor。
+ * 调用 {@link #fuseProcessors()} 可在这些情况下仍然融合。
+ * <p>
+ * 构建器不可变，每个方法都返回新的实例。
+ *
+ * @param <I> Source 产生的数据类型
+ * @param <T> 当前链路末端的数据类型
+ */
+public final class PipelineBuilder<I, T> {
+
+    private final Source<I> source;
+    private final List<Processor<?, ?>> processors;
+    private final int batchSize;
+    private final ExecutionMode mode;
+    private final PipelineMetrics metrics;
+    private final Checkpointing<I> checkpointing;
+    private final RetryPolicy retryPolicy;
+    private final Output<DeadLetter> deadLetter;
+    private final boolean fuse;
+
+    private PipelineBuilder(Source<I> source, List<Processor<?, ?>> processors, int batchSize, ExecutionMode mode,
+                            PipelineMetrics metrics, Checkpointing<I> checkpointing, RetryPolicy retryPolicy,
+                            Output<DeadLetter> deadLetter, boolean fuse) {
+        this.source = source;
+        this.processors = processors;
+        this.batchSize = batchSize;
+        this.mode = mode;
+        this.metrics = metrics;
+        this.checkpointing = checkpointing;
+        this.retryPolicy = retryPolicy;
+        this.deadLetter = deadLetter;
+        this.fuse = fuse;
+    }
+
+    static <I> PipelineBuilder<I, I> start(Source<I> source) {
+        return new PipelineBuilder<>(Objects.requireNonNull(source, "source"), List.of(),
+                Pipeline.DEFAULT_BATCH_SIZE, ExecutionMode.synchronous(), PipelineMetrics.NOOP,
+                null, RetryPolicy.none(), null, false);
+    }
+
+    /**
+     * 在链路末端追加一个 Processor。
+     */
+    public <R> PipelineBuilder<I, R> then(Processor<? super T, ? extends R> processor) {
+        Objects.requireNonNull(processor, "processor");
+        List<Processor<?, ?>> next = new ArrayList<>(processors.size() + 1);
+        next.addAll(processors);
+        next.add(processor);
+        return new PipelineBuilder<>(source, Collections.unmodifiableList(next), batchSize, mode, metrics,
+                checkpointing, retryPolicy, deadLetter, fuse);
+    }
+
+    /**
+     * 设置每次从 Source 拉取的批大小。
+     */
+    public PipelineBuilder<I, T> batchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        return new PipelineBuilder<>(source, processors, batchSize, mode, metrics, checkpointing, retryPolicy,
+                deadLetter, fuse);
+    }
+
+    /**
+     * 设置执行模式，默认 {@link ExecutionMode#synchronous()}。
+     */
+    public PipelineBuilder<I, T> executionMode(ExecutionMode mode) {
+        return new PipelineBuilder<>(source, processors, batchSize, Objects.requireNonNull(mode, "mode"), metrics,
+                checkpointing, retryPolicy, deadLetter, fuse);
+    }
+
+    /**
+     * 设置度量记录器，例如 {@link com.caas.pipeline.metrics.InMemoryMetricsRegistry}。
+     */
+    public PipelineBuilder<I, T> metrics(PipelineMetrics metrics) {
+        return new PipelineBuilder<>(source, processors, batchSize, mode, Objects.requireNonNull(metrics, "metrics"),
+                checkpointing, retryPolicy, deadLetter, fuse);
+    }
+
+    /**
+     * 启用断点续跑：跳过 {@code store} 中已完成的数据项，并在每批输出后提交本批的键。
+     *
+     * @param store       断点存储，例如 {@link com.caas.pipeline.checkpoint.FileCheckpointStore}
+     * @param keyFunction 从 Source 数据项提取稳定键，例如 {@code HotTopic::getId}；返回 {@code null} 的项不参与断点
+     */
+    public PipelineBuilder<I, T> checkpoint(CheckpointStore store, Function<? super I, String> keyFunction) {
+        return new PipelineBuilder<>(source, processors, batchSize, mode, metrics,
+                new Checkpointing<>(store, keyFunction), retryPolicy, deadLetter, fuse);
+    }
+
+    /**
+     * 设置每个数据项在 Processor 与 Output 上失败时的重试策略，默认不重试。
+     */
+    public PipelineBuilder<I, T> retry(RetryPolicy retryPolicy) {
+        return new PipelineBuilder<>(source, processors, batchSize, mode, metrics, checkpointing,
+                Objects.requireNonNull(retryPolicy, "retryPolicy"), deadLetter, fuse);
+    }
+
+    /**
+     * 设置死信 Output：重试后仍失败的数据项转入死信并从流水线中剔除，其余数据项继续流转。
+     * <p>
+     * 未设置时，任一数据项的最终失败都会中止整次运行。
+     */
+    public PipelineBuilder<I, T> deadLetter(Output<DeadLetter> deadLetter) {
+        return new PipelineBuilder<>(source, processors, batchSize, mode, metrics, checkpointing, retryPolicy,
+                Objects.requireNonNull(deadLetter, "deadLetter"), fuse);
+    }
+
+    /**
+     * 即使设置了度量、重试或死信，也把相邻的普通 Processor 合并为一个阶段，阶段名为各 Processor 名称以
+     * {@code +} 连接。
+     * <p>
+     * 合并后的阶段整体计时、整体重试，死信只能定位到合并阶段。{@link BatchProcessor}、{@link AsyncProcessor} 以及分阶段并行模式下的
+     * 各阶段始终保持独立。
+     */
+    public PipelineBuilder<I, T> fuseProcessors() {
+        return new PipelineBuilder<>(source, processors, batchSize, mode, metrics, checkpointing, retryPolicy,
+                deadLetter, true);
+    }
+
+    /**
+     * 将整条链路编译为单个 Processor。
+     * <p>
+     * 适用于只需要逐条转换、不关心批处理与异步能力的场景。
+     */
+    public Processor<I, T> toProcessor() {
+        if (processors.isEmpty()) {
+            return input -> cast(input);
+        }
+        if (processors.size() == 1) {
+            return cast(processors.get(0));
+        }
+        return FusedProcessor.fuse(processors);
+    }
+
+    /**
+     * 以给定 Output 结束链路并创建流水线。
+     */
+    public Pipeline<I, T> to(Output<? super T> output) {
+        @SuppressWarnings("unchecked")
+        Output<T> typed = (Output<T>) Objects.requireNonNull(output, "output");
+        return new Pipeline<>(source, typed, compile(), batchSize, mode, metrics, checkpointing, retryPolicy,
+                deadLetter);
+    }
+
+    private List<Processor<?, ?>> compile() {
+        boolean perStage = metrics != PipelineMetrics.NOOP || retryPolicy != RetryPolicy.none() || deadLetter != null;
+        if ((perStage && !fuse) || mode instanceof StagedExecution) {
+            return processors;
+        }
+        List<Processor<?, ?>> compiled = new ArrayList<>(processors.size());
+        List<Processor<?, ?>> run = new ArrayList<>();
+        for (Processor<?, ?> processor : processors) {
+            if (processor instanceof BatchProcessor || processor instanceof AsyncProcessor) {
+                flush(run, compiled);
+                compiled.add(processor);
+            } else {
+                run.add(processor);
+            }
+        }
+        flush(run, compiled);
+        return compiled;
+    }
+
+    private static void flush(List<Processor<?, ?>> run, List<Processor<?, ?>> compiled) {
+        if (run.size() == 1) {
+            compiled.add(run.get(0));
+        } else if (run.size() > 1) {
+            compiled.add(FusedProcessor.fuse(run));
+        }
+        run.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> R cast(Object value) {
+        return (R) value;
+    }
+}
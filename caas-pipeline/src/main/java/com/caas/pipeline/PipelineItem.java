@@ -0,0 +1,18 @@
+package com.caas.pipeline;
+
+/**
+ * 在引擎内部流转的数据项：保留 Source 原始数据与断点键，各阶段原地替换当前值。
+ */
+final class PipelineItem {
+
+    final Object source;
+    final String key;
+    Object value;
+    boolean dropped;
+
+    PipelineItem(Object source, String key) {
+        this.source = source;
+        this.key = key;
+        this.value = source;
+    }
+}
@@ -0,0 +1,195 @@
+package com.caas.pipeline;
+
+import com.caas.pipeline.metrics.StageRecorder;
+import com.caas.pipeline.spi.BatchProcessor;
+import com.caas.pipeline.spi.Processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 分阶段并行执行：Source、每个 Processor 与 Output 各自运行，阶段之间通过有界队列交接。
+ * <p>
+ * 队列满时上游阻塞，从而对慢阶段形成背压。未配置死信时，任一阶段的最终失败都会中止整条流水线并抛出首个异常。
+ */
+final class StagedExecution extends ExecutionMode {
+
+    private static final PipelineItem END = new PipelineItem(null, null);
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final int workersPerStage;
+    private final int queueCapacity;
+
+    StagedExecution(int workersPerStage, int queueCapacity) {
+        if (workersPerStage <= 0) {
+            throw new IllegalArgumentException("workersPerStage must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.workersPerStage = workersPerStage;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    <I, O> void execute(Pipeline<I, O> pipeline) throws Exception {
+        List<Processor<?, ?>> processors = pipeline.processors();
+
+        // queues[i] 是第 i 个 Processor 的输入，最后一个队列是 Output 的输入。
+        List<BlockingQueue<PipelineItem>> queues = new ArrayList<>(processors.size() + 1);
+        for (int i = 0; i <= processors.size(); i++) {
+            queues.add(new ArrayBlockingQueue<>(queueCapacity));
+        }
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                1 + processors.size() * workersPerStage, new StageThreadFactory());
+        try {
+            executor.execute(guarded(failure, () -> runSource(pipeline, queues.get(0))));
+            for (int i = 0; i < processors.size(); i++) {
+                int index = i;
+                BlockingQueue<PipelineItem> in = queues.get(i);
+                BlockingQueue<PipelineItem> out = queues.get(i + 1);
+                AtomicInteger remaining = new AtomicInteger(workersPerStage);
+                for (int w = 0; w < workersPerStage; w++) {
+                    executor.execute(guarded(failure, () -> runStage(pipeline, index, in, out, remaining)));
+                }
+            }
+
+            // Output 在调用线程上串行执行，沿用同步模式下对 Output 的线程安全假设；
+            // 每次取出队列中已就绪的数据（最多一批）一并输出，便于 BatchOutput 组提交，随后提交断点。
+            BlockingQueue<PipelineItem> last = queues.get(processors.size());
+            List<PipelineItem> drained = new ArrayList<>(pipeline.batchSize());
+            boolean finished = false;
+            while (!finished) {
+                PipelineItem envelope = last.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (failure.get() != null) {
+                    break;
+                }
+                if (envelope == null) {
+                    continue;
+                }
+                pipeline.emitRecorder().recordQueueDepth(last.size());
+                drained.clear();
+                drained.add(envelope);
+                last.drainTo(drained, pipeline.batchSize() - 1);
+                List<PipelineItem> ready = new ArrayList<>(drained.size());
+                for (PipelineItem item : drained) {
+                    if (item == END) {
+                        finished = true;
+                        break;
+                    }
+                    ready.add(item);
+                }
+                pipeline.emit(ready);
+                pipeline.commitCheckpoint(ready);
+            }
+        } catch (Exception ex) {
+            failure.compareAndSet(null, ex);
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        rethrow(failure.get());
+    }
+
+    private <I> void runSource(Pipeline<I, ?> pipeline, BlockingQueue<PipelineItem> out) throws Exception {
+        while (true) {
+            List<I> batch = pipeline.fetch();
+            if (batch.isEmpty()) {
+                out.put(END);
+                return;
+            }
+            for (I item : batch) {
+                out.put(pipeline.wrap(item));
+            }
+        }
+    }
+
+    private void runStage(Pipeline<?, ?> pipeline, int index, BlockingQueue<PipelineItem> in,
+                          BlockingQueue<PipelineItem> out, AtomicInteger remaining) throws Exception {
+        boolean batching = pipeline.processors().get(index) instanceof BatchProcessor;
+        StageRecorder recorder = pipeline.stageRecorder(index);
+        List<PipelineItem> drained = new ArrayList<>();
+        while (true) {
+            drained.clear();
+            drained.add(in.take());
+            recorder.recordQueueDepth(in.size());
+            if (batching) {
+                // BatchProcessor 一次取走队列中已就绪的数据（最多一批）。
+                in.drainTo(drained, pipeline.batchSize() - 1);
+            }
+            boolean finished = drained.get(drained.size() - 1) == END;
+            if (finished) {
+                drained.remove(drained.size() - 1);
+            }
+            if (!drained.isEmpty()) {
+                pipeline.processStage(index, drained);
+                for (PipelineItem item : drained) {
+                    // 转入死信的数据项不再交给下游阶段。
+                    if (!item.dropped) {
+                        out.put(item);
+                    }
+                }
+            }
+            if (finished) {
+                // 放回结束标记，通知同阶段的其他工作线程；最后一个退出的线程向下游传递。
+                in.put(END);
+                if (remaining.decrementAndGet() == 0) {
+                    out.put(END);
+                }
+                return;
+            }
+        }
+    }
+
+    private static Runnable guarded(AtomicReference<Throwable> failure, StageTask task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable ex) {
+                failure.compareAndSet(null, ex);
+            }
+        };
+    }
+
+    private static void rethrow(Throwable failure) throws Exception {
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof Exception) {
+            throw (Exception) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IllegalStateException(failure);
+    }
+
+    @FunctionalInterface
+    private interface StageTask {
+        void run() throws Exception;
+    }
+
+    private static final class StageThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "caas-pipeline-stage-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
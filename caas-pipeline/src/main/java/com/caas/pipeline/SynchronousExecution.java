@@ -0,0 +1,33 @@
+package com.caas.pipeline;
+
+import java.util.List;
+
+/**
+ * 同步执行：逐批拉取、处理并输出，全部在调用线程上完成。
+ */
+final class SynchronousExecution extends ExecutionMode {
+
+    static final SynchronousExecution INSTANCE = new SynchronousExecution();
+
+    private SynchronousExecution() {
+    }
+
+    @Override
+    <I, O> void execute(Pipeline<I, O> pipeline) throws Exception {
+        while (true) {
+            // 1) 从 Source 拉取一批数据。
+            List<I> batch = pipeline.fetch();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            // 2) 经过 Processor 链处理，支持按批处理的阶段一次接收整批。
+            List<PipelineItem> items = pipeline.wrap(batch);
+            pipeline.process(items);
+
+            // 3) 输出处理后的结果，并提交本批断点。
+            pipeline.emit(items);
+            pipeline.commitCheckpoint(items);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.caas.pipeline;
+
+import com.caas.pipeline.spi.BatchOutput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 虚拟线程执行：每批数据中的每一项都在独立虚拟线程上处理，按 Source 顺序输出。
+ * <p>
+ * 一批的耗时约等于其中最慢的一项；全局并发由信号量限制，许可不足时拉取方阻塞等待。
+ * 链路中含 {@link com.caas.pipeline.spi.BatchProcessor} 时，直到最后一个 BatchProcessor 为止按阶段推进：
+ * BatchProcessor 接收整批，其间的普通阶段仍逐项并发，所有数据项完成一个阶段后才进入下一个。
+ */
+final class VirtualThreadExecution extends ExecutionMode {
+
+    private final int maxInFlight;
+
+    VirtualThreadExecution(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    <I, O> void execute(Pipeline<I, O> pipeline) throws Exception {
+        Semaphore permits = new Semaphore(maxInFlight);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                List<I> batch = pipeline.fetch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                List<PipelineItem> items = pipeline.wrap(batch);
+                int streamFrom = pipeline.lastBatchStage() + 1;
+                processGrouped(pipeline, items, streamFrom, executor, permits);
+                int stages = pipeline.processors().size();
+                List<Future<?>> pending = new ArrayList<>(items.size());
+                try {
+                    for (PipelineItem item : items) {
+                        pending.add(submit(executor, permits, () -> pipeline.processItem(item, streamFrom, stages)));
+                    }
+
+                    // 按提交顺序等待并输出，队首完成即可输出，无需等待整批结束；
+                    // BatchOutput 则在整批完成后一次输出。
+                    if (pipeline.output() instanceof BatchOutput) {
+                        for (Future<?> future : pending) {
+                            await(future);
+                        }
+                        pipeline.emit(items);
+                    } else {
+                        for (int i = 0; i < items.size(); i++) {
+                            await(pending.get(i));
+                            pipeline.emit(items.get(i));
+                        }
+                    }
+                    pipeline.commitCheckpoint(items);
+                } catch (Exception ex) {
+                    for (Future<?> future : pending) {
+                        future.cancel(true);
+                    }
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按阶段推进前 {@code end} 个 Processor：BatchProcessor 整批调用，相邻的普通阶段逐项并发后再进入下一阶段。
+     */
+    private static void processGrouped(Pipeline<?, ?> pipeline, List<PipelineItem> items, int end,
+                                       ExecutorService executor, Semaphore permits) throws Exception {
+        int stage = 0;
+        while (stage < end) {
+            if (pipeline.isBatchStage(stage)) {
+                pipeline.processStage(stage, items);
+                stage++;
+                continue;
+            }
+            int from = stage;
+            while (stage < end && !pipeline.isBatchStage(stage)) {
+                stage++;
+            }
+            int to = stage;
+            List<Future<?>> pending = new ArrayList<>(items.size());
+            try {
+                for (PipelineItem item : items) {
+                    pending.add(submit(executor, permits, () -> pipeline.processItem(item, from, to)));
+                }
+                for (Future<?> future : pending) {
+                    await(future);
+                }
+            } catch (Exception ex) {
+                for (Future<?> future : pending) {
+                    future.cancel(true);
+                }
+                throw ex;
+            }
+        }
+    }
+
+    private static Future<?> submit(ExecutorService executor, Semaphore permits, ItemTask task)
+            throws InterruptedException {
+        permits.acquire();
+        return executor.submit(() -> {
+            try {
+                task.run();
+                return null;
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    private interface ItemTask {
+
+        void run() throws Exception;
+    }
+}
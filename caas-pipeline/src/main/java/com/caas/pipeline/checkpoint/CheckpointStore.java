@@ -0,0 +1,40 @@
+package com.caas.pipeline.checkpoint;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * 流水线断点存储：记录已完成输出的数据项，供重启后的运行跳过。
+ * <p>
+ * 引擎在一批数据全部输出后调用 {@link #commit(long, Collection)}，实现应保证该调用返回时
+ * 记录已持久化，且一次提交要么整体可见、要么整体不可见。
+ */
+public interface CheckpointStore extends AutoCloseable {
+
+    /**
+     * 判断给定键对应的数据项是否已在之前的提交中完成。
+     *
+     * @param key 数据项的稳定键，例如 {@code HotTopic.id}
+     */
+    boolean isCompleted(String key);
+
+    /**
+     * 持久化一批已完成的数据项。
+     *
+     * @param batchIndex 批次序号，跨运行单调递增
+     * @param keys       本批已完成数据项的键
+     * @throws Exception 无法持久化时抛出
+     */
+    void commit(long batchIndex, Collection<String> keys) throws Exception;
+
+    /**
+     * 返回最近一次成功提交的批次序号；尚无提交时返回 {@code -1}。
+     */
+    long lastCommittedBatch();
+
+    /**
+     * 释放底层资源，例如打开的文件。
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,120 @@
+package com.caas.pipeline.checkpoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于本地文件的断点存储，以追加日志的形式记录每批完成的数据项。
+ * <p>
+ * 文件格式为逐行文本：{@code K\t<key>} 表示一个已完成的键，{@code C\t<batchIndex>} 表示提交此前的键。
+ * 每次提交后强制刷盘；加载时忽略末尾缺少提交行的残缺记录，因此进程在写入中途退出不会留下半批数据。
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+    private static final String KEY_PREFIX = "K\t";
+    private static final String COMMIT_PREFIX = "C\t";
+
+    private final Path file;
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+    private final FileChannel channel;
+    private volatile long lastCommittedBatch = -1;
+
+    public FileCheckpointStore(Path file) throws IOException {
+        this.file = Objects.requireNonNull(file, "file");
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long validLength = load();
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // 截掉末尾未提交的残缺记录，保证后续追加从完整的提交边界开始。
+        channel.truncate(validLength);
+        channel.position(validLength);
+    }
+
+    @Override
+    public boolean isCompleted(String key) {
+        return key != null && completed.contains(key);
+    }
+
+    @Override
+    public synchronized void commit(long batchIndex, Collection<String> keys) throws IOException {
+        StringBuilder record = new StringBuilder();
+        for (String key : keys) {
+            if (key.indexOf('\n') >= 0 || key.indexOf('\r') >= 0) {
+                throw new IllegalArgumentException("checkpoint key must not contain line breaks: " + key);
+            }
+            record.append(KEY_PREFIX).append(key).append('\n');
+        }
+        record.append(COMMIT_PREFIX).append(batchIndex).append('\n');
+
+        ByteBuffer buffer = ByteBuffer.wrap(record.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+
+        completed.addAll(keys);
+        lastCommittedBatch = batchIndex;
+    }
+
+    @Override
+    public long lastCommittedBatch() {
+        return lastCommittedBatch;
+    }
+
+    /**
+     * 已完成的数据项数量。
+     */
+    public int size() {
+        return completed.size();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long load() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        byte[] content = Files.readAllBytes(file);
+        List<String> pending = new ArrayList<>();
+        long validLength = 0;
+        int lineStart = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] != '\n') {
+                continue;
+            }
+            String line = new String(content, lineStart, i - lineStart, StandardCharsets.UTF_8);
+            lineStart = i + 1;
+            if (line.startsWith(KEY_PREFIX)) {
+                pending.add(line.substring(KEY_PREFIX.length()));
+            } else if (line.startsWith(COMMIT_PREFIX)) {
+                completed.addAll(pending);
+                pending.clear();
+                lastCommittedBatch = Long.parseLong(line.substring(COMMIT_PREFIX.length()));
+                validLength = lineStart;
+            } else {
+                throw new IOException("unrecognized checkpoint record: " + line);
+            }
+        }
+        return validLength;
+    }
+}
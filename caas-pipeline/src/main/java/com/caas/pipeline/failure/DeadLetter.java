@@ -0,0 +1,67 @@
+package com.caas.pipeline.failure;
+
+import java.time.Instant;
+
+/**
+ * 重试后仍然失败的数据项，交给死信 Output 留存以便排查或重放。
+ */
+public class DeadLetter {
+
+    private final Object sourceItem;
+    private final String key;
+    private final String stage;
+    private final Object input;
+    private final Throwable error;
+    private final int attempts;
+    private final Instant failedAt;
+
+    public DeadLetter(Object sourceItem, String key, String stage, Object input, Throwable error, int attempts) {
+        this.sourceItem = sourceItem;
+        this.key = key;
+        this.stage = stage;
+        this.input = input;
+        this.error = error;
+        this.attempts = attempts;
+        this.failedAt = Instant.now();
+    }
+
+    /**
+     * 从 Source 拉取到的原始数据项。
+     */
+    public Object getSourceItem() {
+        return sourceItem;
+    }
+
+    /**
+     * 数据项的断点键；未启用断点时为 {@code null}。
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 失败阶段的名称，例如 {@code stage-1:ArticleToVideoScriptProcessor} 或 {@code emit}。
+     */
+    public String getStage() {
+        return stage;
+    }
+
+    /**
+     * 失败阶段收到的输入。
+     */
+    public Object getInput() {
+        return input;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Instant getFailedAt() {
+        return failedAt;
+    }
+}
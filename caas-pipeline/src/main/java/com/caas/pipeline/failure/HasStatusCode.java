@@ -0,0 +1,12 @@
+package com.caas.pipeline.failure;
+
+/**
+ * 携带 HTTP 风格状态码的异常，供 {@link RetryPolicy} 区分确定性的客户端错误与可重试的失败。
+ */
+public interface HasStatusCode {
+
+    /**
+     * HTTP 风格的状态码，如 400、429、503。
+     */
+    int getStatusCode();
+}
@@ -0,0 +1,112 @@
+package com.caas.pipeline.failure;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * 单个数据项在某一阶段失败后的重试策略，采用指数退避。
+ * <p>
+ * 实例不可变，{@code with*} 方法返回新的实例。
+ * <p>
+ * {@link InterruptedException} 从不重试。默认也不重试实现了 {@link HasStatusCode} 的客户端错误（4xx，429 除外），
+ * 这类失败重试也不会成功。
+ */
+public final class RetryPolicy {
+
+    private static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO, 1.0, error -> false);
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final double multiplier;
+    private final Predicate<Throwable> retryOn;
+
+    private RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, double multiplier,
+                        Predicate<Throwable> retryOn) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.multiplier = multiplier;
+        this.retryOn = retryOn;
+    }
+
+    /**
+     * 不重试，失败即按流水线的失败处理方式处理。
+     */
+    public static RetryPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * 指数退避重试：第 n 次重试前等待 {@code initialBackoff * 2^(n-1)}，不超过 {@code maxBackoff}。
+     *
+     * @param maxAttempts    最多尝试次数（含首次调用）
+     * @param initialBackoff 首次重试前的等待时间
+     * @param maxBackoff     单次等待时间上限
+     */
+    public static RetryPolicy exponential(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive");
+        }
+        Objects.requireNonNull(initialBackoff, "initialBackoff");
+        Objects.requireNonNull(maxBackoff, "maxBackoff");
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("backoff must satisfy 0 <= initialBackoff <= maxBackoff");
+        }
+        return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, 2.0, RetryPolicy::isRetryableByDefault);
+    }
+
+    /**
+     * 指定退避倍率，默认 2。
+     */
+    public RetryPolicy withMultiplier(double multiplier) {
+        if (multiplier < 1.0) {
+            throw new IllegalArgumentException("multiplier must be >= 1");
+        }
+        return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, multiplier, retryOn);
+    }
+
+    /**
+     * 只对满足条件的异常重试，替换默认的客户端错误判断；{@link InterruptedException} 仍不会重试。
+     */
+    public RetryPolicy withRetryOn(Predicate<Throwable> retryOn) {
+        return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, multiplier,
+                Objects.requireNonNull(retryOn, "retryOn"));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 判断第 {@code attempt} 次尝试失败后是否继续重试。
+     *
+     * @param error   本次失败的异常
+     * @param attempt 已尝试次数，从 1 开始
+     */
+    public boolean shouldRetry(Throwable error, int attempt) {
+        return attempt < maxAttempts && !(error instanceof InterruptedException) && retryOn.test(error);
+    }
+
+    /**
+     * 默认的重试判断：除状态码为 4xx（429 除外）的客户端错误外都重试。
+     */
+    public static boolean isRetryableByDefault(Throwable error) {
+        if (error instanceof HasStatusCode) {
+            int statusCode = ((HasStatusCode) error).getStatusCode();
+            return statusCode < 400 || statusCode >= 500 || statusCode == 429;
+        }
+        return true;
+    }
+
+    /**
+     * 返回第 {@code attempt} 次尝试失败后、下次重试前的等待毫秒数。
+     *
+     * @param attempt 已尝试次数，从 1 开始
+     */
+    public long backoffMillis(int attempt) {
+        double backoff = initialBackoff.toMillis() * Math.pow(multiplier, Math.max(0, attempt - 1));
+        return (long) Math.min(backoff, maxBackoff.toMillis());
+    }
+}
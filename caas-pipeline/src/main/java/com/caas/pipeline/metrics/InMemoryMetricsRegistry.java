@@ -0,0 +1,128 @@
+package com.caas.pipeline.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于内存的度量注册表，可在运行期间随时读取各阶段的延迟分布、计数与队列深度。
+ */
+public final class InMemoryMetricsRegistry implements PipelineMetrics {
+
+    private final Map<String, StageStats> stages = new ConcurrentHashMap<>();
+    private final Histogram batchSizes = new Histogram();
+    private final long createdAtNanos = System.nanoTime();
+
+    @Override
+    public StageStats stage(String name) {
+        return stages.computeIfAbsent(name, StageStats::new);
+    }
+
+    @Override
+    public void recordBatchSize(int size) {
+        batchSizes.record(size);
+    }
+
+    /**
+     * 返回按名称排序的阶段统计视图。
+     */
+    public Map<String, StageStats> getStages() {
+        Map<String, StageStats> sorted = new LinkedHashMap<>();
+        stages.keySet().stream().sorted().forEach(name -> sorted.put(name, stages.get(name)));
+        return Collections.unmodifiableMap(sorted);
+    }
+
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    /**
+     * 生成便于日志输出的文本报告，延迟单位为毫秒。
+     */
+    public String report() {
+        double elapsedSeconds = Math.max(1e-9, (System.nanoTime() - createdAtNanos) / 1e9);
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("batches=%d avgBatchSize=%.1f%n", batchSizes.getCount(), batchSizes.getMean()));
+        for (StageStats stats : getStages().values()) {
+            Histogram latency = stats.getLatency();
+            report.append(String.format(
+                    "%s calls=%d items=%d errors=%d throughput=%.1f/s p50=%.2fms p99=%.2fms max=%.2fms"
+                            + " queue=%d maxQueue=%d%n",
+                    stats.getName(), latency.getCount(), stats.getItems(), stats.getErrors(),
+                    stats.getItems() / elapsedSeconds, millis(latency.getPercentile(50)),
+                    millis(latency.getPercentile(99)), millis(latency.getMax()),
+                    stats.getQueueDepth(), stats.getMaxQueueDepth()));
+        }
+        return report.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * 单个阶段的统计数据。
+     */
+    public static final class StageStats implements StageRecorder {
+
+        private final String name;
+        private final Histogram latency = new Histogram();
+        private final LongAdder items = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+
+        private StageStats(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void record(long nanos, int items, boolean success) {
+            latency.record(nanos);
+            this.items.add(items);
+            if (!success) {
+                errors.increment();
+            }
+        }
+
+        @Override
+        public void recordQueueDepth(int depth) {
+            queueDepth.set(depth);
+            int current = maxQueueDepth.get();
+            while (depth > current && !maxQueueDepth.compareAndSet(current, depth)) {
+                current = maxQueueDepth.get();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 每次调用的耗时分布（纳秒）。
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        public long getItems() {
+            return items.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public int getQueueDepth() {
+            return queueDepth.get();
+        }
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth.get();
+        }
+    }
+}
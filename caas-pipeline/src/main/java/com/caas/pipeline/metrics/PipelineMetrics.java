@@ -0,0 +1,39 @@
+package com.caas.pipeline.metrics;
+
+/**
+ * 流水线度量 SPI：引擎在拉取、每个 Processor 阶段与输出前后回调。
+ * <p>
+ * {@link #stage(String)} 在流水线创建时为每个阶段调用一次，热路径上只调用返回的
+ * {@link StageRecorder}，实现应保证记录过程无锁且不分配对象。
+ */
+public interface PipelineMetrics {
+
+    /**
+     * 不记录任何数据的默认实现。
+     */
+    PipelineMetrics NOOP = new PipelineMetrics() {
+        @Override
+        public StageRecorder stage(String name) {
+            return StageRecorder.NOOP;
+        }
+
+        @Override
+        public void recordBatchSize(int size) {
+        }
+    };
+
+    /**
+     * 获取指定阶段的记录器。
+     *
+     * @param name 阶段名称，例如 {@code fetch}、{@code emit} 或 {@code stage-0:TopicExplainProcessor}
+     * @return 该阶段的记录器
+     */
+    StageRecorder stage(String name);
+
+    /**
+     * 记录一次从 Source 拉取到的批大小。
+     *
+     * @param size 本批数据条数
+     */
+    void recordBatchSize(int size);
+}
@@ -0,0 +1,36 @@
+package com.caas.pipeline.metrics;
+
+/**
+ * 单个流水线阶段的记录器。
+ */
+public interface StageRecorder {
+
+    /**
+     * 不记录任何数据的默认实现。
+     */
+    StageRecorder NOOP = new StageRecorder() {
+        @Override
+        public void record(long nanos, int items, boolean success) {
+        }
+
+        @Override
+        public void recordQueueDepth(int depth) {
+        }
+    };
+
+    /**
+     * 记录一次阶段调用。
+     *
+     * @param nanos   调用耗时（纳秒）
+     * @param items   本次调用涉及的数据条数
+     * @param success 调用是否成功
+     */
+    void record(long nanos, int items, boolean success);
+
+    /**
+     * 记录阶段输入队列的当前深度，仅在存在交接队列的执行模式下调用。
+     *
+     * @param depth 队列中等待处理的数据条数
+     */
+    void recordQueueDepth(int depth);
+}
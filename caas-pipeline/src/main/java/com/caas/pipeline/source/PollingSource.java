@@ -0,0 +1,165 @@
+package com.caas.pipeline.source;
+
+import com.caas.pipeline.spi.Source;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持续轮询 Source：被装饰的 Source 每返回一次 {@code null} 视为一轮结束，等待轮询间隔后再次拉取，
+ * 流水线因此可以常驻运行，直到调用 {@link #close()}。
+ * <p>
+ * 轮询间隔随数据变化自适应：一轮有数据时间隔减半，没有数据时间隔加倍，始终限制在
+ * {@code [minInterval, maxInterval]} 内，初始为 {@code minInterval}。被装饰的 Source 应自行去重
+ * （如只返回新出现或有更新的热点），否则每轮都有数据，间隔将一直保持最小值。
+ * <p>
+ * 为判断一轮是否结束，本 Source 会提前读取一项，并在一轮取完时报告 {@link #isRoundComplete()}，
+ * 流水线据此立即处理当前批，不会等到下一轮。拉取异常结束当前一轮并计入 {@link #getFailures()}，
+ * 间隔仍按本轮是否已取到数据调整；连续失败达到 {@code maxConsecutiveFailures} 轮时由 {@link #next()} 抛出最近一次异常。
+ * <p>
+ * 提前读取意味着交出一轮的最后一项时就会再调用一次被装饰的 Source，而不是等到下一项被需要时。
+ * 对每次读完一页即重新请求、以新一页没有数据表示一轮结束的 Source（如微博热榜 Source），
+ * 这次确认请求紧跟在上一页之后发出，每轮因此有两次请求；配合条件请求时第二次通常只是一次 304。
+ * <p>
+ * 需要预取时应把本 Source 放在 {@link PrefetchingSource} 内层，即 {@code PrefetchingSource(PollingSource(...))}。
+ * 反过来不可行：{@link PrefetchingSource} 在被装饰的 Source 第一次返回 {@code null} 后便不再拉取，
+ * 包在它外面的本 Source 之后每轮都取不到数据。
+ * <p>
+ * {@link #next()} 仅支持单个消费线程调用；{@link #close()} 可在任意线程调用，此后已取到的数据仍会交出，
+ * 然后返回 {@code null}。
+ *
+ * @param <T> Source 产生的数据类型
+ */
+public final class PollingSource<T> implements Source<T>, AutoCloseable {
+
+    private static final int DEFAULT_MAX_CONSECUTIVE_FAILURES = 5;
+
+    private final Source<T> delegate;
+    private final long minIntervalNanos;
+    private final long maxIntervalNanos;
+    private final int maxConsecutiveFailures;
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private volatile long intervalNanos;
+    private boolean polled;
+    private T lookahead;
+    private int roundItems;
+    private int consecutiveFailures;
+    private Exception lastFailure;
+    private volatile long rounds;
+    private volatile long failures;
+
+    public PollingSource(Source<T> delegate, Duration minInterval, Duration maxInterval) {
+        this(delegate, minInterval, maxInterval, DEFAULT_MAX_CONSECUTIVE_FAILURES);
+    }
+
+    /**
+     * @param maxConsecutiveFailures 连续多少轮拉取失败后放弃轮询并抛出异常
+     */
+    public PollingSource(Source<T> delegate, Duration minInterval, Duration maxInterval,
+                         int maxConsecutiveFailures) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        Objects.requireNonNull(minInterval, "minInterval");
+        Objects.requireNonNull(maxInterval, "maxInterval");
+        if (minInterval.isNegative() || minInterval.isZero() || maxInterval.compareTo(minInterval) < 0) {
+            throw new IllegalArgumentException("interval must satisfy 0 < minInterval <= maxInterval");
+        }
+        if (maxConsecutiveFailures <= 0) {
+            throw new IllegalArgumentException("maxConsecutiveFailures must be positive");
+        }
+        this.minIntervalNanos = minInterval.toNanos();
+        this.maxIntervalNanos = maxInterval.toNanos();
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        this.intervalNanos = minIntervalNanos;
+    }
+
+    @Override
+    public T next() throws Exception {
+        while (lookahead == null) {
+            if (consecutiveFailures >= maxConsecutiveFailures) {
+                throw lastFailure;
+            }
+            boolean stopped = polled ? closed.await(intervalNanos, TimeUnit.NANOSECONDS) : closed.getCount() == 0;
+            if (stopped) {
+                return null;
+            }
+            polled = true;
+            roundItems = 0;
+            lookahead = pull();
+        }
+        T item = lookahead;
+        roundItems++;
+        lookahead = closed.getCount() == 0 ? null : pull();
+        return item;
+    }
+
+    @Override
+    public boolean isRoundComplete() {
+        return lookahead == null;
+    }
+
+    /**
+     * 当前的轮询间隔，即下一轮开始前要等待的时间。
+     */
+    public Duration getInterval() {
+        return Duration.ofNanos(intervalNanos);
+    }
+
+    /**
+     * 已结束的轮数，包括失败的轮次。
+     */
+    public long getRounds() {
+        return rounds;
+    }
+
+    /**
+     * 累计失败的轮数。
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * 停止轮询：正在等待的 {@link #next()} 立即返回 {@code null}。不会关闭被装饰的 Source。
+     */
+    @Override
+    public void close() {
+        closed.countDown();
+    }
+
+    /**
+     * 从被装饰的 Source 取下一项；返回 {@code null} 表示本轮已结束，并据此调整轮询间隔。
+     */
+    private T pull() throws InterruptedException {
+        T next;
+        try {
+            next = delegate.next();
+        } catch (InterruptedException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            failures++;
+            consecutiveFailures++;
+            lastFailure = ex;
+            // 失败前已取到的数据仍算作变化，失败本身由连续失败计数处理。
+            endRound(roundItems > 0);
+            return null;
+        }
+        if (next == null) {
+            consecutiveFailures = 0;
+            endRound(roundItems > 0);
+        }
+        return next;
+    }
+
+    private void endRound(boolean changed) {
+        rounds++;
+        if (changed) {
+            intervalNanos = Math.max(minIntervalNanos, intervalNanos / 2);
+        } else {
+            intervalNanos = Math.min(maxIntervalNanos, intervalNanos > maxIntervalNanos / 2
+                    ? maxIntervalNanos : intervalNanos * 2);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.caas.pipeline.source;
+
+import com.caas.pipeline.Pipeline;
+import com.caas.pipeline.spi.Source;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 预取 Source 装饰器：在后台线程上提前拉取后续批次，使 Source 延迟与下游处理重叠。
+ * <p>
+ * 最多缓冲 {@code prefetchBatches} 批数据，缓冲满时后台线程阻塞等待。
+ * 被装饰的 Source 返回 {@code null} 后，本 Source 在消费完缓冲数据后同样返回 {@code null}；
+ * 后台拉取的异常会在对应位置由 {@link #next()} 原样抛出。被装饰的 Source 报告一轮结束时，
+ * 该批消费完后本 Source 同样报告 {@link #isRoundComplete()}。
+ * <p>
+ * 被装饰的 Source 返回 {@code null} 后不会再次拉取。与 {@link PollingSource} 组合时应把它放在内层，
+ * 即 {@code PrefetchingSource(PollingSource(...))}：轮次由 {@link PollingSource} 衔接，预取线程一直读取下去。
+ * <p>
+ * {@link #next()} 仅支持单个消费线程调用。
+ *
+ * @param <T> Source 产生的数据类型
+ */
+public final class PrefetchingSource<T> implements Source<T>, AutoCloseable {
+
+    private final Source<T> delegate;
+    private final int batchSize;
+    private final BlockingQueue<Chunk<T>> buffer;
+
+    private Thread worker;
+    private Iterator<T> current;
+    private boolean currentEndsRound;
+    private boolean finished;
+    private volatile boolean closed;
+
+    public PrefetchingSource(Source<T> delegate, int batchSize, int prefetchBatches) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        if (prefetchBatches <= 0) {
+            throw new IllegalArgumentException("prefetchBatches must be positive");
+        }
+        this.batchSize = batchSize;
+        this.buffer = new ArrayBlockingQueue<>(prefetchBatches);
+    }
+
+    @Override
+    public T next() throws Exception {
+        if (closed) {
+            throw new IllegalStateException("PrefetchingSource is closed");
+        }
+        while (true) {
+            if (current != null && current.hasNext()) {
+                return current.next();
+            }
+            if (finished) {
+                return null;
+            }
+            if (worker == null) {
+                worker = Thread.ofPlatform()
+                        .daemon()
+                        .name("caas-pipeline-prefetch")
+                        .start(this::prefetch);
+            }
+            Chunk<T> chunk = buffer.take();
+            if (chunk.failure != null) {
+                finished = true;
+                throw chunk.failure;
+            }
+            if (chunk.items == null) {
+                finished = true;
+                return null;
+            }
+            current = chunk.items.iterator();
+            currentEndsRound = chunk.endsRound;
+        }
+    }
+
+    @Override
+    public boolean isRoundComplete() {
+        return currentEndsRound && !current.hasNext();
+    }
+
+    /**
+     * 停止后台预取并丢弃尚未消费的缓冲数据。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (worker != null) {
+            worker.interrupt();
+        }
+        buffer.clear();
+    }
+
+    private void prefetch() {
+        try {
+            while (!closed) {
+                List<T> batch = new ArrayList<>(batchSize);
+                try {
+                    fill(batch);
+                } catch (InterruptedException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    // 异常之前已取到的数据先交出，异常排在它们之后，与直接读取被装饰的 Source 时的位置一致。
+                    if (!batch.isEmpty()) {
+                        buffer.put(new Chunk<>(batch, null, false));
+                    }
+                    buffer.put(new Chunk<>(null, ex, false));
+                    return;
+                }
+                if (batch.isEmpty()) {
+                    buffer.put(new Chunk<>(null, null, false));
+                    return;
+                }
+                buffer.put(new Chunk<>(batch, null, delegate.isRoundComplete()));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 与 {@link Pipeline#fetchBatch} 的取批规则相同，但逐项写入 {@code batch}，抛出异常时已取到的数据仍保留在其中。
+     */
+    private void fill(List<T> batch) throws Exception {
+        while (batch.size() < batchSize) {
+            if (!batch.isEmpty() && delegate.isRoundComplete()) {
+                return;
+            }
+            T next = delegate.next();
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * 缓冲单元：一批数据、一个异常或结束标记（两者皆为 {@code null}）。
+     */
+    private static final class Chunk<T> {
+
+        private final List<T> items;
+        private final Exception failure;
+        private final boolean endsRound;
+
+        private Chunk(List<T> items, Exception failure, boolean endsRound) {
+            this.items = items;
+            this.failure = failure;
+            this.endsRound = endsRound;
+        }
+    }
+}
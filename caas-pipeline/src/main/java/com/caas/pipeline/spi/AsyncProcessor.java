@@ -0,0 +1,42 @@
+package com.caas.pipeline.spi;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 异步 Processor：以 {@link CompletionStage} 返回结果，处理期间不占用调用线程。
+ * <p>
+ * 异步执行模式会直接串联 {@link #processAsync(Object)}；在同步执行模式下，
+ * 默认的 {@link #process(Object)} 会阻塞等待异步结果。
+ *
+ * @param <I> 输入类型
+ * @param <O> 输出类型
+ */
+@FunctionalInterface
+public interface AsyncProcessor<I, O> extends Processor<I, O> {
+
+    /**
+     * 异步处理单个输入。
+     *
+     * @param input 输入项
+     * @return 完成时携带输出项的阶段；处理失败时以异常完成
+     */
+    CompletionStage<O> processAsync(I input);
+
+    @Override
+    default O process(I input) throws Exception {
+        try {
+            return processAsync(input).toCompletableFuture().get();
+        } catch (ExecutionException | CompletionException ex) {
+            Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.caas.pipeline.spi;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按批消费的 Output：一次接收整批数据，适合批量写入或组提交。
+ * <p>
+ * 引擎在能够凑齐批次时调用 {@link #emitBatch(List)}；逐条输出时退化为单元素批次。
+ *
+ * @param <T> Output 消费的数据类型
+ */
+@FunctionalInterface
+public interface BatchOutput<T> extends Output<T> {
+
+    /**
+     * 接收一批数据项。
+     *
+     * @param items 要消费的数据项，顺序与流水线产出顺序一致
+     * @throws Exception 无法接收时抛出
+     */
+    void emitBatch(List<T> items) throws Exception;
+
+    @Override
+    default void emit(T item) throws Exception {
+        emitBatch(Collections.singletonList(item));
+    }
+}
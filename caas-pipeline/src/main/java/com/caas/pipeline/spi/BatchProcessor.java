@@ -0,0 +1,34 @@
+package com.caas.pipeline.spi;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按批处理的 Processor：一次接收整批输入，适合调用提供方的批量接口或做批内合并。
+ * <p>
+ * 引擎在按批调度时直接调用 {@link #processBatch(List)}；逐条调度时退化为单元素批次。
+ *
+ * @param <I> 输入类型
+ * @param <O> 输出类型
+ */
+@FunctionalInterface
+public interface BatchProcessor<I, O> extends Processor<I, O> {
+
+    /**
+     * 处理一批输入。
+     *
+     * @param inputs 输入项列表
+     * @return 与输入一一对应、顺序一致的输出项列表
+     * @throws Exception 处理失败时抛出
+     */
+    List<O> processBatch(List<I> inputs) throws Exception;
+
+    @Override
+    default O process(I input) throws Exception {
+        List<O> outputs = processBatch(Collections.singletonList(input));
+        if (outputs == null || outputs.size() != 1) {
+            throw new IllegalStateException("BatchProcessor must return exactly one output per input");
+        }
+        return outputs.get(0);
+    }
+}
@@ -18,4 +18,13 @@ public interface Source<T> {
      * @throws Exception 无法提供下一项时抛出
      */
     T next() throws Exception;
+
+    /**
+     * 已返回的数据是否恰好构成完整的一轮，下一次 {@link #next()} 可能要等待较长时间（如下一次轮询）。
+     * <p>
+     * 流水线拉取批次时据此提前结束当前批，使已取到的数据不必等到下一轮才被处理。默认返回 {@code false}。
+     */
+    default boolean isRoundComplete() {
+        return false;
+    }
 }
@@ -1,12 +1,37 @@
 package com.caas.pipeline;
 
+import com.caas.pipeline.checkpoint.FileCheckpointStore;
+import com.caas.pipeline.failure.DeadLetter;
+import com.caas.pipeline.failure.HasStatusCode;
+import com.caas.pipeline.failure.RetryPolicy;
+import com.caas.pipeline.metrics.Histogram;
+import com.caas.pipeline.metrics.InMemoryMetricsRegistry;
+import com.caas.pipeline.source.PollingSource;
+import com.caas.pipeline.source.PrefetchingSource;
+import com.caas.pipeline.spi.AsyncProcessor;
+import com.caas.pipeline.spi.BatchOutput;
+import com.caas.pipeline.spi.BatchProcessor;
 import com.caas.pipeline.spi.Output;
 import com.caas.pipeline.spi.Processor;
 import com.caas.pipeline.spi.Source;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 /**
  * 最小自测：可作为普通 Java 程序直接运行。
@@ -14,6 +39,20 @@ import java.util.List;
 public final class PipelineSelfTest {
 
     public static void main(String[] args) throws Exception {
+        checkSynchronous();
+        checkStaged();
+        checkVirtualThreads();
+        checkAsync();
+        checkBatchAware();
+        checkPrefetching();
+        checkPolling();
+        checkBuilder();
+        checkMetrics();
+        checkCheckpoint();
+        checkFailureIsolation();
+    }
+
+    private static void checkSynchronous() throws Exception {
         Source<Integer> source = new ListSource<>(Arrays.asList(1, 2, 3));
 
         List<Processor<?, ?>> processors = List.of(
@@ -33,6 +72,748 @@ public final class PipelineSelfTest {
         }
     }
 
+    private static void checkStaged() throws Exception {
+        List<Integer> input = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            input.add(i);
+        }
+        Source<Integer> source = new ListSource<>(input);
+
+        List<Processor<?, ?>> processors = List.of(
+                (Processor<Integer, Integer>) value -> value * 2,
+                (Processor<Integer, String>) String::valueOf
+        );
+
+        List<String> outputItems = new ArrayList<>();
+        Output<String> output = outputItems::add;
+
+        Pipeline<Integer, String> pipeline = new Pipeline<>(source, output, processors, 16,
+                ExecutionMode.staged(4, 8));
+        pipeline.run();
+
+        Set<String> expected = new HashSet<>();
+        for (Integer value : input) {
+            expected.add(String.valueOf(value * 2));
+        }
+        if (outputItems.size() != input.size() || !expected.equals(new HashSet<>(outputItems))) {
+            throw new IllegalStateException("Unexpected staged output: " + outputItems);
+        }
+
+        Pipeline<Integer, String> failing = new Pipeline<>(new ListSource<>(input), item -> {
+        }, List.of((Processor<Integer, String>) value -> {
+            if (value == 250) {
+                throw new IllegalArgumentException("boom");
+            }
+            return String.valueOf(value);
+        }), 16, ExecutionMode.staged(2, 4));
+        try {
+            failing.run();
+            throw new IllegalStateException("Staged failure was not propagated");
+        } catch (IllegalArgumentException expectedFailure) {
+            // 预期：阶段异常会中止流水线并原样抛出。
+        }
+    }
+
+    private static void checkVirtualThreads() throws Exception {
+        List<Integer> input = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            input.add(i);
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<Processor<?, ?>> processors = List.of(
+                (Processor<Integer, Integer>) value -> {
+                    peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        // 倒序耗时，验证输出仍保持 Source 顺序。
+                        Thread.sleep(100 - value % 50);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                    return value;
+                },
+                (Processor<Integer, String>) String::valueOf
+        );
+
+        List<String> outputItems = new ArrayList<>();
+        Pipeline<Integer, String> pipeline = new Pipeline<>(new ListSource<>(input), outputItems::add,
+                processors, 100, ExecutionMode.virtualThreads(20));
+        pipeline.run();
+
+        List<String> expected = new ArrayList<>();
+        for (Integer value : input) {
+            expected.add(String.valueOf(value));
+        }
+        if (!expected.equals(outputItems)) {
+            throw new IllegalStateException("Unexpected virtual thread output: " + outputItems);
+        }
+        if (peak.get() > 20 || peak.get() < 2) {
+            throw new IllegalStateException("Unexpected in-flight peak: " + peak.get());
+        }
+    }
+
+    private static void checkAsync() throws Exception {
+        List<Integer> input = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            input.add(i);
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            AsyncProcessor<Integer, Integer> delayed = value -> {
+                peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                CompletableFuture<Integer> result = new CompletableFuture<>();
+                timer.schedule(() -> {
+                    inFlight.decrementAndGet();
+                    result.complete(value + 1);
+                }, 20, TimeUnit.MILLISECONDS);
+                return result;
+            };
+
+            List<Processor<?, ?>> processors = List.of(
+                    AsyncProcessors.limit(delayed, 5),
+                    (Processor<Integer, String>) String::valueOf
+            );
+
+            List<String> outputItems = new ArrayList<>();
+            Pipeline<Integer, String> pipeline = new Pipeline<>(new ListSource<>(input), outputItems::add,
+                    processors, 50, ExecutionMode.async(50));
+            pipeline.run();
+
+            List<String> expected = new ArrayList<>();
+            for (Integer value : input) {
+                expected.add(String.valueOf(value + 1));
+            }
+            if (!expected.equals(outputItems)) {
+                throw new IllegalStateException("Unexpected async output: " + outputItems);
+            }
+            if (peak.get() > 5) {
+                throw new IllegalStateException("Concurrency limit exceeded: " + peak.get());
+            }
+
+            // 同步模式下 AsyncProcessor 同样可用。
+            List<String> syncItems = new ArrayList<>();
+            new Pipeline<Integer, String>(new ListSource<>(List.of(1, 2)), syncItems::add, processors).run();
+            if (!List.of("2", "3").equals(syncItems)) {
+                throw new IllegalStateException("Unexpected sync output: " + syncItems);
+            }
+        } finally {
+            timer.shutdownNow();
+        }
+
+        // 大量排队的调用依次同步完成：逐个放行不能嵌套调用栈。
+        CompletableFuture<Integer> gate = new CompletableFuture<>();
+        AsyncProcessor<Integer, Integer> firstBlocks = value -> value == 0
+                ? gate
+                : CompletableFuture.completedFuture(value);
+        AsyncProcessor<Integer, Integer> limited = AsyncProcessors.limit(firstBlocks, 1);
+        int queued = 100_000;
+        List<CompletableFuture<Integer>> results = new ArrayList<>(queued);
+        for (int i = 0; i < queued; i++) {
+            results.add(limited.processAsync(i).toCompletableFuture());
+        }
+        gate.complete(0);
+        for (int i = 0; i < queued; i++) {
+            if (results.get(i).getNow(-1) != i) {
+                throw new IllegalStateException("Queued call " + i + " did not complete");
+            }
+        }
+    }
+
+    private static void checkBatchAware() throws Exception {
+        List<Integer> input = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            input.add(i);
+        }
+        for (ExecutionMode mode : List.of(ExecutionMode.synchronous(), ExecutionMode.staged(1, 4),
+                ExecutionMode.virtualThreads(4), ExecutionMode.async(4))) {
+            List<Integer> processorBatchSizes = new ArrayList<>();
+            BatchProcessor<Integer, String> batchProcessor = inputs -> {
+                synchronized (processorBatchSizes) {
+                    processorBatchSizes.add(inputs.size());
+                }
+                List<String> outputs = new ArrayList<>(inputs.size());
+                for (Integer value : inputs) {
+                    outputs.add("v" + value);
+                }
+                return outputs;
+            };
+
+            List<String> outputItems = new ArrayList<>();
+            List<Integer> outputBatchSizes = new ArrayList<>();
+            BatchOutput<String> output = items -> {
+                outputBatchSizes.add(items.size());
+                outputItems.addAll(items);
+            };
+
+            // BatchProcessor 前后各有一个逐条阶段，逐条并发的模式也必须把整批交给 BatchProcessor。
+            Processor<Integer, Integer> before = value -> value;
+            Processor<String, String> after = value -> value;
+            Pipeline<Integer, String> pipeline = new Pipeline<>(new ListSource<>(input), output,
+                    List.of(before, batchProcessor, after), 10, mode);
+            pipeline.run();
+
+            if (outputItems.size() != input.size() || !new HashSet<>(outputItems).contains("v24")) {
+                throw new IllegalStateException("Unexpected batch output for " + mode + ": " + outputItems);
+            }
+            if (outputBatchSizes.stream().anyMatch(size -> size > 10)
+                    || processorBatchSizes.stream().anyMatch(size -> size > 10)
+                    || processorBatchSizes.stream().mapToInt(Integer::intValue).sum() != input.size()) {
+                throw new IllegalStateException("Unexpected batch sizes for " + mode + ": " + processorBatchSizes
+                        + " " + outputBatchSizes);
+            }
+            // 分阶段模式按就绪数据取批，批大小不固定；其余模式按拉取的批整批调用。
+            List<Integer> expectedSizes = List.of(10, 10, 5);
+            if (!(mode instanceof StagedExecution)
+                    && (!expectedSizes.equals(processorBatchSizes) || !expectedSizes.equals(outputBatchSizes))) {
+                throw new IllegalStateException("Unexpected batch sizes for " + mode + ": " + processorBatchSizes
+                        + " " + outputBatchSizes);
+            }
+        }
+    }
+
+    private static void checkPrefetching() throws Exception {
+        List<Integer> input = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            input.add(i);
+        }
+        List<Integer> outputItems = new ArrayList<>();
+        try (PrefetchingSource<Integer> source = new PrefetchingSource<>(new ListSource<>(input), 5, 2)) {
+            new Pipeline<Integer, Integer>(source, outputItems::add, List.of(), 5).run();
+            if (source.next() != null) {
+                throw new IllegalStateException("PrefetchingSource should stay exhausted");
+            }
+        }
+        if (!input.equals(outputItems)) {
+            throw new IllegalStateException("Unexpected prefetched output: " + outputItems);
+        }
+
+        Source<Integer> failing = new Source<>() {
+            private int count;
+
+            @Override
+            public Integer next() throws Exception {
+                if (count == 7) {
+                    throw new IllegalStateException("source failure");
+                }
+                return count++;
+            }
+        };
+        List<Integer> beforeFailure = new ArrayList<>();
+        try (PrefetchingSource<Integer> source = new PrefetchingSource<>(failing, 5, 2)) {
+            new Pipeline<Integer, Integer>(source, beforeFailure::add, List.of(), 5).run();
+            throw new IllegalStateException("Source failure was not propagated");
+        } catch (IllegalStateException expected) {
+            if (!"source failure".equals(expected.getMessage()) || beforeFailure.size() != 5) {
+                throw expected;
+            }
+        }
+
+        // 批内第 3 项失败：前两项先交出，异常随后抛出，不会连同半批数据一起丢弃。
+        Source<Integer> failingMidBatch = new Source<>() {
+            private int count;
+
+            @Override
+            public Integer next() throws Exception {
+                if (count == 7) {
+                    throw new IllegalStateException("source failure");
+                }
+                return count++;
+            }
+        };
+        List<Integer> delivered = new ArrayList<>();
+        try (PrefetchingSource<Integer> source = new PrefetchingSource<>(failingMidBatch, 5, 2)) {
+            Integer next;
+            while ((next = source.next()) != null) {
+                delivered.add(next);
+            }
+            throw new IllegalStateException("Source failure was not propagated");
+        } catch (IllegalStateException expected) {
+            if (!"source failure".equals(expected.getMessage())
+                    || !List.of(0, 1, 2, 3, 4, 5, 6).equals(delivered)) {
+                throw new IllegalStateException("Partial batch was lost before the failure: " + delivered);
+            }
+        }
+    }
+
+    private static void checkPolling() throws Exception {
+        // 每轮的数据：列表为本轮的新数据，异常表示本轮拉取失败。
+        List<Object> script = List.of(List.of(1, 2), List.of(), List.of(), List.of(), List.of(),
+                new IllegalStateException("poll failure"), List.of(3));
+        AtomicInteger round = new AtomicInteger();
+        List<PollingSource<Integer>> holder = new ArrayList<>();
+        Source<Integer> scripted = new Source<>() {
+            private Iterator<Integer> current;
+
+            @Override
+            public Integer next() throws Exception {
+                if (current == null) {
+                    if (round.get() == script.size()) {
+                        holder.get(0).close();
+                        return null;
+                    }
+                    Object next = script.get(round.getAndIncrement());
+                    if (next instanceof Exception) {
+                        throw (Exception) next;
+                    }
+                    @SuppressWarnings("unchecked")
+                    List<Integer> items = (List<Integer>) next;
+                    current = items.iterator();
+                }
+                if (current.hasNext()) {
+                    return current.next();
+                }
+                current = null;
+                return null;
+            }
+        };
+        List<Integer> outputItems = new ArrayList<>();
+        List<Integer> roundsAtEmit = new ArrayList<>();
+        try (PollingSource<Integer> source = new PollingSource<>(scripted, Duration.ofMillis(5),
+                Duration.ofMillis(40))) {
+            holder.add(source);
+            // 批大小远大于每轮的数据量：一轮取完即应处理，不等下一轮补满。
+            new Pipeline<Integer, Integer>(source, item -> {
+                outputItems.add(item);
+                roundsAtEmit.add(round.get());
+            }, List.of(), 100).run();
+            if (!List.of(1, 2, 3).equals(outputItems) || !List.of(1, 1, 7).equals(roundsAtEmit)) {
+                throw new IllegalStateException("Unexpected polled output: " + outputItems + " " + roundsAtEmit);
+            }
+            // 有数据时保持 5ms，四轮无数据加倍封顶 40ms，失败保持 40ms，有数据减半为 20ms，
+            // 关闭前的最后一轮无数据再加倍为 40ms。
+            if (source.getRounds() != 8 || source.getFailures() != 1
+                    || !Duration.ofMillis(40).equals(source.getInterval())) {
+                throw new IllegalStateException("Unexpected polling state: rounds=" + source.getRounds()
+                        + ", failures=" + source.getFailures() + ", interval=" + source.getInterval());
+            }
+        }
+
+        // 预取放在轮询外层：后续轮次的数据照常到达，关闭轮询后流水线结束。
+        List<List<Integer>> rounds = List.of(List.of(1, 2), List.of(), List.of(3, 4, 5));
+        AtomicInteger roundIndex = new AtomicInteger();
+        List<PollingSource<Integer>> pollingHolder = new ArrayList<>();
+        Source<Integer> rounded = new Source<>() {
+            private Iterator<Integer> current;
+
+            @Override
+            public Integer next() {
+                if (current == null) {
+                    if (roundIndex.get() == rounds.size()) {
+                        pollingHolder.get(0).close();
+                        return null;
+                    }
+                    current = rounds.get(roundIndex.getAndIncrement()).iterator();
+                }
+                if (current.hasNext()) {
+                    return current.next();
+                }
+                current = null;
+                return null;
+            }
+        };
+        PollingSource<Integer> polling = new PollingSource<>(rounded, Duration.ofMillis(1), Duration.ofMillis(4));
+        pollingHolder.add(polling);
+        List<Integer> prefetchedRounds = new ArrayList<>();
+        try (PrefetchingSource<Integer> source = new PrefetchingSource<>(polling, 10, 2)) {
+            new Pipeline<Integer, Integer>(source, prefetchedRounds::add, List.of(), 100).run();
+        }
+        if (!List.of(1, 2, 3, 4, 5).equals(prefetchedRounds) || polling.getRounds() != 4) {
+            throw new IllegalStateException("Prefetching over polling lost rounds: " + prefetchedRounds);
+        }
+
+        // 取到数据后才失败的一轮仍算有数据：间隔减半（保持 5ms），关闭前的空轮再加倍为 10ms。
+        AtomicInteger pulls = new AtomicInteger();
+        List<PollingSource<Integer>> partialHolder = new ArrayList<>();
+        Source<Integer> partial = () -> {
+            int pull = pulls.incrementAndGet();
+            if (pull <= 2) {
+                return pull;
+            }
+            if (pull == 3) {
+                throw new IllegalStateException("page cut off");
+            }
+            partialHolder.get(0).close();
+            return null;
+        };
+        try (PollingSource<Integer> source = new PollingSource<>(partial, Duration.ofMillis(5),
+                Duration.ofMillis(40))) {
+            partialHolder.add(source);
+            List<Integer> partialItems = new ArrayList<>();
+            new Pipeline<Integer, Integer>(source, partialItems::add, List.of(), 100).run();
+            if (!List.of(1, 2).equals(partialItems) || source.getFailures() != 1
+                    || !Duration.ofMillis(10).equals(source.getInterval())) {
+                throw new IllegalStateException("Partial round failure backed off: " + source.getInterval());
+            }
+        }
+
+        try (PollingSource<Integer> source = new PollingSource<>(() -> {
+            throw new IllegalStateException("always");
+        }, Duration.ofMillis(1), Duration.ofMillis(2), 2)) {
+            source.next();
+            throw new IllegalStateException("Consecutive failures were not propagated");
+        } catch (IllegalStateException expected) {
+            if (!"always".equals(expected.getMessage())) {
+                throw expected;
+            }
+        }
+
+        PollingSource<Integer> idle = new PollingSource<>(() -> null, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            scheduler.schedule(idle::close, 50, TimeUnit.MILLISECONDS);
+            long start = System.nanoTime();
+            if (idle.next() != null || System.nanoTime() - start > TimeUnit.SECONDS.toNanos(10)) {
+                throw new IllegalStateException("close() did not stop a waiting PollingSource");
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static void checkBuilder() throws Exception {
+        List<Integer> outputItems = new ArrayList<>();
+        Pipeline<String, Integer> pipeline = Pipeline.from(new ListSource<>(Arrays.asList(" a ", "bb", "ccc ")))
+                .then(String::trim)
+                .then(String::length)
+                .then(value -> value * 10)
+                .to(outputItems::add);
+        pipeline.run();
+        if (!Arrays.asList(10, 20, 30).equals(outputItems)) {
+            throw new IllegalStateException("Unexpected builder output: " + outputItems);
+        }
+        if (pipeline.processors().size() != 1 || !pipeline.processors().get(0).getClass().isHidden()) {
+            throw new IllegalStateException("Processors should be fused by default: " + pipeline.processors());
+        }
+
+        // 每条链路各有一个隐藏类，调用点不在链路之间共享。
+        Processor<String, Integer> first = Pipeline.from(new ListSource<>(List.<String>of()))
+                .then(String::trim).then(String::length).toProcessor();
+        Processor<Integer, String> second = Pipeline.from(new ListSource<>(List.<Integer>of()))
+                .then(value -> value + 1).then(String::valueOf).toProcessor();
+        if (first.getClass() == second.getClass() || first.process(" ab ") != 2 || !"8".equals(second.process(7))) {
+            throw new IllegalStateException("Each chain should get its own fused class");
+        }
+        Processor<String, String> reject = value -> {
+            throw new StatusException(value.length());
+        };
+        Processor<String, String> failing = Pipeline.from(new ListSource<>(List.<String>of()))
+                .then(String::trim)
+                .then(reject)
+                .then(String::valueOf)
+                .toProcessor();
+        try {
+            failing.process(" x ");
+            throw new IllegalStateException("Fused chain should rethrow the processor's exception");
+        } catch (StatusException expected) {
+            // 受检异常原样抛出。
+        }
+
+        // 设置度量后每个 Processor 各为一个阶段。
+        InMemoryMetricsRegistry separateMetrics = new InMemoryMetricsRegistry();
+        Pipeline<String, Integer> separate = Pipeline.from(new ListSource<>(Arrays.asList(" a ", "bb")))
+                .then(new Trim())
+                .then(String::length)
+                .metrics(separateMetrics)
+                .to(item -> {
+                });
+        separate.run();
+        if (separate.processors().size() != 2 || !separateMetrics.getStages().containsKey("stage-0:Trim")) {
+            throw new IllegalStateException("Unexpected separate stages: " + separateMetrics.getStages().keySet());
+        }
+
+        // 显式合并后只剩一个阶段，阶段名仍保留各 Processor 的名称。
+        InMemoryMetricsRegistry fusedMetrics = new InMemoryMetricsRegistry();
+        List<Integer> fusedItems = new ArrayList<>();
+        Pipeline<String, Integer> fused = Pipeline.from(new ListSource<>(Arrays.asList(" a ", "bb")))
+                .then(new Trim())
+                .then(String::length)
+                .fuseProcessors()
+                .metrics(fusedMetrics)
+                .to(fusedItems::add);
+        fused.run();
+        if (fused.processors().size() != 1 || !Arrays.asList(1, 2).equals(fusedItems)
+                || fusedMetrics.getStages().keySet().stream().noneMatch(name -> name.startsWith("stage-0:Trim+"))) {
+            throw new IllegalStateException("Unexpected fused stages: " + fusedMetrics.getStages().keySet());
+        }
+
+        BatchProcessor<Integer, Integer> doubler = inputs -> {
+            List<Integer> outputs = new ArrayList<>(inputs.size());
+            for (Integer value : inputs) {
+                outputs.add(value * 2);
+            }
+            return outputs;
+        };
+        Pipeline<String, String> mixed = Pipeline.from(new ListSource<>(List.of("x")))
+                .then(String::length)
+                .then(value -> value + 1)
+                .then(doubler)
+                .then(String::valueOf)
+                .fuseProcessors()
+                .to(item -> {
+                });
+        if (mixed.processors().size() != 3) {
+            throw new IllegalStateException("BatchProcessor should stay a separate stage: " + mixed.processors());
+        }
+    }
+
+    private static void checkMetrics() throws Exception {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1_000);
+        }
+        long p50 = histogram.getPercentile(50);
+        long p99 = histogram.getPercentile(99);
+        if (Math.abs(p50 - 5_000_000) > 400_000 || Math.abs(p99 - 9_900_000) > 700_000
+                || histogram.getMax() != 10_000_000) {
+            throw new IllegalStateException("Unexpected percentiles: p50=" + p50 + " p99=" + p99);
+        }
+
+        for (ExecutionMode mode : List.of(ExecutionMode.synchronous(), ExecutionMode.staged(2, 4),
+                ExecutionMode.virtualThreads(4), ExecutionMode.async(4))) {
+            InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+            List<Integer> input = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                input.add(i);
+            }
+            Pipeline.from(new ListSource<>(input))
+                    .then(value -> value + 1)
+                    .then(String::valueOf)
+                    .batchSize(8)
+                    .executionMode(mode)
+                    .metrics(registry)
+                    .to(item -> {
+                    })
+                    .run();
+
+            InMemoryMetricsRegistry.StageStats fetch = registry.getStages().get("fetch");
+            InMemoryMetricsRegistry.StageStats emit = registry.getStages().get("emit");
+            long processed = registry.getStages().values().stream()
+                    .filter(stats -> stats.getName().startsWith("stage-"))
+                    .mapToLong(InMemoryMetricsRegistry.StageStats::getItems)
+                    .sum();
+            if (fetch.getItems() != 30 || emit.getItems() != 30 || processed == 0
+                    || registry.getBatchSizes().getCount() != 4 || emit.getLatency().getCount() == 0) {
+                throw new IllegalStateException("Unexpected metrics for " + mode + ":\n" + registry.report());
+            }
+        }
+    }
+
+    private static void checkCheckpoint() throws Exception {
+        Path dir = Files.createTempDirectory("caas-checkpoint");
+        try {
+            for (ExecutionMode mode : List.of(ExecutionMode.synchronous(), ExecutionMode.staged(1, 4),
+                    ExecutionMode.virtualThreads(4), ExecutionMode.async(4))) {
+                Path file = dir.resolve(mode.getClass().getSimpleName() + ".log");
+                List<Integer> input = new ArrayList<>();
+                for (int i = 0; i < 23; i++) {
+                    input.add(i);
+                }
+
+                // 第一次运行在第 12 项失败，此前已输出的数据应被提交。
+                List<Integer> firstRun = new ArrayList<>();
+                try (FileCheckpointStore store = new FileCheckpointStore(file)) {
+                    Pipeline.from(new ListSource<>(input))
+                            .then(value -> {
+                                if (value == 12) {
+                                    throw new IllegalStateException("crash");
+                                }
+                                return value;
+                            })
+                            .batchSize(5)
+                            .executionMode(mode)
+                            .checkpoint(store, String::valueOf)
+                            .to(item -> {
+                                synchronized (firstRun) {
+                                    firstRun.add(item);
+                                }
+                            })
+                            .run();
+                    throw new IllegalStateException("Crash was not propagated");
+                } catch (IllegalStateException expected) {
+                    if (!"crash".equals(expected.getMessage())) {
+                        throw expected;
+                    }
+                }
+
+                List<Integer> secondRun = new ArrayList<>();
+                try (FileCheckpointStore store = new FileCheckpointStore(file)) {
+                    if (store.size() == 0 || store.lastCommittedBatch() < 0) {
+                        throw new IllegalStateException("Checkpoint not committed for " + mode);
+                    }
+                    Pipeline.from(new ListSource<>(input))
+                            .batchSize(5)
+                            .executionMode(mode)
+                            .checkpoint(store, String::valueOf)
+                            .to(secondRun::add)
+                            .run();
+                    if (store.size() != input.size()) {
+                        throw new IllegalStateException("Not all items committed: " + store.size());
+                    }
+                }
+                if (secondRun.contains(0) || !secondRun.contains(12) || !secondRun.contains(22)) {
+                    throw new IllegalStateException("Completed items were not skipped: " + secondRun);
+                }
+            }
+
+            // 末尾缺少提交行的残缺记录不应生效。
+            Path torn = dir.resolve("torn.log");
+            Files.writeString(torn, "K\ta\nC\t0\nK\tb\n");
+            try (FileCheckpointStore store = new FileCheckpointStore(torn)) {
+                if (!store.isCompleted("a") || store.isCompleted("b") || store.lastCommittedBatch() != 0) {
+                    throw new IllegalStateException("Torn checkpoint record was loaded");
+                }
+                store.commit(1, List.of("c"));
+            }
+            if (!"K\ta\nC\t0\nK\tc\nC\t1\n".equals(Files.readString(torn))) {
+                throw new IllegalStateException("Unexpected checkpoint log: " + Files.readString(torn));
+            }
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void checkFailureIsolation() throws Exception {
+        for (ExecutionMode mode : List.of(ExecutionMode.synchronous(), ExecutionMode.staged(2, 4),
+                ExecutionMode.virtualThreads(4), ExecutionMode.async(4))) {
+            List<Integer> input = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                input.add(i);
+            }
+            Set<Integer> flaky = ConcurrentHashMap.newKeySet();
+            List<Integer> outputItems = new ArrayList<>();
+            List<DeadLetter> deadLetters = new ArrayList<>();
+
+            Pipeline.from(new ListSource<>(input))
+                    .then(value -> {
+                        if (value == 3) {
+                            throw new IllegalArgumentException("malformed");
+                        }
+                        if (value == 5 && flaky.add(value)) {
+                            throw new IllegalStateException("transient");
+                        }
+                        return value * 10;
+                    })
+                    .batchSize(5)
+                    .executionMode(mode)
+                    .retry(RetryPolicy.exponential(3, Duration.ofMillis(1), Duration.ofMillis(5)))
+                    .deadLetter(deadLetters::add)
+                    .to(item -> {
+                        if (item == 70) {
+                            throw new IllegalStateException("sink rejected");
+                        }
+                        synchronized (outputItems) {
+                            outputItems.add(item);
+                        }
+                    })
+                    .run();
+
+            Set<Integer> expected = new HashSet<>(List.of(0, 10, 20, 40, 50, 60, 80, 90, 100, 110));
+            if (!expected.equals(new HashSet<>(outputItems)) || outputItems.size() != expected.size()) {
+                throw new IllegalStateException("Unexpected isolated output for " + mode + ": " + outputItems);
+            }
+            if (deadLetters.size() != 2) {
+                throw new IllegalStateException("Unexpected dead letters for " + mode + ": " + deadLetters.size());
+            }
+            for (DeadLetter letter : deadLetters) {
+                boolean processorFailure = letter.getSourceItem().equals(3) && letter.getStage().startsWith("stage-0")
+                        && letter.getAttempts() == 3;
+                boolean emitFailure = letter.getSourceItem().equals(7) && "emit".equals(letter.getStage())
+                        && letter.getInput().equals(70);
+                if (!processorFailure && !emitFailure) {
+                    throw new IllegalStateException("Unexpected dead letter: " + letter.getStage());
+                }
+            }
+        }
+
+        // 客户端错误（4xx）默认不重试，直接转入死信。
+        AtomicInteger clientErrorCalls = new AtomicInteger();
+        List<DeadLetter> clientErrors = new ArrayList<>();
+        Pipeline.from(new ListSource<>(List.of(1)))
+                .then(value -> {
+                    clientErrorCalls.incrementAndGet();
+                    throw new StatusException(400);
+                })
+                .retry(RetryPolicy.exponential(3, Duration.ZERO, Duration.ZERO))
+                .deadLetter(clientErrors::add)
+                .to(item -> {
+                })
+                .run();
+        if (clientErrorCalls.get() != 1 || clientErrors.size() != 1
+                || !RetryPolicy.exponential(3, Duration.ZERO, Duration.ZERO).shouldRetry(new StatusException(429), 1)) {
+            throw new IllegalStateException("Client error was retried: " + clientErrorCalls.get());
+        }
+
+        // 中断不重试、不转入死信，原样抛出并保留中断标记。
+        for (ExecutionMode mode : List.of(ExecutionMode.synchronous(), ExecutionMode.async(2))) {
+            AtomicInteger interruptedCalls = new AtomicInteger();
+            List<DeadLetter> interruptedLetters = new ArrayList<>();
+            try {
+                Pipeline.from(new ListSource<>(List.of(1)))
+                        .then(value -> {
+                            interruptedCalls.incrementAndGet();
+                            throw new InterruptedException("cancelled");
+                        })
+                        .executionMode(mode)
+                        .retry(RetryPolicy.exponential(3, Duration.ZERO, Duration.ZERO))
+                        .deadLetter(interruptedLetters::add)
+                        .to(item -> {
+                        })
+                        .run();
+                throw new IllegalStateException("Interruption was swallowed for " + mode);
+            } catch (InterruptedException expected) {
+                Thread.interrupted();
+            }
+            if (interruptedCalls.get() != 1 || !interruptedLetters.isEmpty()) {
+                throw new IllegalStateException("Interruption was retried or dead-lettered for " + mode);
+            }
+        }
+
+        // 未配置死信时保持原有行为：最终失败中止整次运行。
+        try {
+            Pipeline.from(new ListSource<>(List.of(1, 2)))
+                    .then(value -> {
+                        throw new IllegalArgumentException("always");
+                    })
+                    .retry(RetryPolicy.exponential(2, Duration.ZERO, Duration.ZERO))
+                    .to(item -> {
+                    })
+                    .run();
+            throw new IllegalStateException("Failure without dead letter was not propagated");
+        } catch (IllegalArgumentException expected) {
+            // 预期
+        }
+    }
+
+    private static final class Trim implements Processor<String, String> {
+
+        @Override
+        public String process(String input) {
+            return input.trim();
+        }
+    }
+
+    private static final class StatusException extends Exception implements HasStatusCode {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+
+        private StatusException(int statusCode) {
+            super("status " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+
     private static final class ListSource<T> implements Source<T> {
         private final List<T> items;
         private int index = 0;